@@ -0,0 +1,104 @@
+package org.example.pharm.benchmark;
+
+import org.example.pharm.PharmApplication;
+import org.example.pharm.service.DeliveryRollupService;
+import org.example.pharm.service.IdSequenceAligner;
+import org.example.pharm.service.ProductSearchIndex;
+import org.example.pharm.service.ProductSuggestIndex;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запуск контекста приложения для бенчмарков.
+ * <p>
+ * Контекст поднимается с профилем "bench": встраиваемая база H2 в режиме совместимости с MySQL,
+ * схема создаётся Hibernate, подробное логирование отключено. Бенчмарки возможностей MySQL запускаются
+ * против отдельной базы MySQL со схемой из миграций (см. {@link #startMysql(String...)}).
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Запускает приложение с профилем "bench".
+     *
+     * @param args аргументы командной строки приложения, например {@code --pharm.security.bcrypt-strength=12}
+     * @return запущенный контекст приложения
+     */
+    public static ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(PharmApplication.class)
+                .profiles("bench")
+                .run(args);
+    }
+
+    /**
+     * Запускает приложение с профилем "bench" против MySQL. Схема создаётся миграциями Flyway.
+     * <p>
+     * Адрес и учётные данные базы берутся из переменных окружения {@code PHARM_BENCH_MYSQL_URL},
+     * {@code PHARM_BENCH_MYSQL_USER} и {@code PHARM_BENCH_MYSQL_PASSWORD} (переменные окружения, в отличие
+     * от системных свойств, наследуются процессами JMH). По умолчанию используется база pharm_bench
+     * локального сервера; она создаётся при первом подключении. Данные базы перезаписываются.
+     *
+     * @param args дополнительные аргументы командной строки приложения
+     * @return запущенный контекст приложения
+     */
+    public static ConfigurableApplicationContext startMysql(String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + env("PHARM_BENCH_MYSQL_URL",
+                        "jdbc:mysql://localhost:3306/pharm_bench?createDatabaseIfNotExist=true"
+                                + "&rewriteBatchedStatements=true&useCursorFetch=true"),
+                "--spring.datasource.username=" + env("PHARM_BENCH_MYSQL_USER", "root"),
+                "--spring.datasource.password=" + env("PHARM_BENCH_MYSQL_PASSWORD", "12345678"),
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQL8Dialect",
+                "--spring.jpa.hibernate.ddl-auto=validate",
+                "--spring.flyway.enabled=true"));
+        arguments.addAll(List.of(args));
+        return start(arguments.toArray(new String[0]));
+    }
+
+    /**
+     * Заполняет каталог, если в базе нет ровно {@code products} продуктов, иначе только перестраивает
+     * производные структуры. Позволяет не пересоздавать большой каталог MySQL для каждого набора параметров.
+     *
+     * @param context  запущенный контекст приложения
+     * @param products количество продуктов
+     */
+    public static void prepareCatalog(ConfigurableApplicationContext context, int products) {
+        Long existing = context.getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM product", Long.class);
+        if (existing == null || existing != products) {
+            seedCatalog(context, products);
+        } else {
+            rebuildDerived(context);
+        }
+    }
+
+    /**
+     * Заполняет каталог детерминированными данными и перестраивает производные структуры:
+     * дневные агрегаты поставок, поисковый индекс, индекс подсказок и последовательности идентификаторов.
+     * Данные пишутся напрямую через JDBC, поэтому без перестроения они бы не увидели новых строк.
+     *
+     * @param context  запущенный контекст приложения
+     * @param products количество продуктов
+     */
+    public static void seedCatalog(ConfigurableApplicationContext context, int products) {
+        ProductDataGenerator.standard().seed(context.getBean(JdbcTemplate.class), products);
+        rebuildDerived(context);
+    }
+
+    private static void rebuildDerived(ConfigurableApplicationContext context) {
+        context.getBean(DeliveryRollupService.class).rebuild();
+        context.getBean(ProductSearchIndex.class).rebuild();
+        context.getBean(ProductSuggestIndex.class).rebuild();
+        context.getBean(IdSequenceAligner.class).align();
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.pharm.benchmark;
+
+import org.example.pharm.model.User;
+import org.example.pharm.service.UserService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Приложение с профилем "bench" и тестовым каталогом для нагрузочного теста {@code loadTest} без MySQL.
+ * <p>
+ * Заполняет каталог, создаёт пользователя admin с паролем admin (его использует нагрузочный тест
+ * по умолчанию) и работает до остановки процесса. Размер каталога задаётся системным свойством
+ * {@code products} (по умолчанию 10 000), режим потоков — профилем: {@code --spring.profiles.active=bench,virtual}.
+ */
+public final class LoadTestServer {
+
+    private LoadTestServer() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConfigurableApplicationContext context = BenchmarkContext.start(args);
+        BenchmarkContext.seedCatalog(context, Integer.getInteger("products", 10_000));
+
+        // Схему H2 создаёт Hibernate, поэтому ролей из миграций в ней нет
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO role (name) VALUES ('ROLE_USER'), ('ROLE_ADMIN')");
+        User admin = new User();
+        admin.setName("Администратор");
+        admin.setUsername("admin");
+        admin.setEmail("admin@example.org");
+        admin.setPassword("admin");
+        UserService userService = context.getBean(UserService.class);
+        userService.assignRoleToAdmin(userService.registerUser(admin).getId());
+
+        System.out.println("Приложение готово к нагрузочному тесту");
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.pharm.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность входа по паролю через {@link AuthenticationManager} в одном потоке,
+ * то есть количество входов в секунду на одно ядро, в зависимости от стоимости BCrypt.
+ * <p>
+ * Данные пользователей после первого входа берутся из кэша, поэтому измеряется в основном проверка хеша.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(1)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final String PASSWORD = "password";
+    private static final int USERS = 1000;
+
+    @Param({"8", "10", "12"})
+    public int bcryptStrength;
+
+    private ConfigurableApplicationContext context;
+    private AuthenticationManager authenticationManager;
+    private final SplittableRandom random = new SplittableRandom(42L);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("--pharm.security.bcrypt-strength=" + bcryptStrength);
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        ProductDataGenerator.standard().seedUsers(context.getBean(JdbcTemplate.class), USERS, hash);
+        authenticationManager = context.getBean(AuthenticationManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Authentication login() {
+        String username = ProductDataGenerator.userName(1 + random.nextInt(USERS));
+        return authenticationManager.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(username, PASSWORD));
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.pharm.benchmark;
+
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.example.pharm.repository.CategoryRepository;
+import org.example.pharm.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность массовой вставки {@link ProductService#saveAll(Iterable)} в продуктах в секунду.
+ * <p>
+ * Продукты создаются лениво по мере сохранения, так что в памяти одновременно находится не больше одной порции.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductBulkInsertBenchmark {
+
+    private static final int PRODUCTS_PER_CALL = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private List<Category> categories;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seedCatalog(context, 0);
+        productService = context.getBean(ProductService.class);
+        categories = context.getBean(CategoryRepository.class).findAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUCTS_PER_CALL)
+    public int saveAll() {
+        return productService.saveAll(() -> new GeneratedProducts(PRODUCTS_PER_CALL));
+    }
+
+    /**
+     * Источник новых продуктов, не хранящий их в памяти.
+     */
+    private final class GeneratedProducts implements Iterator<Product> {
+
+        private final int count;
+        private int produced;
+
+        private GeneratedProducts(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return produced < count;
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int n = produced++;
+            Product product = new Product();
+            product.setName("Продукт " + n);
+            product.setCategory(categories.get(n % categories.size()));
+            product.setManufacturer("Bayer");
+            product.setPrice(BigDecimal.valueOf(100 + n % 1000, 2));
+            product.setQuantity(n % 500);
+            product.setDeliveryDate(LocalDate.now().minusDays(n % 60));
+            return product;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.pharm.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Детерминированный генератор тестового каталога продуктов.
+ * <p>
+ * При одинаковых зерне и базовой дате генерирует одинаковые данные. Данные вставляются напрямую через JDBC
+ * пакетами, с явными идентификаторами, чтобы заполнение не зависело от стратегии генерации ключей.
+ */
+public final class ProductDataGenerator {
+
+    private static final String[] CATEGORIES = {
+            "Анальгетики", "Антибиотики", "Витамины", "Антисептики",
+            "Противовирусные", "Сердечно-сосудистые", "Антигистаминные", "Пробиотики"
+    };
+    private static final String[] NAMES = {
+            "Аспирин", "Парацетамол", "Ибупрофен", "Амоксициллин", "Азитромицин", "Цитрамон", "Но-шпа",
+            "Лоратадин", "Аскорбиновая кислота", "Хлоргексидин", "Линекс", "Валидол", "Арбидол", "Кагоцел",
+            "Нурофен", "Мезим"
+    };
+    private static final String[] FORMS = {"таблетки", "капсулы", "раствор", "сироп", "мазь", "порошок"};
+    private static final String[] MANUFACTURERS = {
+            "Bayer", "Pfizer", "Novartis", "Sanofi", "Teva", "Gedeon Richter",
+            "Фармстандарт", "Биохимик", "Озон", "Вертекс"
+    };
+    private static final int BATCH_SIZE = 5000;
+
+    private final long seed;
+    private final LocalDate baseDate;
+
+    /**
+     * @param seed     зерно генератора случайных чисел
+     * @param baseDate дата, от которой отсчитываются даты поставки (не позже неё, на 60 дней назад)
+     */
+    public ProductDataGenerator(long seed, LocalDate baseDate) {
+        this.seed = seed;
+        this.baseDate = baseDate;
+    }
+
+    /**
+     * Генератор с фиксированным зерном и сегодняшней базовой датой.
+     *
+     * @return генератор
+     */
+    public static ProductDataGenerator standard() {
+        return new ProductDataGenerator(42L, LocalDate.now());
+    }
+
+    /**
+     * Очищает таблицы и заполняет каталог заданным количеством продуктов.
+     *
+     * @param jdbc     доступ к базе данных
+     * @param products количество продуктов
+     */
+    public void seed(JdbcTemplate jdbc, int products) {
+        jdbc.update("DELETE FROM product");
+        jdbc.update("DELETE FROM category");
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            jdbc.update("INSERT INTO category (id, name) VALUES (?, ?)", i + 1, CATEGORIES[i]);
+        }
+
+        Random random = new Random(seed);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= products; id++) {
+            batch.add(row(random, id));
+            if (batch.size() == BATCH_SIZE) {
+                insert(jdbc, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(jdbc, batch);
+        }
+    }
+
+    /**
+     * Очищает таблицы пользователей и создаёт заданное количество пользователей с ролью ROLE_USER.
+     * <p>
+     * Все пользователи получают один и тот же хеш пароля: хеширование BCrypt намеренно медленное,
+     * и считать его для каждой строки незачем.
+     *
+     * @param jdbc         доступ к базе данных
+     * @param users        количество пользователей
+     * @param passwordHash хеш пароля
+     */
+    public void seedUsers(JdbcTemplate jdbc, int users, String passwordHash) {
+        jdbc.update("DELETE FROM user_roles");
+        jdbc.update("DELETE FROM user");
+        jdbc.update("DELETE FROM role");
+        jdbc.update("INSERT INTO role (id, name) VALUES (1, 'ROLE_USER'), (2, 'ROLE_ADMIN')");
+
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= users; id++) {
+            batch.add(new Object[]{id, userName(id), passwordHash, userName(id) + "@example.org"});
+            if (batch.size() == BATCH_SIZE || id == users) {
+                jdbc.batchUpdate("INSERT INTO user (id, username, password, email) VALUES (?, ?, ?, ?)", batch);
+                jdbc.batchUpdate("INSERT INTO user_roles (user_id, role_id) VALUES (?, 1)",
+                        batch.stream().map(row -> new Object[]{row[0]}).toList());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Имя пользователя, которое генератор присваивает пользователю с заданным номером.
+     *
+     * @param id номер пользователя, начиная с 1
+     * @return имя пользователя
+     */
+    public static String userName(int id) {
+        return "user" + id;
+    }
+
+    /**
+     * Количество категорий, создаваемых генератором.
+     *
+     * @return количество категорий
+     */
+    public static int categoryCount() {
+        return CATEGORIES.length;
+    }
+
+    private Object[] row(Random random, long id) {
+        String name = NAMES[random.nextInt(NAMES.length)] + " " + FORMS[random.nextInt(FORMS.length)]
+                + " " + (50 * (1 + random.nextInt(20))) + " мг";
+        return new Object[]{
+                id,
+                name,
+                1 + random.nextInt(CATEGORIES.length),
+                MANUFACTURERS[random.nextInt(MANUFACTURERS.length)],
+                BigDecimal.valueOf(1000 + random.nextInt(500_000), 2),
+                random.nextInt(500),
+                Date.valueOf(baseDate.minusDays(random.nextInt(60)))
+        };
+    }
+
+    private static void insert(JdbcTemplate jdbc, List<Object[]> batch) {
+        jdbc.batchUpdate("INSERT INTO product (id, name, category_id, manufacturer, price, quantity, delivery_date) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+    }
+}
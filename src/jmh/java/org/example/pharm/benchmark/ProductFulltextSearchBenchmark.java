@@ -0,0 +1,86 @@
+package org.example.pharm.benchmark;
+
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.repository.ProductRepository;
+import org.example.pharm.service.ProductSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение способов поиска по ключевому слову на MySQL (свойство {@code pharm.search.mode}):
+ * запрос LIKE {@link ProductRepository#search(String)}, полнотекстовый поиск
+ * {@link ProductRepository#searchFulltext(String, int, int)} (все результаты и первая страница)
+ * и внутрипроцессный индекс {@link ProductSearchIndex}.
+ * <p>
+ * Требует сервера MySQL (см. {@link BenchmarkContext#startMysql(String...)}). Каталог заполняется один раз
+ * и переиспользуется, пока количество продуктов в базе совпадает с параметром.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductFulltextSearchBenchmark {
+
+    /** Размер первой страницы выдачи по релевантности. */
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000000"})
+    public int products;
+
+    @Param({"аспирин", "bayer", "капс"})
+    public String keyword;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository repository;
+    private ProductSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.startMysql();
+        BenchmarkContext.prepareCatalog(context, products);
+        repository = context.getBean(ProductRepository.class);
+        index = context.getBean(ProductSearchIndex.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductRow> searchLike() {
+        return repository.search(keyword);
+    }
+
+    @Benchmark
+    public List<ProductRow> searchFulltext() {
+        return repository.searchFulltext(keyword, 0, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<ProductRow> searchFulltextFirstPage() {
+        return repository.searchFulltext(keyword, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Long> searchIndex() {
+        return index.search(keyword);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.pharm.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.model.Product;
+import org.example.pharm.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация списка продуктов тем же {@link ObjectMapper}, которым пользуются контроллеры:
+ * сущностей с вложенной категорией и строк списка {@link ProductRow}, которые отдают списочные эндпоинты.
+ * <p>
+ * Размер каталога на сериализацию не влияет, поэтому генерируется ровно столько продуктов, сколько попадает
+ * в список. Список загружается один раз при подготовке, так что измеряется только работа Jackson.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    public int listSize;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private List<Product> list;
+    private List<ProductRow> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        ProductDataGenerator.standard().seed(context.getBean(JdbcTemplate.class), listSize);
+        objectMapper = context.getBean(ObjectMapper.class);
+        list = context.getBean(ProductRepository.class)
+                .findAll(PageRequest.of(0, listSize, Sort.by("id")))
+                .getContent();
+        rows = list.stream().map(ProductRow::of).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serializeEntities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] serializeRows() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(rows);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.pharm.benchmark;
+
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.ProductSuggestion;
+import org.example.pharm.repository.ProductRepository;
+import org.example.pharm.service.ProductSearchIndex;
+import org.example.pharm.service.ProductSuggestIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение задержки поиска по ключевому слову в зависимости от размера каталога:
+ * внутрипроцессный индекс {@link ProductSearchIndex} против запроса LIKE {@link ProductRepository#search(String)}.
+ * Для сравнения измеряются и подсказки по тому же префиксу из {@link ProductSuggestIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int products;
+
+    @Param({"аспирин", "bayer", "капс"})
+    public String keyword;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository repository;
+    private ProductSearchIndex index;
+    private ProductSuggestIndex suggestIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seedCatalog(context, products);
+        repository = context.getBean(ProductRepository.class);
+        index = context.getBean(ProductSearchIndex.class);
+        suggestIndex = context.getBean(ProductSuggestIndex.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Long> searchIndex() {
+        return index.search(keyword);
+    }
+
+    @Benchmark
+    public List<ProductRow> searchJpqlLike() {
+        return repository.search(keyword);
+    }
+
+    @Benchmark
+    public List<ProductSuggestion> suggestPrefix() {
+        return suggestIndex.suggest(keyword, 10);
+    }
+}
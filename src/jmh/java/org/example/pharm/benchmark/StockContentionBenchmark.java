@@ -0,0 +1,92 @@
+package org.example.pharm.benchmark;
+
+import org.example.pharm.dto.StockLevel;
+import org.example.pharm.model.Product;
+import org.example.pharm.service.InsufficientStockException;
+import org.example.pharm.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность списания остатка при конкурентном доступе к небольшому набору «горячих» продуктов:
+ * атомарный условный UPDATE {@link ProductService#adjustStock(Long, int)} против чтения и полной перезаписи
+ * продукта с повтором при конфликте версий.
+ * <p>
+ * Когда остаток заканчивается, продукт пополняется, поэтому в замер попадает и приход.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class StockContentionBenchmark {
+
+    private static final int RESTOCK = 10_000;
+
+    /** Количество продуктов, между которыми распределяются списания. */
+    @Param({"1", "16", "1024"})
+    public int hotProducts;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seedCatalog(context, Math.max(hotProducts, 1000));
+        productService = context.getBean(ProductService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StockLevel atomicDecrement() {
+        long id = hotProductId();
+        try {
+            return productService.adjustStock(id, -1);
+        } catch (InsufficientStockException e) {
+            return productService.adjustStock(id, RESTOCK);
+        }
+    }
+
+    @Benchmark
+    public Product readModifyWrite() {
+        long id = hotProductId();
+        while (true) {
+            Product product = productService.getForUpdate(id);
+            int quantity = product.getQuantity();
+            product.setQuantity(quantity > 0 ? quantity - 1 : RESTOCK);
+            try {
+                return productService.save(product);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                // Другой поток изменил продукт между чтением и записью — повторяем
+            }
+        }
+    }
+
+    private long hotProductId() {
+        return 1 + ThreadLocalRandom.current().nextInt(hotProducts);
+    }
+}
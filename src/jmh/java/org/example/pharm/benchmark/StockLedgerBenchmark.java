@@ -0,0 +1,95 @@
+package org.example.pharm.benchmark;
+
+import org.example.pharm.dto.StockLevel;
+import org.example.pharm.service.InsufficientStockException;
+import org.example.pharm.service.ProductService;
+import org.example.pharm.service.StockLedger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность списания остатка в режиме журнала {@link StockLedger} в сравнении с атомарным
+ * UPDATE {@link ProductService#adjustStock(Long, int)} на тех же «горячих» продуктах.
+ * <p>
+ * Журнал пишется во временный каталог; сброс в базу выполняется по расписанию в фоне и попадает в замер
+ * как фоновая нагрузка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class StockLedgerBenchmark {
+
+    private static final int RESTOCK = 10_000;
+
+    /** Режим учёта остатков. */
+    @Param({"direct", StockLedger.MODE})
+    public String mode;
+
+    /** Количество продуктов, между которыми распределяются списания. */
+    @Param({"1", "16", "1024"})
+    public int hotProducts;
+
+    /** Синхронизировать ли журнал с диском при каждой записи. */
+    @Param({"false", "true"})
+    public boolean fsync;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private StockLedger stockLedger;
+    private Path ledgerDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ledgerDirectory = Files.createTempDirectory("stock-ledger-bench");
+        context = BenchmarkContext.start("--pharm.stock.mode=" + mode,
+                "--pharm.stock.ledger.dir=" + ledgerDirectory,
+                "--pharm.stock.ledger.fsync=" + fsync);
+        BenchmarkContext.seedCatalog(context, Math.max(hotProducts, 1000));
+        productService = context.getBean(ProductService.class);
+        stockLedger = context.getBean(StockLedger.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(ledgerDirectory);
+    }
+
+    @Benchmark
+    public StockLevel decrement() {
+        long id = 1 + ThreadLocalRandom.current().nextInt(hotProducts);
+        try {
+            return adjust(id, -1);
+        } catch (InsufficientStockException e) {
+            return adjust(id, RESTOCK);
+        }
+    }
+
+    private StockLevel adjust(long id, int delta) {
+        return stockLedger.isEnabled() ? stockLedger.adjust(id, delta) : productService.adjustStock(id, delta);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.pharm.benchmark;
+
+import org.example.pharm.model.User;
+import org.example.pharm.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка пользователя при аутентификации: {@link UserDetailsService} из {@code SecurityConfig}
+ * (через кеш сервиса пользователей) против прямого запроса {@link UserRepository#findByUsername(String)}.
+ * <p>
+ * Имена выбираются случайно из всех сгенерированных пользователей, так что при числе пользователей
+ * больше размера кеша часть обращений уходит в базу.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDetailsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private UserDetailsService userDetailsService;
+    private UserRepository userRepository;
+    private final SplittableRandom random = new SplittableRandom(42L);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        String hash = context.getBean(PasswordEncoder.class).encode("password");
+        ProductDataGenerator.standard().seedUsers(context.getBean(JdbcTemplate.class), users, hash);
+        userDetailsService = context.getBean(UserDetailsService.class);
+        userRepository = context.getBean(UserRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return userDetailsService.loadUserByUsername(nextUserName());
+    }
+
+    @Benchmark
+    public User findByUsernameUncached() {
+        return userRepository.findByUsername(nextUserName());
+    }
+
+    private String nextUserName() {
+        return ProductDataGenerator.userName(1 + random.nextInt(users));
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.pharm.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный тест API продуктов запущенного приложения.
+ * <p>
+ * Заданное число клиентов (каждый — виртуальный поток) в течение заданного времени без пауз отправляют запросы
+ * к одному адресу от имени одного пользователя. Адреса проверяются по очереди, для каждого печатаются
+ * пропускная способность, количество ошибок (из них отклонённых с 503 при заполненной очереди исполнителя
+ * {@code @Async}) и перцентили задержки. Для сравнения режимов приложение запускается один раз
+ * без профиля "virtual" и один раз с ним, при одной и той же базе данных.
+ * <p>
+ * Аргументы (все необязательные): {@code --url=http://localhost:8080} {@code --path=/api/products?size=50}
+ * {@code --clients=1000} {@code --duration=60s} {@code --warmup=10s} {@code --user=admin} {@code --password=admin}.
+ * {@code --path} можно повторить; по умолчанию проверяются страница продуктов и асинхронный список
+ * {@code /api/products/async}.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = option(args, "url", "http://localhost:8080");
+        List<String> paths = options(args, "path", List.of("/api/products?size=50", "/api/products/async"));
+        int clients = Integer.parseInt(option(args, "clients", "1000"));
+        Duration duration = parseDuration(option(args, "duration", "60s"));
+        Duration warmup = parseDuration(option(args, "warmup", "10s"));
+        String user = option(args, "user", "admin");
+        String password = option(args, "password", "admin");
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        login(client, url, user, password);
+
+        for (String path : paths) {
+            URI target = URI.create(url + path);
+            System.out.printf(Locale.ROOT, "Цель %s, клиентов %d, прогрев %ds, измерение %ds%n",
+                    target, clients, warmup.toSeconds(), duration.toSeconds());
+            run(client, target, clients, warmup);
+            Result result = run(client, target, clients, duration);
+            result.print(duration);
+        }
+    }
+
+    /**
+     * Входит в приложение через форму логина; сессионная cookie сохраняется в клиенте.
+     */
+    private static void login(HttpClient client, String url, String user, String password)
+            throws IOException, InterruptedException {
+        String form = "username=" + URLEncoder.encode(user, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(url + "/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        String location = response.headers().firstValue("Location").orElse("");
+        if (location.contains("error")) {
+            throw new IllegalStateException("Не удалось войти как " + user);
+        }
+    }
+
+    private static Result run(HttpClient client, URI target, int clients, Duration duration)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>(clients);
+        HttpRequest request = HttpRequest.newBuilder(target).timeout(Duration.ofSeconds(30)).GET().build();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                LatencyLog log = new LatencyLog();
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long started = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                            if (response.statusCode() == 503) {
+                                rejected.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        log.add(System.nanoTime() - started);
+                    }
+                    synchronized (latencies) {
+                        latencies.add(log.toArray());
+                    }
+                });
+            }
+        }
+        return new Result(latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray(), errors.get(),
+                rejected.get());
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    private static List<String> options(String[] args, String name, List<String> defaultValues) {
+        String prefix = "--" + name + "=";
+        List<String> values = Arrays.stream(args)
+                .filter(arg -> arg.startsWith(prefix))
+                .map(arg -> arg.substring(prefix.length()))
+                .toList();
+        return values.isEmpty() ? defaultValues : values;
+    }
+
+    private static Duration parseDuration(String value) {
+        return Duration.parse("PT" + value.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Задержки запросов одного клиента в наносекундах.
+     */
+    private static final class LatencyLog {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Итог прогона: отсортированные задержки, количество ошибок и из них отклонённых с 503.
+     */
+    private record Result(long[] sortedLatencies, long errors, long rejected) {
+
+        void print(Duration duration) {
+            long requests = sortedLatencies.length;
+            System.out.printf(Locale.ROOT, "Запросов %d, ошибок %d (отклонено 503: %d), пропускная способность %.1f запр/с%n",
+                    requests, errors, rejected, requests / (double) duration.toSeconds());
+            if (requests > 0) {
+                System.out.printf(Locale.ROOT, "Задержка, мс: p50 %.1f, p95 %.1f, p99 %.1f, max %.1f%n",
+                        percentile(0.50), percentile(0.95), percentile(0.99), percentile(1.0));
+            }
+        }
+
+        private double percentile(double p) {
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(p * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
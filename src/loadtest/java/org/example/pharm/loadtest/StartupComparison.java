@@ -0,0 +1,182 @@
+package org.example.pharm.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Сравнение времени запуска и потребления памяти приложения в трёх режимах на одной машине:
+ * <ul>
+ *     <li>{@code jvm} — исполняемый jar без дополнительных настроек;</li>
+ *     <li>{@code cds} — распакованный jar с AOT-кодом Spring, архивом AppCDS и профилем "lazy"
+ *     (см. задачу {@code appCdsArchive});</li>
+ *     <li>{@code native} — нативный образ GraalVM (задача {@code nativeCompile}).</li>
+ * </ul>
+ * Каждый режим запускается несколько раз. Временем запуска считается "process running for" из строки
+ * "Started ..." журнала Spring Boot: оно включает запуск JVM. Сразу после этой строки читается резидентная
+ * память процесса (VmRSS из /proc, только Linux), затем процесс останавливается. Печатаются медиана
+ * и минимум времени и медиана RSS. Режимы без собранного артефакта пропускаются.
+ * <p>
+ * Приложению нужна та же база данных, что и при обычном запуске; другую базу можно задать аргументами
+ * приложения {@code --app-arg=...} (по одному на аргумент, передаются во всех режимах). Аргументы (все
+ * необязательные, кроме путей, которые передаёт задача Gradle): {@code --runs=5} {@code --timeout=120s}
+ * {@code --modes=jvm,cds,native} {@code --app-arg=...} {@code --jar=...} {@code --cds-dir=...}
+ * {@code --cds-jar=...} {@code --native=...}.
+ */
+public final class StartupComparison {
+
+    private static final Pattern STARTED = Pattern.compile(
+            "Started \\S+ in ([\\d.]+) seconds \\(process running for ([\\d.]+)\\)");
+
+    /** Аргументы приложения во всех режимах: случайный порт, чтобы не мешать запущенному экземпляру. */
+    private static final List<String> APP_ARGS = List.of("--server.port=0");
+
+    private StartupComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.parseInt(option(args, "runs", "5"));
+        long timeoutSeconds = Long.parseLong(option(args, "timeout", "120s").replace("s", ""));
+        List<String> modes = Arrays.asList(option(args, "modes", "jvm,cds,native").split(","));
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> appArgs = new ArrayList<>(APP_ARGS);
+        appArgs.addAll(options(args, "app-arg"));
+
+        List<Mode> candidates = List.of(
+                new Mode("jvm", null, Path.of(option(args, "jar", "build/libs/pharm.jar")),
+                        List.of(java, "-jar", option(args, "jar", "build/libs/pharm.jar"))),
+                new Mode("cds", Path.of(option(args, "cds-dir", "build/cds")),
+                        Path.of(option(args, "cds-dir", "build/cds"), "application.jsa"),
+                        List.of(java, "-XX:SharedArchiveFile=application.jsa", "-Dspring.aot.enabled=true",
+                                "-Dspring.profiles.active=lazy", "-jar", option(args, "cds-jar", "pharm.jar"))),
+                new Mode("native", null, Path.of(option(args, "native", "build/native/nativeCompile/pharm")),
+                        List.of(option(args, "native", "build/native/nativeCompile/pharm"))));
+
+        List<String> report = new ArrayList<>();
+        for (Mode mode : candidates) {
+            if (!modes.contains(mode.name)) {
+                continue;
+            }
+            if (!Files.exists(mode.artifact)) {
+                report.add(String.format(Locale.ROOT, "%-7s пропущен: нет %s", mode.name, mode.artifact));
+                continue;
+            }
+            double[] seconds = new double[runs];
+            long[] rssKb = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                Sample sample = start(mode, appArgs, timeoutSeconds);
+                seconds[run] = sample.seconds;
+                rssKb[run] = sample.rssKb;
+                System.out.printf(Locale.ROOT, "%s #%d: %.3f с, RSS %s%n",
+                        mode.name, run + 1, sample.seconds, formatRss(sample.rssKb));
+            }
+            Arrays.sort(seconds);
+            Arrays.sort(rssKb);
+            report.add(String.format(Locale.ROOT, "%-7s запуск: медиана %.3f с, минимум %.3f с; RSS: медиана %s",
+                    mode.name, seconds[runs / 2], seconds[0], formatRss(rssKb[runs / 2])));
+        }
+        System.out.println();
+        report.forEach(System.out::println);
+    }
+
+    /**
+     * Запускает приложение, дожидается строки "Started ...", измеряет память и останавливает процесс.
+     */
+    private static Sample start(Mode mode, List<String> appArgs, long timeoutSeconds)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(mode.command);
+        command.addAll(appArgs);
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        if (mode.workingDir != null) {
+            builder.directory(mode.workingDir.toFile());
+        }
+        Process process = builder.start();
+        try {
+            Thread watchdog = Thread.ofVirtual().start(() -> {
+                try {
+                    if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            try (BufferedReader output = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    Matcher matcher = STARTED.matcher(line);
+                    if (matcher.find()) {
+                        long rss = readRssKb(process.pid());
+                        watchdog.interrupt();
+                        return new Sample(Double.parseDouble(matcher.group(2)), rss);
+                    }
+                }
+            }
+            throw new IllegalStateException("Приложение в режиме " + mode.name
+                    + " завершилось или не запустилось за " + timeoutSeconds + " с, код " + process.waitFor());
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Резидентная память процесса в килобайтах или -1, если /proc недоступен.
+     */
+    private static long readRssKb(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Не Linux или процесс уже завершился
+        }
+        return -1;
+    }
+
+    private static String formatRss(long kb) {
+        return kb < 0 ? "н/д" : String.format(Locale.ROOT, "%.1f МБ", kb / 1024.0);
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    private static List<String> options(String[] args, String name) {
+        String prefix = "--" + name + "=";
+        return Arrays.stream(args)
+                .filter(arg -> arg.startsWith(prefix))
+                .map(arg -> arg.substring(prefix.length()))
+                .toList();
+    }
+
+    /**
+     * Режим запуска: команда, рабочий каталог и файл, без которого режим пропускается.
+     */
+    private record Mode(String name, Path workingDir, Path artifact, List<String> command) {
+    }
+
+    private record Sample(double seconds, long rssKb) {
+    }
+}
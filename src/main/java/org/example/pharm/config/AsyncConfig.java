@@ -0,0 +1,23 @@
+package org.example.pharm.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Включает асинхронное выполнение методов ({@code @Async}) и задачи по расписанию ({@code @Scheduled}).
+ * <p>
+ * Исполнители задаёт автоконфигурация Spring Boot. При {@code spring.threads.virtual.enabled=true}
+ * (профиль "virtual") обработка HTTP-запросов, асинхронные методы и задачи по расписанию выполняются
+ * на виртуальных потоках, иначе — на пулах платформенных потоков.
+ * <p>
+ * Пул асинхронных методов ограничен и по числу потоков, и по длине очереди ({@code spring.task.execution.pool.*}):
+ * при перегрузке задачи отклоняются с {@link org.springframework.core.task.TaskRejectedException}, а не копятся
+ * в неограниченной очереди. На виртуальных потоках ограничено число одновременно выполняемых задач
+ * ({@code spring.task.execution.simple.concurrency-limit}).
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class AsyncConfig {
+}
@@ -0,0 +1,138 @@
+package org.example.pharm.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.pharm.model.Product;
+import org.example.pharm.service.CatalogVersion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Конфигурация кэширования приложения.
+ * <p>
+ * Все кэши построены на Caffeine и ограничены по размеру и времени жизни. Параметры каждого кэша задаются
+ * свойством {@code pharm.cache.spec.<имя кэша>} в формате спецификации Caffeine
+ * (например, {@code maximumSize=1000,expireAfterWrite=10m}). Для всех кэшей собирается статистика
+ * попаданий, промахов и вытеснений.
+ * <p>
+ * Менеджер кэшей учитывает транзакции: очистка кэша при записи выполняется после фиксации транзакции.
+ * <p>
+ * Отдельно от этих кэшей работает кэш второго уровня Hibernate (JCache на Caffeine, регионы настраиваются
+ * в {@code application.conf}): категории, роли, состав ролей пользователей, запрос роли по имени и, если включено
+ * свойством {@code pharm.cache.l2.product}, продукты.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /** Список всех категорий. */
+    public static final String CATEGORIES = "categories";
+
+    /** Категории по идентификатору. */
+    public static final String CATEGORY = "category";
+
+    /** Продукты по идентификатору. */
+    public static final String PRODUCTS = "products";
+
+    /** Страницы списка продуктов; ключ содержит версию каталога. */
+    public static final String PRODUCT_PAGES = "productPages";
+
+    /**
+     * Строки всех продуктов для фасетов без ключевого слова; ключ — версия каталога.
+     * Остатки из журнала накладываются при чтении, поэтому хранится одна, текущая версия списка.
+     */
+    public static final String PRODUCT_ROWS = "productRows";
+
+    /** Пользователи по имени пользователя. */
+    public static final String USERS = "users";
+
+    /** Данные пользователей для аутентификации ({@code UserDetails}) по имени пользователя. */
+    public static final String USER_DETAILS = "userDetails";
+
+    /** Допустимые стратегии кэша второго уровня для продуктов; read-only не подходит, продукты изменяются. */
+    private static final Set<String> PRODUCT_L2_STRATEGIES = Set.of("none", "read-write", "nonstrict-read-write");
+
+    private static final Map<String, String> DEFAULT_SPECS = Map.of(
+            CATEGORIES, "maximumSize=10,expireAfterWrite=10m",
+            CATEGORY, "maximumSize=1000,expireAfterWrite=10m",
+            PRODUCTS, "maximumSize=10000,expireAfterWrite=5m",
+            PRODUCT_PAGES, "maximumSize=500,expireAfterWrite=1m",
+            PRODUCT_ROWS, "maximumSize=1,expireAfterWrite=1m",
+            USERS, "maximumSize=1000,expireAfterWrite=5m",
+            USER_DETAILS, "maximumSize=10000,expireAfterWrite=15m"
+    );
+
+    /**
+     * Менеджер кэшей на Caffeine с ограниченными кэшами и статистикой.
+     *
+     * @param environment окружение для чтения спецификаций кэшей
+     * @return менеджер кэшей
+     */
+    @Bean
+    public CacheManager cacheManager(Environment environment) {
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        manager.setAllowNullValues(false);
+        // Пустой список имён отключает создание кэшей на лету: доступны только перечисленные ниже кэши
+        manager.setCacheNames(List.of());
+        DEFAULT_SPECS.forEach((name, defaultSpec) -> {
+            String spec = environment.getProperty("pharm.cache.spec." + name, defaultSpec);
+            manager.registerCustomCache(name, Caffeine.from(spec).recordStats().build());
+        });
+        return new TransactionAwareCacheManagerProxy(manager);
+    }
+
+    /**
+     * Включает регион кэша второго уровня для продуктов с заданной стратегией согласованности.
+     * <p>
+     * read-write блокирует запись в регионе на время транзакции и не отдаёт устаревших данных;
+     * nonstrict-read-write дешевле, но после изменения продукта короткое время может вернуть старую версию.
+     * Массовые JPQL-изменения остатков сбрасывают регион целиком, сброс журнала остатков — изменённые продукты.
+     *
+     * @param strategy стратегия: none (регион выключен), read-write или nonstrict-read-write
+     * @return настройка свойств Hibernate
+     */
+    @Bean
+    public HibernatePropertiesCustomizer productCacheRegionCustomizer(
+            @Value("${pharm.cache.l2.product:none}") String strategy) {
+        if (!PRODUCT_L2_STRATEGIES.contains(strategy)) {
+            throw new IllegalStateException("Неизвестная стратегия кэша продуктов: " + strategy
+                    + ", допустимы " + PRODUCT_L2_STRATEGIES);
+        }
+        return properties -> {
+            if (!strategy.equals("none")) {
+                properties.put("hibernate.classcache." + Product.class.getName(),
+                        strategy + "," + Product.CACHE_REGION);
+            }
+        };
+    }
+
+    /**
+     * Генератор ключей, добавляющий к параметрам метода текущую версию каталога.
+     * Используется для кэшей списков, которые должны устаревать после любой записи в каталог.
+     *
+     * @param catalogVersion версия каталога
+     * @return генератор ключей
+     */
+    @Bean
+    public KeyGenerator catalogKeyGenerator(CatalogVersion catalogVersion) {
+        return (target, method, params) -> {
+            Object[] key = new Object[params.length + 2];
+            key[0] = catalogVersion.current();
+            key[1] = method.getName();
+            System.arraycopy(params, 0, key, 2, params.length);
+            return new SimpleKey(key);
+        };
+    }
+}
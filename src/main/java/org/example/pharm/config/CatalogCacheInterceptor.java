@@ -0,0 +1,61 @@
+package org.example.pharm.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.pharm.service.CatalogVersion;
+import org.example.pharm.service.StockLedger;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Условные GET-запросы к API каталога по версии каталога.
+ * <p>
+ * Ответ помечается сильным ETag из версии каталога {@link CatalogVersion} (и счётчика изменений журнала остатков
+ * {@link StockLedger}) и заголовком Last-Modified. Если ETag из If-None-Match (или дата из If-Modified-Since)
+ * совпадает с текущим, ответ 304 отправляется до вызова контроллера — без обращения к базе и сериализации.
+ * Заголовок {@code Cache-Control: private, no-cache} разрешает браузеру хранить ответ, но требует проверять
+ * его при каждом использовании.
+ * <p>
+ * ETag вычисляется до обработки запроса: если каталог изменится во время обработки, ответ получит старый ETag
+ * и следующий условный запрос просто загрузит данные заново.
+ */
+public class CatalogCacheInterceptor implements HandlerInterceptor {
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    private final CatalogVersion catalogVersion;
+    private final StockLedger stockLedger;
+
+    /**
+     * @param catalogVersion версия каталога
+     * @param stockLedger    журнал остатков
+     */
+    public CatalogCacheInterceptor(CatalogVersion catalogVersion, StockLedger stockLedger) {
+        this.catalogVersion = catalogVersion;
+        this.stockLedger = stockLedger;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        // День входит в ETag, потому что гистограмма по умолчанию строится за последние дни от текущей даты
+        String etag = "\"" + catalogVersion.current() + "-" + stockLedger.changeCount()
+                + "-" + LocalDate.now().toEpochDay() + "\"";
+        // Изменения остатков в журнале не меняют время изменения каталога, поэтому тогда проверяется только ETag
+        long lastModified = stockLedger.isEnabled() ? -1 : Math.max(catalogVersion.lastModified(), startOfDay());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        return !new ServletWebRequest(request, response).checkNotModified(etag, lastModified);
+    }
+
+    private static long startOfDay() {
+        return LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.pharm.config;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt с политикой стоимости: хеш считается требующим пересчёта, если его стоимость отличается от настроенной
+ * в любую сторону.
+ * <p>
+ * Стандартный {@link BCryptPasswordEncoder} пересчитывает только хеши с меньшей стоимостью. Здесь пересчитываются
+ * и более дорогие, поэтому снижение {@code pharm.security.bcrypt-strength} тоже применяется к существующим
+ * пользователям при их следующем входе.
+ */
+public class CostPolicyBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    private final int strength;
+
+    /**
+     * @param strength стоимость (log2 числа раундов) для новых хешей, от 4 до 31
+     */
+    public CostPolicyBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT.matcher(encodedPassword);
+        return matcher.matches() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+}
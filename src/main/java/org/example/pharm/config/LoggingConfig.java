@@ -0,0 +1,47 @@
+package org.example.pharm.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Журнал медленных SQL-запросов ({@link SlowQueryLog}) вместо журнала всех запросов Hibernate.
+ * <p>
+ * Включается свойством {@code pharm.sql.slow-query.enabled} (в профиле "prod" включён). Порог длительности
+ * и ограничение числа записей в секунду задаются свойствами {@code pharm.sql.slow-query.*}. Уровни журналов,
+ * в том числе {@value SlowQueryLog#LOGGER}, меняются без перезапуска через {@code /actuator/loggers}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pharm.sql.slow-query.enabled", havingValue = "true")
+public class LoggingConfig {
+
+    /**
+     * Оборачивает источник данных журналом медленных запросов. Статический, чтобы обработчик создавался
+     * раньше остальных бинов и не требовал создания этой конфигурации.
+     *
+     * @param threshold     порог длительности запроса
+     * @param maxPerSecond  максимальное количество записей в журнале в секунду
+     * @param meterRegistry реестр метрик
+     * @return обработчик бинов источника данных
+     */
+    @Bean
+    static BeanPostProcessor slowQueryLogPostProcessor(
+            @Value("${pharm.sql.slow-query.threshold:200ms}") Duration threshold,
+            @Value("${pharm.sql.slow-query.max-per-second:10}") int maxPerSecond,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(threshold, maxPerSecond, meterRegistry);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? slowQueryLog.wrap(dataSource) : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.pharm.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Конфигурация метрик приложения, дополняющих стандартные метрики Actuator.
+ * <p>
+ * Задержки HTTP-запросов (с гистограммами перцентилей), статистика Hibernate и пула соединений HikariCP
+ * публикуются автоконфигурацией Spring Boot; здесь добавляется количество SQL-запросов на HTTP-запрос.
+ * Все метрики доступны в формате Prometheus по адресу {@code /actuator/prometheus} (только ADMIN, HTTP Basic).
+ */
+@Configuration
+public class MetricsConfig {
+
+    /** Метрика количества SQL-запросов на один HTTP-запрос. */
+    public static final String STATEMENTS_PER_REQUEST = "pharm.sql.statements.per.request";
+
+    /**
+     * Подключает к Hibernate счётчик SQL-запросов.
+     *
+     * @return настройка свойств Hibernate
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+
+    /**
+     * Фильтр, записывающий количество SQL-запросов каждого HTTP-запроса с разбивкой по шаблону адреса.
+     *
+     * @param registry реестр метрик
+     * @return фильтр
+     */
+    @Bean
+    public OncePerRequestFilter sqlStatementsPerRequestFilter(MeterRegistry registry) {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain filterChain) throws ServletException, IOException {
+                SqlStatementCounter.reset();
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    // Шаблон адреса известен только после выбора обработчика; запросы без обработчика не учитываются
+                    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    if (pattern != null) {
+                        DistributionSummary.builder(STATEMENTS_PER_REQUEST)
+                                .description("Количество SQL-запросов на HTTP-запрос")
+                                .tag("method", request.getMethod())
+                                .tag("uri", pattern.toString())
+                                .publishPercentileHistogram()
+                                .register(registry)
+                                .record(SqlStatementCounter.current());
+                    }
+                }
+            }
+        };
+    }
+}
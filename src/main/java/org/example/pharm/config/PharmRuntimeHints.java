@@ -0,0 +1,61 @@
+package org.example.pharm.config;
+
+import org.example.pharm.dto.ProductRollupState;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.StockLevel;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.PooledSequenceGenerator;
+import org.example.pharm.model.Product;
+import org.example.pharm.model.Role;
+import org.example.pharm.model.User;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Подсказки для нативного образа GraalVM о том, что приложение загружает через рефлексию и из ресурсов,
+ * но что не выводится AOT-обработкой Spring автоматически.
+ * <ul>
+ *     <li>Строки списков создаются Hibernate по конструктору из JPQL ({@code SELECT new ...}).</li>
+ *     <li>Шаблоны Thymeleaf читают свойства сущностей (в том числе методы Lombok {@code @Data} у
+ *     {@link User} и {@link Role}) через SpEL.</li>
+ *     <li>Генератор идентификаторов из {@code @GenericGenerator} и провайдер JCache из свойств Hibernate
+ *     создаются по имени класса.</li>
+ *     <li>Настройки регионов кэша второго уровня читаются из {@code application.conf}.</li>
+ *     <li>Журнал медленных запросов ({@link SlowQueryLog}) создаёт JDK-прокси соединений и запросов JDBC.</li>
+ * </ul>
+ */
+public class PharmRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> row : new Class<?>[]{ProductRow.class, ProductRollupState.class, StockLevel.class}) {
+            hints.reflection().registerType(row, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        for (Class<?> entity : new Class<?>[]{Product.class, Category.class, User.class, Role.class}) {
+            hints.reflection().registerType(entity, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+        }
+        hints.reflection().registerType(PooledSequenceGenerator.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.reflection().registerType(
+                TypeReference.of("com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        for (Class<?> jdbc : new Class<?>[]{Connection.class, Statement.class, PreparedStatement.class,
+                CallableStatement.class}) {
+            hints.proxies().registerJdkProxy(jdbc);
+        }
+
+        hints.resources().registerPattern("application.conf");
+        hints.resources().registerPattern("reference.conf");
+        hints.resources().registerPattern("templates/*.html");
+        hints.resources().registerPattern("templates/error/*.html");
+    }
+}
@@ -1,24 +1,46 @@
 package org.example.pharm.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.example.pharm.model.User;
 import org.example.pharm.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
-import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.core.userdetails.cache.SpringCacheBasedUserCache;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
 /**
  * Конфигурация безопасности приложения.
  * <p>
@@ -29,9 +51,11 @@ import jakarta.servlet.http.HttpServletResponse;
  */
 @Configuration
 @EnableWebSecurity
-@EnableGlobalMethodSecurity(prePostEnabled = true)
+@EnableMethodSecurity // @PreAuthorize включён по умолчанию
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     private final UserService userService;
 
     /**
@@ -45,13 +69,27 @@ public class SecurityConfig {
     }
 
     /**
-     * Бин для кодирования паролей с использованием BCrypt.
+     * Бин для кодирования паролей.
+     * <p>
+     * Новые хеши записываются как BCrypt с префиксом {@code {bcrypt}} и стоимостью из свойства
+     * {@code pharm.security.bcrypt-strength}. Хеши без префикса, созданные до перехода, проверяются как BCrypt,
+     * пароли с префиксом {@code {noop}} (учётные записи, заведённые вручную) — как открытый текст.
+     * Хеши без префикса, с префиксом {@code {noop}} или с другой стоимостью пересчитываются при успешном входе.
+     * Время хеширования и проверки паролей публикуется в метриках.
      *
+     * @param meterRegistry реестр метрик
+     * @param strength      стоимость BCrypt для новых хешей
      * @return PasswordEncoder, использующий BCrypt
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @SuppressWarnings("deprecation") // NoOpPasswordEncoder только проверяет старые пароли, новые он не кодирует
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${pharm.security.bcrypt-strength:10}") int strength) {
+        BCryptPasswordEncoder bcrypt = new CostPolicyBCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", bcrypt, "noop", NoOpPasswordEncoder.getInstance()));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new TimedPasswordEncoder(encoder, meterRegistry);
     }
 
     /**
@@ -72,41 +110,106 @@ public class SecurityConfig {
                                 .map(role -> new org.springframework.security.core.authority.SimpleGrantedAuthority(role.getName()))
                                 .toList());
             }
-            throw new RuntimeException("User not found");
+            throw new UsernameNotFoundException("Пользователь " + username + " не найден");
         };
     }
 
     /**
-     * Бин для создания менеджера аутентификации с использованием настроенного UserDetailsService
-     * и PasswordEncoder.
+     * Провайдер аутентификации по имени пользователя и паролю.
+     * <p>
+     * Данные пользователей кэшируются в ограниченном кэше {@link CacheConfig#USER_DETAILS}, поэтому повторный вход
+     * не обращается к базе данных; при несовпадении пароля с закэшированным хешем данные перечитываются из базы.
+     * Устаревшие хеши пересчитываются через {@link UserService#updatePassword}. Принципал сохраняется строкой,
+     * чтобы очистка учётных данных после входа не затрагивала закэшированный объект.
      *
-     * @param http объект HttpSecurity для конфигурации безопасности
+     * @param passwordEncoder кодировщик паролей
+     * @param cacheManager    менеджер кэшей
+     * @return провайдер аутентификации
+     */
+    @Bean
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder, CacheManager cacheManager) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(passwordEncoder);
+        provider.setUserDetailsService(userDetailsService());
+        provider.setUserDetailsPasswordService(userService);
+        provider.setUserCache(new SpringCacheBasedUserCache(cacheManager.getCache(CacheConfig.USER_DETAILS)));
+        provider.setForcePrincipalAsString(true);
+        return provider;
+    }
+
+    /**
+     * Бин для создания менеджера аутентификации с использованием настроенного провайдера.
+     *
+     * @param http                   объект HttpSecurity для конфигурации безопасности
+     * @param authenticationProvider провайдер аутентификации по имени пользователя и паролю
      * @return AuthenticationManager для аутентификации пользователей
      * @throws Exception если возникает ошибка при настройке аутентификации
      */
     @Bean
-    public AuthenticationManager authenticationManager(HttpSecurity http) throws Exception {
+    public AuthenticationManager authenticationManager(HttpSecurity http,
+                                                       DaoAuthenticationProvider authenticationProvider)
+            throws Exception {
         AuthenticationManagerBuilder authBuilder = http.getSharedObject(AuthenticationManagerBuilder.class);
-        authBuilder.userDetailsService(userDetailsService()).passwordEncoder(passwordEncoder());
+        authBuilder.authenticationProvider(authenticationProvider);
         return authBuilder.build();
     }
 
+    /**
+     * Цепочка фильтров для эндпоинтов Actuator; проверяется раньше основной.
+     * <p>
+     * Открыт только {@code /actuator/health}. Остальные эндпоинты, включая {@code /actuator/prometheus},
+     * доступны только ADMIN по HTTP Basic: сборщик метрик передаёт учётные данные в каждом запросе
+     * ({@code basic_auth} в настройке Prometheus), сессии и страница входа не используются. Отказ в доступе
+     * возвращает 401 или 403 вместо перенаправления на страницу входа.
+     *
+     * @param http объект HttpSecurity для конфигурации безопасности
+     * @return SecurityFilterChain для адресов {@code /actuator/**}
+     * @throws Exception если возникает ошибка при конфигурации безопасности
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/actuator/**")
+                .csrf(csrf -> csrf.disable())
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/actuator/health").permitAll() // Проверка состояния доступна всем
+                        .anyRequest().hasRole("ADMIN") // Метрики и остальные эндпоинты Actuator только для ADMIN
+                )
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .requestCache(cache -> cache.requestCache(new NullRequestCache()));
+        return http.build();
+    }
+
     /**
      * Бин для настройки фильтрации безопасности.
      * Настройка маршрутов, доступных пользователю в зависимости от ролей.
      * Также включает конфигурацию кастомных страниц входа и выхода.
+     * <p>
+     * При {@code pharm.security.stateless=true} HTTP-сессия не создаётся: после входа выдаётся подписанный
+     * токен в cookie, и каждый запрос аутентифицируется по нему {@link TokenAuthenticationFilter}.
      *
-     * @param http объект HttpSecurity для конфигурации безопасности
+     * @param http              объект HttpSecurity для конфигурации безопасности
+     * @param stateless         режим без серверных сессий (аутентификация по подписанному токену в cookie)
+     * @param tokenSecret       ключ подписи токенов в Base64; если не задан, генерируется при запуске
+     * @param tokenTtl          время жизни токена
+     * @param tokenRefreshAfter возраст токена, после которого он перевыпускается
      * @return SecurityFilterChain, который управляет безопасностью веб-приложения
      * @throws Exception если возникает ошибка при конфигурации безопасности
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${pharm.security.stateless:false}") boolean stateless,
+                                                   @Value("${pharm.security.token.secret:}") String tokenSecret,
+                                                   @Value("${pharm.security.token.ttl:30m}") Duration tokenTtl,
+                                                   @Value("${pharm.security.token.refresh-after:5m}")
+                                                   Duration tokenRefreshAfter) throws Exception {
         http
                 .csrf(csrf -> csrf.disable()) // Отключение CSRF для упрощения
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/css/**", "/js/**", "/register", "/login").permitAll() // Страницы входа и регистрации доступны всем
                         .requestMatchers("/users").hasRole("ADMIN") // Доступ к странице /users только для ADMIN
+                        .requestMatchers("/api/cache/**").hasRole("ADMIN") // Статистика кэшей только для ADMIN
                         .anyRequest().authenticated() // Остальные страницы требуют аутентификации
                 )
                 .formLogin(form -> form
@@ -125,9 +228,52 @@ public class SecurityConfig {
                             response.sendRedirect("/403"); // Редирект на главную страницу при ошибке доступа
                         })
                 );
+        if (stateless) {
+            configureStateless(http, new SignedTokens(tokenKey(tokenSecret), tokenTtl, Clock.systemUTC()),
+                    tokenRefreshAfter);
+        }
         return http.build();
     }
 
+    /**
+     * Переводит цепочку фильтров в режим без серверных сессий.
+     * Контекст безопасности живёт только в пределах запроса, сохранённые запросы не используются.
+     * Проверка CSRF-токенов в этом режиме не нужна: cookie с токеном имеет атрибут {@code SameSite=Strict}
+     * и не отправляется с межсайтовыми запросами (см. {@link TokenAuthenticationFilter}).
+     */
+    private void configureStateless(HttpSecurity http, SignedTokens tokens, Duration tokenRefreshAfter)
+            throws Exception {
+        TokenAuthenticationFilter tokenFilter = new TokenAuthenticationFilter(
+                tokens, userDetailsService(), tokenRefreshAfter, Clock.systemUTC());
+        http
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .securityContext(context -> context
+                        .securityContextRepository(new RequestAttributeSecurityContextRepository()))
+                .requestCache(cache -> cache.requestCache(new NullRequestCache()))
+                .formLogin(form -> form
+                        .successHandler((request, response, authentication) -> {
+                            tokenFilter.issue(authentication, request, response);
+                            response.sendRedirect("/");
+                        })
+                )
+                .logout(logout -> logout
+                        .addLogoutHandler((request, response, authentication) ->
+                                TokenAuthenticationFilter.clearCookie(request, response))
+                )
+                .addFilterBefore(tokenFilter, UsernamePasswordAuthenticationFilter.class);
+    }
+
+    private static byte[] tokenKey(String tokenSecret) {
+        if (!tokenSecret.isBlank()) {
+            return Base64.getDecoder().decode(tokenSecret.trim());
+        }
+        // Токены, подписанные таким ключом, не переживают перезапуск и не принимаются другими узлами
+        log.warn("pharm.security.token.secret не задан: ключ подписи токенов сгенерирован при запуске");
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
     /**
      * Бин для кастомного обработчика успешной аутентификации.
      * Перенаправляет пользователя на главную страницу после успешного входа.
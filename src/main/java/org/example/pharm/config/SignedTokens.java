@@ -0,0 +1,130 @@
+package org.example.pharm.config;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Выпуск и проверка подписанных токенов сессии (HMAC-SHA256).
+ * <p>
+ * Токен содержит имя пользователя, его роли, время выпуска и время истечения, поэтому проверка не требует
+ * обращения к базе данных. Формат: {@code v1.<имя в Base64URL>.<роли через запятую>.<выпуск>.<истечение>.<подпись>},
+ * время — секунды эпохи Unix. Ключ общий для всех узлов, поэтому токен, выпущенный одним узлом,
+ * принимается остальными.
+ */
+public class SignedTokens {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String VERSION = "v1";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Clock clock;
+
+    /**
+     * @param secret ключ подписи, не короче 32 байт
+     * @param ttl    время жизни токена
+     * @param clock  часы
+     */
+    public SignedTokens(byte[] secret, Duration ttl, Clock clock) {
+        if (secret.length < 32) {
+            throw new IllegalArgumentException("Ключ подписи токенов должен быть не короче 32 байт");
+        }
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Выпускает токен для пользователя.
+     *
+     * @param username имя пользователя
+     * @param roles    роли пользователя (например, ROLE_ADMIN)
+     * @return токен
+     */
+    public String issue(String username, List<String> roles) {
+        long issuedAt = clock.instant().getEpochSecond();
+        String payload = VERSION + "." + ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8))
+                + "." + String.join(",", roles) + "." + issuedAt + "." + (issuedAt + ttl.toSeconds());
+        return payload + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * Проверяет подпись и срок действия токена.
+     *
+     * @param token токен
+     * @return данные токена или {@code null}, если токен повреждён, подделан или истёк
+     */
+    public Claims verify(String token) {
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0) {
+            return null;
+        }
+        String payload = token.substring(0, signatureStart);
+        byte[] signature;
+        try {
+            signature = DECODER.decode(token.substring(signatureStart + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return null;
+        }
+        String[] parts = payload.split("\\.", -1);
+        if (parts.length != 5 || !VERSION.equals(parts[0])) {
+            return null;
+        }
+        try {
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(parts[4]));
+            if (!clock.instant().isBefore(expiresAt)) {
+                return null;
+            }
+            String username = new String(DECODER.decode(parts[1]), StandardCharsets.UTF_8);
+            List<String> roles = parts[2].isEmpty() ? List.of() : Arrays.asList(parts[2].split(","));
+            return new Claims(username, roles, Instant.ofEpochSecond(Long.parseLong(parts[3])), expiresAt);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Время жизни выпускаемых токенов.
+     *
+     * @return время жизни
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            // Mac не потокобезопасен, а создание экземпляра дешевле подписи
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 недоступен", e);
+        }
+    }
+
+    /**
+     * Данные проверенного токена.
+     *
+     * @param username  имя пользователя
+     * @param roles     роли пользователя
+     * @param issuedAt  время выпуска
+     * @param expiresAt время истечения
+     */
+    public record Claims(String username, List<String> roles, Instant issuedAt, Instant expiresAt) {
+    }
+}
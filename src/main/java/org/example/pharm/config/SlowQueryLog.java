@@ -0,0 +1,225 @@
+package org.example.pharm.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Журнал медленных SQL-запросов.
+ * <p>
+ * Источник данных оборачивается так, что каждое выполнение запроса ({@code execute*}) замеряется; запросы дольше
+ * порога записываются в журнал {@link #LOGGER} с длительностью и методом сервиса, из которого они выполнены,
+ * без значений параметров. Чтобы при общей деградации базы журнал не стал узким местом, в секунду записывается
+ * не больше заданного количества запросов, пропущенные учитываются в следующей записи. Все медленные запросы,
+ * в том числе пропущенные, попадают в метрику {@link #METRIC}.
+ * <p>
+ * Метод сервиса определяется по стеку вызова только для медленных запросов, поэтому быстрые запросы платят
+ * лишь за замер времени.
+ */
+public class SlowQueryLog {
+
+    /** Имя журнала медленных запросов. */
+    public static final String LOGGER = "org.example.pharm.sql.slow";
+
+    /** Метрика длительности медленных запросов. */
+    public static final String METRIC = "pharm.sql.slow";
+
+    /** Максимальная длина текста запроса в журнале. */
+    static final int MAX_SQL_LENGTH = 2000;
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER);
+    private static final String APP_PACKAGE = "org.example.pharm.";
+    private static final String SERVICE_PACKAGE = "org.example.pharm.service.";
+    private static final String CONFIG_PACKAGE = "org.example.pharm.config.";
+
+    private final long thresholdNanos;
+    private final int maxPerSecond;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final AtomicLong suppressed = new AtomicLong();
+    private long windowSecond; // Секунда текущего окна ограничения записей, защищена this
+    private int windowCount;
+    private volatile Timer timer;
+
+    /**
+     * @param threshold     порог длительности запроса
+     * @param maxPerSecond  максимальное количество записей в журнале в секунду
+     * @param meterRegistry реестр метрик (запрашивается при первом медленном запросе)
+     */
+    public SlowQueryLog(Duration threshold, int maxPerSecond, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.thresholdNanos = threshold.toNanos();
+        this.maxPerSecond = maxPerSecond;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Оборачивает источник данных: соединения, а через них и запросы, замеряются.
+     *
+     * @param dataSource исходный источник данных
+     * @return источник данных с журналом медленных запросов
+     */
+    public DataSource wrap(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return connection(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return connection(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private Connection connection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Statement statement) {
+                        String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                        return statement(statement, sql, (Connection) proxy);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement statement(Statement target, String preparedSql, Connection connection) {
+        Class<?> type = target instanceof CallableStatement ? CallableStatement.class
+                : target instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        InvocationHandler handler = new InvocationHandler() {
+            private String batchSql; // Последний запрос addBatch(String) обычного Statement
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("getConnection")) {
+                    return connection;
+                }
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                }
+                if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                if (name.equals("addBatch") && args != null && args[0] instanceof String sql) {
+                    batchSql = sql;
+                }
+                if (!name.startsWith("execute")) {
+                    return SlowQueryLog.invoke(target, method, args);
+                }
+                long started = System.nanoTime();
+                try {
+                    return SlowQueryLog.invoke(target, method, args);
+                } finally {
+                    long elapsed = System.nanoTime() - started;
+                    if (elapsed >= thresholdNanos) {
+                        String sql = args != null && args[0] instanceof String text ? text
+                                : preparedSql != null ? preparedSql : batchSql;
+                        record(sql, name.equals("executeBatch"), elapsed);
+                    }
+                }
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private void record(String sql, boolean batch, long elapsedNanos) {
+        Timer slow = timer;
+        if (slow == null) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null) {
+                slow = Timer.builder(METRIC).description("Длительность SQL-запросов дольше порога").register(registry);
+                timer = slow;
+            }
+        }
+        if (slow != null) {
+            slow.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+        if (!log.isWarnEnabled() || !acquire()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        String text = sql == null ? "?" : sql.length() > MAX_SQL_LENGTH ? sql.substring(0, MAX_SQL_LENGTH) + "…" : sql;
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        String caller = caller();
+        log.atWarn()
+                .addKeyValue("sql.duration_ms", durationMs)
+                .addKeyValue("sql.caller", caller)
+                .addKeyValue("sql.batch", batch)
+                .addKeyValue("sql.suppressed", suppressed.getAndSet(0))
+                .log("Медленный SQL-запрос {} мс в {}: {}", durationMs, caller, text);
+    }
+
+    /**
+     * Разрешение на запись в журнал в текущей секунде. Вызывается только для медленных запросов,
+     * поэтому простой блокировки достаточно.
+     */
+    private synchronized boolean acquire() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != windowSecond) {
+            windowSecond = second;
+            windowCount = 0;
+        }
+        if (windowCount >= maxPerSecond) {
+            return false;
+        }
+        windowCount++;
+        return true;
+    }
+
+    /**
+     * Метод приложения, выполнивший запрос: ближайший метод сервиса, иначе ближайший метод приложения
+     * вне конфигурации (например, реализация репозитория).
+     */
+    static String caller() {
+        return StackWalker.getInstance().walk(frames -> {
+            String fallback = "-";
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String className = frame.getClassName();
+                if (!className.startsWith(APP_PACKAGE) || className.startsWith(CONFIG_PACKAGE)
+                        || className.contains("$$")) {
+                    continue;
+                }
+                String name = className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+                if (className.startsWith(SERVICE_PACKAGE)) {
+                    return name;
+                }
+                if (fallback.equals("-")) {
+                    fallback = name;
+                }
+            }
+            return fallback;
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
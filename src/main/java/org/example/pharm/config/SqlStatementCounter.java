@@ -0,0 +1,37 @@
+package org.example.pharm.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Счётчик SQL-запросов, выполненных текущим потоком.
+ * <p>
+ * Hibernate передаёт инспектору каждый подготавливаемый запрос; инспектор не изменяет его, а только
+ * увеличивает счётчик потока. {@link MetricsConfig} сбрасывает счётчик в начале HTTP-запроса и записывает
+ * его значение в метрику после обработки.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * Обнуляет счётчик текущего потока.
+     */
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    /**
+     * Количество запросов, выполненных текущим потоком с последнего сброса.
+     *
+     * @return количество SQL-запросов
+     */
+    public static long current() {
+        return COUNT.get()[0];
+    }
+}
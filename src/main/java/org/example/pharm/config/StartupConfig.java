@@ -0,0 +1,33 @@
+package org.example.pharm.config;
+
+import org.example.pharm.service.DeliveryRollupBackfill;
+import org.example.pharm.service.IdSequenceAligner;
+import org.example.pharm.service.StockLedger;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Настройка запуска: подсказки для нативного образа ({@link PharmRuntimeHints}) и бины, которые создаются
+ * при старте даже при ленивой инициализации (профиль "lazy").
+ */
+@Configuration
+@ImportRuntimeHints(PharmRuntimeHints.class)
+public class StartupConfig {
+
+    /**
+     * Исключает из ленивой инициализации бины, которые должны отработать до начала обработки запросов.
+     * Журнал остатков при создании восстанавливает незаписанные изменения остатков и запускает их периодическую
+     * запись в базу: отложенный до первого запроса, он оставил бы изменения после аварийной остановки
+     * незаписанными. Выравнивание последовательностей и заполнение сводки поставок вызываются как
+     * {@code SmartInitializingSingleton}, а такой обратный вызов получают только бины, созданные при старте.
+     *
+     * @return фильтр бинов, создаваемых при старте
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(StockLedger.class, DeliveryRollupBackfill.class,
+                IdSequenceAligner.class);
+    }
+}
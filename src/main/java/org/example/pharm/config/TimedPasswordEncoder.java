@@ -0,0 +1,58 @@
+package org.example.pharm.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Кодировщик паролей, измеряющий время хеширования и проверки паролей.
+ * <p>
+ * BCrypt намеренно медленный, поэтому время операций публикуется в метрике {@value #METRIC}
+ * с тегом {@code operation} ("encode", "matches" или "upgrade").
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    /** Имя метрики времени операций с паролями. */
+    public static final String METRIC = "pharm.password.encoder";
+
+    private final PasswordEncoder delegate;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer upgradeTimer;
+
+    /**
+     * @param delegate кодировщик, выполняющий операции
+     * @param registry реестр метрик
+     */
+    public TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.encodeTimer = timer(registry, "encode");
+        this.matchesTimer = timer(registry, "matches");
+        this.upgradeTimer = timer(registry, "upgrade");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encodeTimer.record(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Boolean result = matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword));
+        return Boolean.TRUE.equals(result);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        Boolean result = upgradeTimer.record(() -> delegate.upgradeEncoding(encodedPassword));
+        return Boolean.TRUE.equals(result);
+    }
+
+    private static Timer timer(MeterRegistry registry, String operation) {
+        return Timer.builder(METRIC)
+                .description("Время операций кодировщика паролей")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
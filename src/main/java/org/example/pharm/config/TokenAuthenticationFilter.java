@@ -0,0 +1,154 @@
+package org.example.pharm.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Аутентификация по подписанному токену в cookie для режима без серверных сессий.
+ * <p>
+ * Каждый запрос аутентифицируется по токену без обращения к базе данных: роли берутся из токена.
+ * Если токен выпущен раньше, чем {@code refreshAfter} назад, он перевыпускается: роли при этом
+ * перечитываются через {@link UserDetailsService} (из кэша), так что изменения ролей и удаление пользователя
+ * вступают в силу не позже чем через {@code refreshAfter}. Недействительный токен удаляется.
+ * <p>
+ * Cookie выдаётся с {@code SameSite=Strict}: браузер не отправляет её с запросами, начатыми на других сайтах,
+ * в том числе с отправкой форм и переходами по ссылкам. Это защищает от подделки межсайтовых запросов (CSRF)
+ * без отдельного CSRF-токена.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    /** Имя cookie с токеном. */
+    public static final String COOKIE = "PHARM_TOKEN";
+
+    private final SignedTokens tokens;
+    private final UserDetailsService userDetailsService;
+    private final Duration refreshAfter;
+    private final Clock clock;
+
+    /**
+     * @param tokens             выпуск и проверка токенов
+     * @param userDetailsService источник актуальных ролей при перевыпуске
+     * @param refreshAfter       возраст токена, после которого он перевыпускается
+     * @param clock              часы
+     */
+    public TokenAuthenticationFilter(SignedTokens tokens, UserDetailsService userDetailsService,
+                                     Duration refreshAfter, Clock clock) {
+        this.tokens = tokens;
+        this.userDetailsService = userDetailsService;
+        this.refreshAfter = refreshAfter;
+        this.clock = clock;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = readCookie(request);
+        if (token != null) {
+            SignedTokens.Claims claims = tokens.verify(token);
+            List<String> roles = claims != null ? claims.roles() : null;
+            if (claims != null && claims.issuedAt().plus(refreshAfter).isBefore(clock.instant())) {
+                roles = refresh(claims.username(), request, response);
+            }
+            if (roles != null) {
+                List<GrantedAuthority> authorities = roles.stream()
+                        .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                        .toList();
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(
+                        UsernamePasswordAuthenticationToken.authenticated(claims.username(), null, authorities));
+                SecurityContextHolder.setContext(context);
+            } else {
+                clearCookie(request, response);
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Выпускает токен для только что аутентифицированного пользователя и записывает его в cookie.
+     *
+     * @param authentication результат аутентификации
+     * @param request        HTTP-запрос
+     * @param response       HTTP-ответ
+     */
+    public void issue(Authentication authentication, HttpServletRequest request, HttpServletResponse response) {
+        List<String> roles = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+        writeCookie(tokens.issue(authentication.getName(), roles), tokens.getTtl(), request, response);
+    }
+
+    /**
+     * Перевыпускает токен с актуальными ролями.
+     *
+     * @return роли пользователя или {@code null}, если пользователь больше не существует
+     */
+    private List<String> refresh(String username, HttpServletRequest request, HttpServletResponse response) {
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+        List<String> roles = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+        writeCookie(tokens.issue(username, roles), tokens.getTtl(), request, response);
+        return roles;
+    }
+
+    /**
+     * Удаляет cookie с токеном.
+     *
+     * @param request  HTTP-запрос
+     * @param response HTTP-ответ
+     */
+    public static void clearCookie(HttpServletRequest request, HttpServletResponse response) {
+        writeCookie("", Duration.ZERO, request, response);
+    }
+
+    private static void writeCookie(String value, Duration maxAge, HttpServletRequest request,
+                                    HttpServletResponse response) {
+        ResponseCookie cookie = ResponseCookie.from(COOKIE, value)
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Strict")
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private static String readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+}
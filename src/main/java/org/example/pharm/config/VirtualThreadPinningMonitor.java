@@ -0,0 +1,89 @@
+package org.example.pharm.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Обнаружение закрепления (pinning) виртуальных потоков за потоками-носителями.
+ * <p>
+ * Виртуальный поток, заблокированный внутри {@code synchronized} или нативного вызова, не отпускает поток-носитель,
+ * и при большом числе таких блокировок пул носителей исчерпывается. Монитор подписывается на события JFR
+ * {@code jdk.VirtualThreadPinned} длительностью от порога {@code pharm.virtual-threads.pinning-threshold},
+ * пишет в журнал верхние кадры стека и увеличивает метрику {@value #METRIC}.
+ * Работает только при включённых виртуальных потоках.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    /** Метрика количества закреплений виртуальных потоков. */
+    public static final String METRIC = "pharm.virtual.threads.pinned";
+
+    private static final int LOGGED_FRAMES = 8;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pharm.virtual-threads.pinning-threshold:20ms}")
+    private Duration threshold;
+
+    private RecordingStream stream;
+    private Counter pinned;
+
+    @Override
+    public void afterPropertiesSet() {
+        pinned = Counter.builder(METRIC)
+                .description("Закрепления виртуальных потоков за потоками-носителями")
+                .register(meterRegistry);
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::report);
+        stream.startAsync();
+        log.info("Мониторинг закрепления виртуальных потоков включён, порог {} мс", threshold.toMillis());
+    }
+
+    @Override
+    public void destroy() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void report(RecordedEvent event) {
+        pinned.increment();
+        if (log.isWarnEnabled()) {
+            log.warn("Виртуальный поток закреплён на {} мс:\n{}", event.getDuration().toMillis(), topFrames(event));
+        }
+    }
+
+    private static String topFrames(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return "\t(стек недоступен)";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        return frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n"));
+    }
+}
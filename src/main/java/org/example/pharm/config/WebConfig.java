@@ -0,0 +1,33 @@
+package org.example.pharm.config;
+
+import org.example.pharm.service.CatalogVersion;
+import org.example.pharm.service.StockLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Настройка Spring MVC: условные запросы к API каталога.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new CatalogCacheInterceptor(catalogVersion, stockLedger))
+                .addPathPatterns(
+                        "/api/products",
+                        "/api/products/{id:\\d+}",
+                        "/api/products/search",
+                        "/api/products/histogram",
+                        "/api/products/histogram/buckets",
+                        "/api/categories");
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.pharm.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.pharm.dto.CacheStatistics;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Контроллер для просмотра состояния кэшей приложения.
+ * <p>
+ * Запрос к эндпоинту "/api/cache/stats" возвращает статистику попаданий, промахов и вытеснений
+ * для каждого кэша, а также для каждого региона кэша второго уровня Hibernate (с префиксом "hibernate:").
+ * Доступно только администратору.
+ */
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Получает статистику всех кэшей.
+     *
+     * @return список статистик по кэшам
+     */
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public List<CacheStatistics> getStatistics() {
+        List<CacheStatistics> result = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+                CacheStats stats = caffeine.stats();
+                result.add(new CacheStatistics(name, caffeine.estimatedSize(), stats.hitCount(), stats.missCount(),
+                        stats.hitRate(), stats.evictionCount()));
+            }
+        }
+        // Hibernate не считает вытеснения по регионам, а размер региона может быть неизвестен (-1)
+        Statistics hibernate = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : hibernate.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics stats = hibernate.getCacheRegionStatistics(region);
+            if (stats != null) {
+                long requests = stats.getHitCount() + stats.getMissCount();
+                result.add(new CacheStatistics("hibernate:" + region, Math.max(0, stats.getElementCountInMemory()),
+                        stats.getHitCount(), stats.getMissCount(),
+                        requests > 0 ? (double) stats.getHitCount() / requests : 1.0, 0));
+            }
+        }
+        return result;
+    }
+}
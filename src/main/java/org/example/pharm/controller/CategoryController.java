@@ -1,7 +1,7 @@
 package org.example.pharm.controller;
 
 import org.example.pharm.model.Category;
-import org.example.pharm.repository.CategoryRepository;
+import org.example.pharm.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -20,7 +20,7 @@ import java.util.List;
 public class CategoryController {
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private CategoryService categoryService;
 
     /**
      * Получает все категории из базы данных.
@@ -29,6 +29,6 @@ public class CategoryController {
      */
     @GetMapping
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();  // Возвращаем все категории из базы
+        return categoryService.getAllCategories();  // Возвращаем все категории (из кэша или из базы)
     }
 }
\ No newline at end of file
@@ -1,17 +1,56 @@
 package org.example.pharm.controller;
 
+import org.example.pharm.dto.CountMode;
+import org.example.pharm.dto.FacetedSearchResult;
+import org.example.pharm.dto.HistogramBucket;
+import org.example.pharm.dto.HistogramGranularity;
+import org.example.pharm.dto.ImportReport;
+import org.example.pharm.dto.ProductFileFormat;
+import org.example.pharm.dto.ProductFacetFilter;
+import org.example.pharm.dto.ProductPage;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.ProductSuggestion;
+import org.example.pharm.dto.StockAdjustment;
+import org.example.pharm.dto.StockLevel;
+import org.example.pharm.dto.StockStatus;
 import org.example.pharm.model.Category;
 import org.example.pharm.model.Product;
-import org.example.pharm.repository.ProductRepository;
+import org.example.pharm.repository.ProductSortField;
 import org.example.pharm.service.CategoryService;
+import org.example.pharm.service.DeliveryRollupService;
+import org.example.pharm.service.InsufficientStockException;
+import org.example.pharm.service.ProductAsyncService;
+import org.example.pharm.service.ProductExportService;
+import org.example.pharm.service.ProductImportService;
+import org.example.pharm.service.ProductEventBus;
 import org.example.pharm.service.ProductService;
+import org.example.pharm.service.ProductSuggestIndex;
+import org.example.pharm.service.StockLedger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * Контроллер для работы с продуктами в системе.
@@ -23,6 +62,8 @@ import java.util.Map;
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductController.class);
+
     @Autowired
     private ProductService productService;
 
@@ -30,28 +71,220 @@ public class ProductController {
     private CategoryService categoryService;
 
     @Autowired
-    private ProductRepository productRepository;
+    private DeliveryRollupService rollupService;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private ProductAsyncService productAsyncService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ProductEventBus productEventBus;
 
     /**
      * Получение списка продуктов с возможностью фильтрации по ключевому слову.
      * <p>
      * Если параметр "keyword" не передан или пуст, возвращаются все продукты.
-     * В противном случае выполняется поиск по ключевому слову.
+     * В противном случае выполняется поиск по ключевому слову. Продукты возвращаются строками списка
+     * с названием категории, загруженными одним запросом.
      *
      * @param keyword ключевое слово для фильтрации продуктов (необязательный параметр)
      * @return ResponseEntity, содержащий список продуктов
      */
     @GetMapping
-    public ResponseEntity<List<Product>> getProducts(@RequestParam(value = "keyword", required = false) String keyword) {
-        List<Product> products;
+    public ResponseEntity<List<ProductRow>> getProducts(@RequestParam(value = "keyword", required = false) String keyword) {
+        List<ProductRow> products;
         if (keyword == null || keyword.isEmpty()) {
-            products = productRepository.findAll();
+            products = productService.findAllRows();
         } else {
-            products = productRepository.search(keyword);
+            products = productService.search(keyword);
         }
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Получение страницы продуктов с серверной сортировкой и keyset-пагинацией.
+     * <p>
+     * Используется вместо полной выдачи, если в запросе передан параметр "size".
+     * Для получения следующей страницы нужно передать курсор "cursor" из ответа вместе с теми же
+     * параметрами сортировки. Параметр "count" включает подсчёт общего количества: "exact" — точный,
+     * "estimate" — приблизительный по статистике таблицы, "none" — без подсчёта.
+     * <p>
+     * Сортировка "relevance" выдаёт результаты поиска по ключевому слову в порядке релевантности
+     * (см. {@link ProductService#findRelevancePage}); направление сортировки для неё не учитывается.
+     *
+     * @param keyword   ключевое слово для фильтрации продуктов (необязательный параметр)
+     * @param sort      поле сортировки: id, category, name, manufacturer, quantity, price, deliveryDate, relevance
+     * @param direction направление сортировки: asc или desc
+     * @param cursor    курсор предыдущей страницы (необязательный параметр)
+     * @param size      размер страницы (не больше {@link ProductService#MAX_PAGE_SIZE})
+     * @param count     режим подсчёта общего количества
+     * @return ResponseEntity со страницей продуктов или статус 400 при некорректных параметрах
+     */
+    @GetMapping(params = "size")
+    public ResponseEntity<ProductPage> getProductPage(@RequestParam(value = "keyword", required = false) String keyword,
+                                                      @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                      @RequestParam(value = "direction", defaultValue = "asc") String direction,
+                                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                                      @RequestParam(value = "size") int size,
+                                                      @RequestParam(value = "count", defaultValue = "none") String count) {
+        try {
+            ProductPage page = "relevance".equalsIgnoreCase(sort)
+                    ? productService.findRelevancePage(keyword, cursor, size, CountMode.fromParam(count))
+                    : productService.findPage(keyword, ProductSortField.fromParam(sort),
+                    !"desc".equalsIgnoreCase(direction), cursor, size, CountMode.fromParam(count));
+            // Страницы кэшируются, поэтому остатки из журнала накладываются уже на закэшированную страницу
+            return ResponseEntity.ok(stockLedger.overlay(page));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Асинхронный вариант получения списка продуктов.
+     * <p>
+     * Поток обработки запроса освобождается сразу, ответ отправляется, когда исполнитель {@code @Async}
+     * загрузит данные. Результат совпадает с {@code GET /api/products}. Если очередь исполнителя заполнена,
+     * запрос сразу получает 503 с заголовком Retry-After.
+     *
+     * @param keyword ключевое слово для фильтрации продуктов (необязательный параметр)
+     * @return будущий ответ со списком продуктов или статусом 503
+     */
+    @GetMapping("/async")
+    public CompletableFuture<ResponseEntity<List<ProductRow>>> getProductsAsync(
+            @RequestParam(value = "keyword", required = false) String keyword) {
+        try {
+            return productAsyncService.findProducts(keyword).thenApply(ResponseEntity::ok);
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.completedFuture(executorBusy());
+        }
+    }
+
+    /**
+     * Асинхронный вариант получения продукта по идентификатору.
+     *
+     * @param id идентификатор продукта
+     * @return будущий ответ с продуктом, статусом 404, если продукт не найден, или 503, если очередь
+     *         исполнителя заполнена
+     */
+    @GetMapping("/async/{id}")
+    public CompletableFuture<ResponseEntity<Product>> getProductAsync(@PathVariable Long id) {
+        try {
+            return productAsyncService.getProduct(id)
+                    .thenApply(product -> product != null ? ResponseEntity.ok(product) : ResponseEntity.notFound().build());
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.completedFuture(executorBusy());
+        }
+    }
+
+    /**
+     * Ответ на запрос, который не принял исполнитель {@code @Async}: клиенту предлагается повторить позже.
+     */
+    private static <T> ResponseEntity<T> executorBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    /**
+     * Поток изменений каталога (Server-Sent Events).
+     * <p>
+     * Клиент получает события created, updated, deleted и stock с изменёнными продуктами и применяет их к уже
+     * загруженному списку, а по событию reset загружает список заново. При переподключении браузер передаёт
+     * заголовок Last-Event-ID, и пропущенные события досылаются.
+     *
+     * @param lastEventId номер последнего полученного события (необязательный заголовок)
+     * @return поток событий
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return productEventBus.subscribe(lastEventId);
+    }
+
+    /**
+     * Поиск продуктов с фасетами: количества по категориям, производителям, ценовым диапазонам и наличию на складе.
+     * <p>
+     * Выбранные значения фасетов сужают выдачу; значения одного фасета объединяются через ИЛИ, разных — через И.
+     * Количества значений фасета считаются с учётом выбора в остальных фасетах. Несколько значений передаются
+     * повторением параметра.
+     *
+     * @param keyword      ключевое слово (необязательный параметр; без него поиск идёт по всему каталогу)
+     * @param categoryIds  идентификаторы выбранных категорий
+     * @param priceBands   номера выбранных ценовых диапазонов
+     * @param stock        выбранное наличие: in_stock, out_of_stock
+     * @param limit        количество продуктов в выдаче (не больше {@link ProductService#MAX_PAGE_SIZE})
+     * @param facets       считать ли фасеты
+     * @param request      запрос, из которого берутся выбранные производители (параметр "manufacturer";
+     *                     названия могут содержать запятые, поэтому не разбиваются)
+     * @return ResponseEntity с результатом поиска или статус 400 при некорректных параметрах
+     */
+    @GetMapping("/search")
+    public ResponseEntity<FacetedSearchResult> facetedSearch(
+            @RequestParam(value = "keyword", required = false) String keyword,
+            @RequestParam(value = "category", required = false) List<Long> categoryIds,
+            @RequestParam(value = "price", required = false) List<Integer> priceBands,
+            @RequestParam(value = "stock", required = false) List<String> stock,
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @RequestParam(value = "facets", defaultValue = "true") boolean facets,
+            HttpServletRequest request) {
+        try {
+            String[] manufacturers = request.getParameterValues("manufacturer");
+            ProductFacetFilter filter = new ProductFacetFilter(
+                    categoryIds != null ? Set.copyOf(categoryIds) : null,
+                    manufacturers != null ? Set.copyOf(List.of(manufacturers)) : null,
+                    priceBands != null ? Set.copyOf(priceBands) : null,
+                    stock != null ? stock.stream().map(StockStatus::fromParam).collect(Collectors.toSet()) : null);
+            return ResponseEntity.ok(productService.facetedSearch(keyword, filter, limit, facets));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Подсказки для строки поиска по началу названия продукта, производителя или категории.
+     * <p>
+     * Отвечает из внутрипроцессного индекса без обращения к базе; подсказки упорядочены по суммарному остатку.
+     *
+     * @param prefix начало текста
+     * @param limit  количество подсказок (не больше {@link ProductSuggestIndex#MAX_LIMIT})
+     * @return список подсказок; пустой, если префикс пуст
+     */
+    @GetMapping("/suggest")
+    public List<ProductSuggestion> suggest(@RequestParam(value = "prefix", defaultValue = "") String prefix,
+                                           @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return productService.suggest(prefix, limit);
+    }
+
+    /**
+     * Потоковая выгрузка всего каталога продуктов.
+     * <p>
+     * Продукты пишутся в ответ по мере чтения из базы, поэтому расход памяти не зависит от размера каталога.
+     * Ответ сжимается gzip, если клиент это поддерживает. Формат полей совпадает с форматом импорта.
+     *
+     * @param format формат выгрузки: csv или ndjson
+     * @return ResponseEntity с потоком выгрузки или статус 400, если формат не поддерживается
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ProductFileFormat fileFormat;
+        try {
+            fileFormat = ProductFileFormat.fromParam(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String fileName = "products." + fileFormat.name().toLowerCase(Locale.ROOT);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fileFormat.getMediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(out -> productExportService.export(fileFormat, out));
+    }
+
     /**
      * Получение данных о продукте по его идентификатору.
      * <p>
@@ -87,27 +320,96 @@ public class ProductController {
             Product savedProduct = productService.save(product);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedProduct);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Не удалось добавить продукт", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    /**
+     * Массовый импорт продуктов из файла поставщика.
+     * <p>
+     * Тело запроса читается потоково: CSV со строкой заголовка (столбцы name, category, manufacturer, price,
+     * quantity, deliveryDate; разделитель — запятая или точка с запятой) или NDJSON с теми же ключами.
+     * Формат задаётся параметром "format" или определяется по Content-Type. Некорректные строки пропускаются
+     * и попадают в отчёт, остальные сохраняются порциями. Переданный идентификатор "importId" позволяет
+     * следить за ходом импорта через {@code GET /api/products/import/{id}}.
+     *
+     * @param format   формат файла: csv или ndjson (необязательный параметр)
+     * @param importId идентификатор импорта (необязательный параметр)
+     * @param request  HTTP-запрос с содержимым файла
+     * @return ResponseEntity с отчётом об импорте; статус 400, если файл не удалось разобрать,
+     *         415 — если формат не поддерживается, 409 — если импорт с таким идентификатором уже выполняется
+     * @throws IOException если не удалось открыть тело запроса
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportReport> importProducts(@RequestParam(value = "format", required = false) String format,
+                                                       @RequestParam(value = "importId", required = false) String importId,
+                                                       HttpServletRequest request) throws IOException {
+        ProductFileFormat fileFormat;
+        try {
+            fileFormat = format != null
+                    ? ProductFileFormat.fromParam(format)
+                    : ProductFileFormat.fromContentType(request.getContentType());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        Charset charset = request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding())
+                : StandardCharsets.UTF_8;
+        try {
+            ImportReport report = productImportService.importProducts(importId, fileFormat,
+                    new InputStreamReader(request.getInputStream(), charset));
+            return report.state() == ImportReport.State.FAILED
+                    ? ResponseEntity.badRequest().body(report)
+                    : ResponseEntity.ok(report);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Получение состояния импорта продуктов.
+     *
+     * @param id идентификатор импорта
+     * @return ResponseEntity с отчётом об импорте или статус 404, если импорт не найден
+     */
+    @GetMapping("/import/{id}")
+    public ResponseEntity<ImportReport> getImportStatus(@PathVariable String id) {
+        ImportReport report = productImportService.status(id);
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.notFound().build();
+    }
+
     /**
      * Обновление информации о продукте.
      * <p>
      * Если продукт с указанным идентификатором найден, его данные обновляются.
      * В противном случае возвращается ошибка 404 (Not Found).
+     * Если передана версия продукта и продукт с тех пор изменился (в том числе его остаток),
+     * возвращается ошибка 409 (Conflict). В режиме журнала остатков версия сверяется с версией из журнала,
+     * а сверка и сохранение выполняются под блокировкой остатка продукта, поэтому списание, сделанное после
+     * чтения продукта клиентом, не перезаписывается его остатком.
      *
      * @param id идентификатор продукта, который нужно обновить
      * @param product объект с новыми данными для обновления
-     * @return ResponseEntity, содержащий обновленный продукт или статус 404, если продукт не найден
+     * @return ResponseEntity, содержащий обновленный продукт, статус 404, если продукт не найден,
+     *         или статус 409, если версия устарела
      */
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product product) {
-        Product existingProduct = productService.get(id);
+        return stockLedger.locked(id, () -> update(id, product));
+    }
+
+    private ResponseEntity<Product> update(Long id, Product product) {
+        Product existingProduct = productService.getForUpdate(id);
         if (existingProduct == null) {
             return ResponseEntity.notFound().build();
         }
+        // Версию управляемой сущности Hibernate не берёт из setVersion, поэтому она сравнивается явно.
+        // Изменение продукта между загрузкой и сохранением обнаружит оптимистическая блокировка при сохранении
+        Long currentVersion = stockLedger.overlay(existingProduct).getVersion();
+        if (product.getVersion() != null && !product.getVersion().equals(currentVersion)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
 
         existingProduct.setName(product.getName());
         existingProduct.setManufacturer(product.getManufacturer());
@@ -125,8 +427,62 @@ public class ProductController {
             existingProduct.setCategory(category);
         }
 
-        productService.save(existingProduct);
-        return ResponseEntity.ok(existingProduct);
+        try {
+            return ResponseEntity.ok(stockLedger.overlay(productService.save(existingProduct)));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Изменение остатка продукта.
+     * <p>
+     * Остаток изменяется атомарно на {@code delta} из тела запроса, без передачи остальных полей продукта.
+     * Параллельные списания не теряются; списание больше имеющегося остатка отклоняется.
+     *
+     * @param id         идентификатор продукта
+     * @param adjustment изменение остатка ({@code productId} в теле не используется)
+     * @return ResponseEntity с остатком после изменения; статус 404, если продукт не найден,
+     *         409, если остатка не хватает, 400 при нулевом или отсутствующем изменении
+     */
+    @PostMapping("/{id}/stock")
+    public ResponseEntity<StockLevel> adjustStock(@PathVariable Long id, @RequestBody StockAdjustment adjustment) {
+        if (adjustment.delta() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            // В режиме журнала остатков изменение не открывает транзакцию и не обращается к базе
+            StockLevel level = stockLedger.isEnabled()
+                    ? stockLedger.adjust(id, adjustment.delta())
+                    : productService.adjustStock(id, adjustment.delta());
+            return level != null ? ResponseEntity.ok(level) : ResponseEntity.notFound().build();
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Пакетное изменение остатков нескольких продуктов одной транзакцией.
+     * <p>
+     * Либо применяются все изменения, либо ни одно. Один продукт может встречаться в пакете несколько раз.
+     *
+     * @param adjustments изменения остатков
+     * @return ResponseEntity с остатками после изменения в порядке запроса; статус 409, если остатка какого-либо
+     *         продукта не хватает, 400 при некорректном пакете или неизвестном продукте
+     */
+    @PostMapping("/stock")
+    public ResponseEntity<List<StockLevel>> adjustStockBatch(@RequestBody List<StockAdjustment> adjustments) {
+        try {
+            return ResponseEntity.ok(stockLedger.isEnabled()
+                    ? stockLedger.adjust(adjustments)
+                    : productService.adjustStock(adjustments));
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -155,4 +511,30 @@ public class ProductController {
     public Map<LocalDate, Long> getHistogramData() {
         return productService.getProductsCountByDeliveryDate();
     }
+
+    /**
+     * Получение гистограммы поставок за произвольный период с заданным шагом.
+     * <p>
+     * Гистограмма строится по сводке поставок, поэтому время ответа зависит от количества интервалов,
+     * а не от количества продуктов. Пустые интервалы возвращаются с нулевым количеством.
+     *
+     * @param from        первый день периода в формате YYYY-MM-DD
+     * @param to          последний день периода в формате YYYY-MM-DD
+     * @param granularity шаг гистограммы: day, week или month
+     * @param categoryId  идентификатор категории для фильтрации (необязательный параметр)
+     * @return ResponseEntity со столбцами гистограммы или статус 400 при некорректных параметрах
+     */
+    @GetMapping("/histogram/buckets")
+    public ResponseEntity<List<HistogramBucket>> getHistogramBuckets(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "granularity", defaultValue = "day") String granularity,
+            @RequestParam(value = "categoryId", required = false) Long categoryId) {
+        try {
+            return ResponseEntity.ok(rollupService.histogram(from, to,
+                    HistogramGranularity.fromParam(granularity), categoryId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package org.example.pharm.dto;
+
+/**
+ * Статистика одного кэша.
+ *
+ * @param name      имя кэша
+ * @param size      приблизительное количество записей
+ * @param hits      количество попаданий
+ * @param misses    количество промахов
+ * @param hitRate   доля попаданий от 0 до 1
+ * @param evictions количество вытесненных записей
+ */
+public record CacheStatistics(String name, long size, long hits, long misses, double hitRate, long evictions) {
+}
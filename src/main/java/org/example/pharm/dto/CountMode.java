@@ -0,0 +1,33 @@
+package org.example.pharm.dto;
+
+import java.util.Locale;
+
+/**
+ * Режим подсчёта общего количества строк при постраничной выдаче.
+ */
+public enum CountMode {
+
+    /** Общее количество не считается. */
+    NONE,
+
+    /** Точный подсчёт через {@code COUNT(*)}. */
+    EXACT,
+
+    /** Приблизительная оценка по статистике таблицы (без сканирования). */
+    ESTIMATE;
+
+    /**
+     * Разбирает режим из параметра запроса без учёта регистра.
+     *
+     * @param value значение параметра ("none", "exact", "estimate")
+     * @return режим подсчёта
+     * @throws IllegalArgumentException если режим не поддерживается
+     */
+    public static CountMode fromParam(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный режим подсчёта: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.pharm.dto;
+
+/**
+ * Значение фасета с количеством найденных продуктов.
+ *
+ * @param value    значение для фильтра (идентификатор категории, производитель, номер ценового диапазона, наличие)
+ * @param label    подпись значения
+ * @param count    количество продуктов с этим значением среди найденных с учётом выбора в остальных фасетах
+ * @param selected выбрано ли значение в фильтре
+ */
+public record FacetValue(String value, String label, int count, boolean selected) {
+}
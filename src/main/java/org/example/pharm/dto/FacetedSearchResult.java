@@ -0,0 +1,15 @@
+package org.example.pharm.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Результат поиска продуктов с фасетами.
+ *
+ * @param items  первые найденные продукты в порядке релевантности
+ * @param total  количество найденных продуктов с учётом выбранных фасетов
+ * @param facets значения фасетов по имени фасета: category, manufacturer, price, stock;
+ *               пустая карта, если фасеты не запрашивались
+ */
+public record FacetedSearchResult(List<ProductRow> items, int total, Map<String, List<FacetValue>> facets) {
+}
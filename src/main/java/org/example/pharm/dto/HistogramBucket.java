@@ -0,0 +1,13 @@
+package org.example.pharm.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Столбец гистограммы поставок.
+ *
+ * @param start    первый день интервала (включительно)
+ * @param end      последний день интервала (включительно)
+ * @param quantity суммарное количество товаров, поставленных в этом интервале
+ */
+public record HistogramBucket(LocalDate start, LocalDate end, long quantity) {
+}
@@ -0,0 +1,82 @@
+package org.example.pharm.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/**
+ * Шаг гистограммы поставок.
+ */
+public enum HistogramGranularity {
+
+    /** По дням. */
+    DAY {
+        @Override
+        public LocalDate bucketStart(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        public LocalDate next(LocalDate bucketStart) {
+            return bucketStart.plusDays(1);
+        }
+    },
+
+    /** По неделям, неделя начинается с понедельника. */
+    WEEK {
+        @Override
+        public LocalDate bucketStart(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        public LocalDate next(LocalDate bucketStart) {
+            return bucketStart.plusWeeks(1);
+        }
+    },
+
+    /** По календарным месяцам. */
+    MONTH {
+        @Override
+        public LocalDate bucketStart(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDate next(LocalDate bucketStart) {
+            return bucketStart.plusMonths(1);
+        }
+    };
+
+    /**
+     * Начало интервала, в который попадает дата.
+     *
+     * @param date дата
+     * @return первый день интервала
+     */
+    public abstract LocalDate bucketStart(LocalDate date);
+
+    /**
+     * Начало следующего интервала.
+     *
+     * @param bucketStart начало текущего интервала
+     * @return первый день следующего интервала
+     */
+    public abstract LocalDate next(LocalDate bucketStart);
+
+    /**
+     * Разбирает шаг из параметра запроса без учёта регистра.
+     *
+     * @param value значение параметра ("day", "week", "month")
+     * @return шаг гистограммы
+     * @throws IllegalArgumentException если шаг не поддерживается
+     */
+    public static HistogramGranularity fromParam(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный шаг гистограммы: " + value, e);
+        }
+    }
+}
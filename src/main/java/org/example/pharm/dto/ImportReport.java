@@ -0,0 +1,38 @@
+package org.example.pharm.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Состояние и результат импорта продуктов.
+ *
+ * @param id              идентификатор импорта
+ * @param state           состояние импорта
+ * @param processedRows   количество обработанных строк данных
+ * @param importedRows    количество сохранённых продуктов
+ * @param failedRows      количество строк с ошибками
+ * @param errors          ошибки по строкам (не больше ограничения сервиса)
+ * @param errorsTruncated {@code true}, если ошибок больше, чем попало в отчёт
+ * @param message         описание ошибки, прервавшей импорт, или {@code null}
+ * @param startedAt       время начала импорта
+ * @param finishedAt      время окончания импорта или {@code null}, если импорт ещё идёт
+ */
+public record ImportReport(String id, State state, long processedRows, long importedRows, long failedRows,
+                           List<ImportRowError> errors, boolean errorsTruncated, String message,
+                           Instant startedAt, Instant finishedAt) {
+
+    /**
+     * Состояние импорта.
+     */
+    public enum State {
+
+        /** Импорт выполняется. */
+        RUNNING,
+
+        /** Файл обработан до конца; отдельные строки могли не импортироваться. */
+        COMPLETED,
+
+        /** Импорт прерван: файл не удалось прочитать или разобрать. */
+        FAILED
+    }
+}
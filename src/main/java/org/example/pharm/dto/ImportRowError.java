@@ -0,0 +1,10 @@
+package org.example.pharm.dto;
+
+/**
+ * Ошибка импорта отдельной строки файла.
+ *
+ * @param line    номер строки файла, начиная с 1
+ * @param message описание ошибки
+ */
+public record ImportRowError(long line, String message) {
+}
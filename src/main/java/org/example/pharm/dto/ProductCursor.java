@@ -0,0 +1,88 @@
+package org.example.pharm.dto;
+
+import org.example.pharm.repository.ProductSortField;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Курсор для постраничной (keyset) навигации по списку продуктов.
+ * <p>
+ * Хранит поле и направление сортировки, значение поля и идентификатор последней выданной строки.
+ * Клиенту курсор передаётся в виде непрозрачной строки (Base64 URL), которую нужно вернуть без изменений
+ * для получения следующей страницы. Отсутствующее значение (например, категория без названия) кодируется
+ * отдельно от пустой строки.
+ *
+ * @param sort      поле сортировки
+ * @param ascending {@code true} для сортировки по возрастанию
+ * @param value     строковое представление значения поля сортировки последней строки или {@code null}
+ * @param id        идентификатор последней строки
+ */
+public record ProductCursor(ProductSortField sort, boolean ascending, String value, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    /** Префикс присутствующего значения; пустая часть курсора означает {@code null}. */
+    private static final String VALUE_PREFIX = ":";
+
+    /**
+     * Создаёт курсор, указывающий на заданную строку.
+     *
+     * @param sort      поле сортировки
+     * @param ascending направление сортировки
+     * @param product   последняя строка на странице
+     * @return курсор, указывающий за эту строку
+     */
+    public static ProductCursor after(ProductSortField sort, boolean ascending, ProductRow product) {
+        Object value = sort.valueOf(product);
+        return new ProductCursor(sort, ascending, value != null ? value.toString() : null, product.id());
+    }
+
+    /**
+     * Кодирует курсор в непрозрачную строку.
+     *
+     * @return строка курсора для передачи клиенту
+     */
+    public String encode() {
+        String raw = sort.getParam() + SEPARATOR + (ascending ? "a" : "d") + SEPARATOR + id + SEPARATOR
+                + (value != null ? VALUE_PREFIX + value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Значение поля сортировки, приведённое к типу поля.
+     *
+     * @return значение для сравнения в запросе или {@code null}, если у последней строки значения нет
+     */
+    public Comparable<?> typedValue() {
+        return value != null ? sort.parse(value) : null;
+    }
+
+    /**
+     * Декодирует курсор, полученный от клиента.
+     *
+     * @param token строка курсора
+     * @return курсор
+     * @throws IllegalArgumentException если строка повреждена
+     */
+    public static ProductCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор", e);
+        }
+        String[] parts = raw.split("\\" + SEPARATOR, 4);
+        if (parts.length != 4 || !(parts[1].equals("a") || parts[1].equals("d"))
+                || !(parts[3].isEmpty() || parts[3].startsWith(VALUE_PREFIX))) {
+            throw new IllegalArgumentException("Некорректный курсор");
+        }
+        String value = parts[3].isEmpty() ? null : parts[3].substring(VALUE_PREFIX.length());
+        try {
+            return new ProductCursor(ProductSortField.fromParam(parts[0]), parts[1].equals("a"),
+                    value, Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный курсор", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.pharm.dto;
+
+/**
+ * Изменение каталога, публикуемое в потоке событий продуктов.
+ *
+ * @param id        номер события, растущий монотонно (используется как Last-Event-ID)
+ * @param type      тип изменения
+ * @param productId идентификатор продукта ({@code null} для {@link Type#RESET})
+ * @param product   строка продукта после изменения (только для {@link Type#CREATED} и {@link Type#UPDATED})
+ * @param quantity  остаток после изменения (только для {@link Type#STOCK})
+ */
+public record ProductEvent(long id, Type type, Long productId, ProductRow product, Integer quantity) {
+
+    /**
+     * Тип изменения каталога.
+     */
+    public enum Type {
+        /** Продукт создан. */
+        CREATED,
+        /** Продукт изменён. */
+        UPDATED,
+        /** Продукт удалён. */
+        DELETED,
+        /** Изменился только остаток продукта. */
+        STOCK,
+        /** Изменений слишком много или часть пропущена: список нужно загрузить заново. */
+        RESET
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.pharm.dto;
+
+import java.util.Set;
+
+/**
+ * Выбранные значения фасетов поиска. Внутри фасета значения объединяются через ИЛИ, фасеты — через И;
+ * пустой набор означает, что фасет не ограничивает выборку.
+ *
+ * @param categoryIds   идентификаторы категорий
+ * @param manufacturers производители (точное совпадение)
+ * @param priceBands    номера ценовых диапазонов
+ * @param stock         наличие на складе
+ */
+public record ProductFacetFilter(Set<Long> categoryIds, Set<String> manufacturers, Set<Integer> priceBands,
+                                 Set<StockStatus> stock) {
+
+    /** Фильтр без ограничений. */
+    public static final ProductFacetFilter NONE = new ProductFacetFilter(null, null, null, null);
+
+    public ProductFacetFilter {
+        categoryIds = categoryIds != null ? Set.copyOf(categoryIds) : Set.of();
+        manufacturers = manufacturers != null ? Set.copyOf(manufacturers) : Set.of();
+        priceBands = priceBands != null ? Set.copyOf(priceBands) : Set.of();
+        stock = stock != null ? Set.copyOf(stock) : Set.of();
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.pharm.dto;
+
+import java.util.Locale;
+
+/**
+ * Формат файла с продуктами для импорта и экспорта.
+ */
+public enum ProductFileFormat {
+
+    /** CSV со строкой заголовка. */
+    CSV("text/csv"),
+
+    /** JSON-объекты, по одному в строке (NDJSON). */
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    ProductFileFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Тип содержимого файла этого формата.
+     *
+     * @return MIME-тип
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Разбирает формат из параметра запроса без учёта регистра.
+     *
+     * @param value значение параметра ("csv" или "ndjson")
+     * @return формат
+     * @throws IllegalArgumentException если формат не поддерживается
+     */
+    public static ProductFileFormat fromParam(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный формат файла: " + value, e);
+        }
+    }
+
+    /**
+     * Определяет формат по типу содержимого запроса.
+     *
+     * @param contentType заголовок Content-Type (может быть {@code null})
+     * @return формат
+     * @throws IllegalArgumentException если тип содержимого не соответствует ни одному формату
+     */
+    public static ProductFileFormat fromContentType(String contentType) {
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        if (type.contains("csv")) {
+            return CSV;
+        }
+        if (type.contains("ndjson") || type.contains("json")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Неподдерживаемый тип содержимого: " + contentType);
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.pharm.dto;
+
+
+import java.util.List;
+
+/**
+ * Страница списка продуктов при постраничной (keyset) навигации.
+ *
+ * @param items          продукты текущей страницы
+ * @param nextCursor     курсор следующей страницы или {@code null}, если страница последняя
+ * @param total          общее количество продуктов или {@code null}, если подсчёт не запрашивался
+ * @param totalEstimated {@code true}, если {@code total} — приблизительная оценка
+ */
+public record ProductPage(List<ProductRow> items, String nextCursor, Long total, boolean totalEstimated) {
+}
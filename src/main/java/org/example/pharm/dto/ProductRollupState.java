@@ -0,0 +1,36 @@
+package org.example.pharm.dto;
+
+import org.example.pharm.model.Product;
+
+import java.time.LocalDate;
+
+/**
+ * Состояние продукта, от которого зависит сводка поставок: дата поставки, категория и количество.
+ *
+ * @param deliveryDate дата поставки
+ * @param categoryId   идентификатор категории
+ * @param quantity     количество на складе
+ */
+public record ProductRollupState(LocalDate deliveryDate, Long categoryId, Integer quantity) {
+
+    /**
+     * Извлекает состояние из продукта.
+     *
+     * @param product продукт
+     * @return состояние продукта для сводки
+     */
+    public static ProductRollupState of(Product product) {
+        return new ProductRollupState(product.getDeliveryDate(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getQuantity());
+    }
+
+    /**
+     * Можно ли учесть это состояние в сводке (известны дата и категория).
+     *
+     * @return {@code true}, если состояние полное
+     */
+    public boolean isComplete() {
+        return deliveryDate != null && categoryId != null;
+    }
+}
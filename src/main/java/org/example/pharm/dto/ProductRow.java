@@ -0,0 +1,49 @@
+package org.example.pharm.dto;
+
+import org.example.pharm.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Строка списка продуктов: поля продукта и название его категории.
+ * <p>
+ * Загружается запросом с конструктором ({@code SELECT new ...}) одним соединением с категорией,
+ * без создания управляемых сущностей. Используется в списках и поиске; для редактирования загружается
+ * сама сущность {@link Product}.
+ *
+ * @param id           идентификатор продукта
+ * @param name         название
+ * @param categoryId   идентификатор категории
+ * @param categoryName название категории
+ * @param manufacturer производитель
+ * @param price        цена
+ * @param quantity     количество на складе
+ * @param deliveryDate дата поставки
+ */
+public record ProductRow(Long id, String name, Long categoryId, String categoryName, String manufacturer,
+                         BigDecimal price, Integer quantity, LocalDate deliveryDate) {
+
+    /**
+     * Строит строку списка по загруженному продукту. Категория продукта должна быть загружена.
+     *
+     * @param product продукт
+     * @return строка списка
+     */
+    public static ProductRow of(Product product) {
+        return new ProductRow(product.getId(), product.getName(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getCategory() != null ? product.getCategory().getName() : null,
+                product.getManufacturer(), product.getPrice(), product.getQuantity(), product.getDeliveryDate());
+    }
+
+    /**
+     * Копия строки с другим количеством на складе.
+     *
+     * @param quantity количество на складе
+     * @return строка с заданным количеством
+     */
+    public ProductRow withQuantity(Integer quantity) {
+        return new ProductRow(id, name, categoryId, categoryName, manufacturer, price, quantity, deliveryDate);
+    }
+}
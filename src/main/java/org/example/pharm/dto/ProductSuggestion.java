@@ -0,0 +1,24 @@
+package org.example.pharm.dto;
+
+/**
+ * Подсказка для строки поиска продуктов.
+ *
+ * @param text     текст подсказки: название продукта, производитель или категория
+ * @param type     поле, из которого взят текст
+ * @param stock    суммарный остаток продуктов с этим значением поля
+ * @param products количество продуктов с этим значением поля
+ */
+public record ProductSuggestion(String text, Type type, long stock, int products) {
+
+    /**
+     * Поле продукта, из которого взята подсказка.
+     */
+    public enum Type {
+        /** Название продукта. */
+        NAME,
+        /** Производитель. */
+        MANUFACTURER,
+        /** Категория. */
+        CATEGORY
+    }
+}
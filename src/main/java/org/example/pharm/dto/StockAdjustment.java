@@ -0,0 +1,10 @@
+package org.example.pharm.dto;
+
+/**
+ * Изменение остатка продукта.
+ *
+ * @param productId идентификатор продукта (для изменения одного продукта берётся из пути запроса)
+ * @param delta     изменение количества: отрицательное — списание, положительное — приход
+ */
+public record StockAdjustment(Long productId, Integer delta) {
+}
@@ -0,0 +1,11 @@
+package org.example.pharm.dto;
+
+/**
+ * Остаток продукта после изменения.
+ *
+ * @param productId идентификатор продукта
+ * @param quantity  количество на складе
+ * @param version   версия продукта
+ */
+public record StockLevel(Long productId, Integer quantity, Long version) {
+}
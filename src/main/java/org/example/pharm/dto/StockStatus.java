@@ -0,0 +1,40 @@
+package org.example.pharm.dto;
+
+import java.util.Locale;
+
+/**
+ * Наличие продукта на складе, используется как фасет поиска.
+ */
+public enum StockStatus {
+
+    /** Остаток больше нуля. */
+    IN_STOCK,
+
+    /** Остаток равен нулю. */
+    OUT_OF_STOCK;
+
+    /**
+     * Наличие продукта с заданным остатком.
+     *
+     * @param quantity остаток или {@code null}
+     * @return наличие на складе
+     */
+    public static StockStatus of(Integer quantity) {
+        return quantity != null && quantity > 0 ? IN_STOCK : OUT_OF_STOCK;
+    }
+
+    /**
+     * Разбирает наличие из параметра запроса без учёта регистра.
+     *
+     * @param value значение параметра ("in_stock", "out_of_stock")
+     * @return наличие на складе
+     * @throws IllegalArgumentException если значение не поддерживается
+     */
+    public static StockStatus fromParam(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестное значение наличия: " + value, e);
+        }
+    }
+}
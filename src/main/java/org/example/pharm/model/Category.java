@@ -1,21 +1,38 @@
 package org.example.pharm.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 /**
  * Модель категории продуктов.
  * <p>
  * Этот класс представляет сущность "Category", которая используется для хранения информации о категориях продуктов
  * в системе аптеки. Каждая категория имеет уникальный идентификатор и имя.
+ * <p>
+ * Категории меняются редко и хранятся в кэше второго уровня Hibernate (регион {@value #CACHE_REGION}).
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Category.CACHE_REGION)
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Служебные поля прокси Hibernate не сериализуются
 public class Category {
 
+    /** Регион кэша второго уровня. */
+    public static final String CACHE_REGION = "pharm-category";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Генерация идентификатора через автоинкремент
+    @SuppressWarnings("deprecation") // Замены @GenericGenerator с параметрами генератора в Hibernate 6.6 нет
+    @GeneratedValue(generator = "category_seq") // Идентификаторы выделяются блоками из таблицы-последовательности
+    @GenericGenerator(name = "category_seq", type = PooledSequenceGenerator.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "category_seq"))
     private Long id;
 
     private String name;
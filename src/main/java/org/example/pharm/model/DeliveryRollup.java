@@ -0,0 +1,120 @@
+package org.example.pharm.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Предагрегированная сводка поставок по дню и категории.
+ * <p>
+ * Для каждой пары "дата поставки — категория" хранит суммарное количество товаров на складе и число продуктов.
+ * Сводка поддерживается инкрементально при сохранении и удалении продуктов и позволяет строить гистограммы
+ * без чтения всей таблицы продуктов.
+ */
+@Entity
+@Table(name = "delivery_rollup")
+@IdClass(DeliveryRollup.Key.class)
+public class DeliveryRollup {
+
+    @Id
+    @Column(name = "delivery_date")
+    private LocalDate deliveryDate;
+
+    @Id
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    @Column(name = "product_count", nullable = false)
+    private long productCount;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public DeliveryRollup() {
+    }
+
+    /**
+     * Получение даты поставки.
+     *
+     * @return Дата поставки
+     */
+    public LocalDate getDeliveryDate() {
+        return deliveryDate;
+    }
+
+    /**
+     * Получение идентификатора категории.
+     *
+     * @return Идентификатор категории
+     */
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * Получение суммарного количества товаров на складе.
+     *
+     * @return Суммарное количество
+     */
+    public long getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Получение числа продуктов в сводке.
+     *
+     * @return Число продуктов
+     */
+    public long getProductCount() {
+        return productCount;
+    }
+
+    /**
+     * Составной ключ сводки: дата поставки и категория.
+     */
+    public static class Key implements Serializable {
+
+        private LocalDate deliveryDate;
+        private Long categoryId;
+
+        /**
+         * Конструктор по умолчанию.
+         */
+        public Key() {
+        }
+
+        /**
+         * @param deliveryDate дата поставки
+         * @param categoryId   идентификатор категории
+         */
+        public Key(LocalDate deliveryDate, Long categoryId) {
+            this.deliveryDate = deliveryDate;
+            this.categoryId = categoryId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(deliveryDate, key.deliveryDate) && Objects.equals(categoryId, key.categoryId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(deliveryDate, categoryId);
+        }
+    }
+}
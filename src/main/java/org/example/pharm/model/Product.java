@@ -1,12 +1,17 @@
 package org.example.pharm.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Column;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -15,10 +20,16 @@ import java.time.LocalDate;
  * <p>
  * Этот класс представляет сущность "Product", которая используется для хранения информации о продукте в системе аптеки.
  * Каждый продукт имеет уникальный идентификатор, название, категорию, производителя, цену, количество на складе и дату поставки.
+ * <p>
+ * Кэширование продуктов во втором уровне Hibernate включается свойством {@code pharm.cache.l2.product}
+ * (см. {@link org.example.pharm.config.CacheConfig}).
  */
 @Entity
 public class Product {
 
+    /** Регион кэша второго уровня, если он включён. */
+    public static final String CACHE_REGION = "pharm-product";
+
     private Long id; // ID продукта
     private String name; // Название продукта
     private Category category; // Категория продукта (ссылка на объект категории)
@@ -26,6 +37,7 @@ public class Product {
     private BigDecimal price; // Цена продукта
     private Integer quantity; // Количество на складе
     private LocalDate deliveryDate; // Дата поставки
+    private Long version; // Версия для оптимистической блокировки
 
     /**
      * Конструктор по умолчанию.
@@ -41,7 +53,10 @@ public class Product {
      * @return Идентификатор продукта
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Генерация идентификатора через автоинкремент
+    @SuppressWarnings("deprecation") // Замены @GenericGenerator с параметрами генератора в Hibernate 6.6 нет
+    @GeneratedValue(generator = "product_seq") // Идентификаторы выделяются блоками, что позволяет пакетную вставку
+    @GenericGenerator(name = "product_seq", type = PooledSequenceGenerator.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "product_seq"))
     public Long getId() {
         return id;
     }
@@ -79,7 +94,7 @@ public class Product {
      *
      * @return Категория продукта
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY) // Категория загружается по требованию или явным графом сущности
     @JoinColumn(name = "category_id", nullable = false) // Связь с категорией, обязательность
     public Category getCategory() {
         return category;
@@ -169,7 +184,29 @@ public class Product {
     public void setDeliveryDate(LocalDate deliveryDate) {
         this.deliveryDate = deliveryDate;
     }
-}
-
 
+    /**
+     * Получение версии продукта.
+     * <p>
+     * Версия увеличивается при каждом изменении продукта, в том числе при изменении остатка
+     * {@link org.example.pharm.repository.ProductRepository#adjustQuantity}. Полное редактирование
+     * с устаревшей версией отклоняется.
+     *
+     * @return Версия продукта
+     */
+    @Version
+    @ColumnDefault("0") // Существующие строки и строки, вставленные в обход JPA, получают версию 0
+    @Column(nullable = false)
+    public Long getVersion() {
+        return version;
+    }
 
+    /**
+     * Установка версии продукта.
+     *
+     * @param version Версия продукта
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -2,15 +2,26 @@ package org.example.pharm.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Сущность, представляющая роль пользователя в системе.
  * Содержит информацию о названии роли и её уникальном идентификаторе.
+ * Роли практически не меняются и хранятся в кэше второго уровня Hibernate (регион {@value #CACHE_REGION}).
  */
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Role.CACHE_REGION)
 public class Role {
 
+    /** Регион кэша второго уровня. */
+    public static final String CACHE_REGION = "pharm-role";
+
+    /** Регион кэша запросов поиска роли по имени. */
+    public static final String BY_NAME_QUERY_REGION = "pharm-role-by-name";
+
     /**
      * Уникальный идентификатор роли.
      */
@@ -0,0 +1,51 @@
+package org.example.pharm.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Контрольная точка журнала остатков.
+ * <p>
+ * Хранит номер последнего сегмента журнала упреждающей записи, изменения из которого уже записаны
+ * в таблицу продуктов. Обновляется в той же транзакции, что и сами изменения, поэтому при восстановлении
+ * после сбоя каждое изменение применяется ровно один раз. Таблица содержит одну строку.
+ */
+@Entity
+@Table(name = "stock_ledger_checkpoint")
+public class StockLedgerCheckpoint {
+
+    /** Идентификатор единственной строки. */
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private long segment;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public StockLedgerCheckpoint() {
+    }
+
+    /**
+     * Получение идентификатора строки.
+     *
+     * @return Идентификатор строки
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Получение номера последнего применённого сегмента журнала.
+     *
+     * @return Номер сегмента
+     */
+    public long getSegment() {
+        return segment;
+    }
+}
@@ -2,6 +2,8 @@ package org.example.pharm.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -16,6 +18,9 @@ import java.util.Set;
 @Entity
 public class User {
 
+    /** Регион кэша второго уровня для коллекции ролей пользователя. */
+    public static final String ROLES_CACHE_REGION = "pharm-user-roles";
+
     /**
      * Идентификатор пользователя.
      * <p>
@@ -63,7 +68,9 @@ public class User {
      * Пользователь может иметь несколько ролей. Роли определяют права доступа пользователя в системе.
      * Связь с ролями реализована через таблицу `user_roles`, в которой каждый пользователь может иметь несколько ролей.
      * Связь с ролями загружается немедленно (EAGER), и используется каскадирование при сохранении или обновлении пользователя.
+     * Состав ролей (идентификаторы) хранится в кэше второго уровня, сами роли — в регионе {@link Role#CACHE_REGION}.
      */
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.ROLES_CACHE_REGION)
     @ManyToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
             name = "user_roles",
@@ -0,0 +1,113 @@
+package org.example.pharm.repository;
+
+import jakarta.persistence.QueryHint;
+import org.example.pharm.model.DeliveryRollup;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий для работы со сводкой поставок {@link DeliveryRollup}.
+ * Предоставляет атомарное изменение сводки и агрегирующие запросы для гистограмм.
+ * <p>
+ * Изменяющие запросы на SQL объявляют затрагиваемую таблицу подсказкой {@link AvailableHints#HINT_NATIVE_SPACES}:
+ * без неё Hibernate считает затронутыми все таблицы и очищает весь кэш второго уровня (категории, роли),
+ * хотя сводка в нём не хранится.
+ */
+public interface DeliveryRollupRepository extends JpaRepository<DeliveryRollup, DeliveryRollup.Key> {
+
+    /**
+     * Суммарное количество товаров за один день.
+     */
+    interface DailyQuantity {
+
+        /**
+         * @return дата поставки
+         */
+        LocalDate getDeliveryDate();
+
+        /**
+         * @return суммарное количество товаров
+         */
+        Long getQuantity();
+    }
+
+    /**
+     * Атомарно прибавляет изменения к строке сводки, создавая её при отсутствии.
+     *
+     * @param deliveryDate дата поставки
+     * @param categoryId   идентификатор категории
+     * @param quantity     изменение суммарного количества
+     * @param productCount изменение числа продуктов
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "delivery_rollup"))
+    @Query(value = "INSERT INTO delivery_rollup (delivery_date, category_id, quantity, product_count) " +
+            "VALUES (:deliveryDate, :categoryId, :quantity, :productCount) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), " +
+            "product_count = product_count + VALUES(product_count)", nativeQuery = true)
+    void addDelta(@Param("deliveryDate") LocalDate deliveryDate, @Param("categoryId") Long categoryId,
+                  @Param("quantity") long quantity, @Param("productCount") long productCount);
+
+    /**
+     * Удаляет строку сводки, если в ней не осталось продуктов.
+     *
+     * @param deliveryDate дата поставки
+     * @param categoryId   идентификатор категории
+     */
+    @Modifying
+    @Query("DELETE FROM DeliveryRollup r WHERE r.deliveryDate = :deliveryDate AND r.categoryId = :categoryId " +
+            "AND r.productCount <= 0")
+    void deleteIfEmpty(@Param("deliveryDate") LocalDate deliveryDate, @Param("categoryId") Long categoryId);
+
+    /**
+     * Суммы по дням в диапазоне дат по всем категориям.
+     *
+     * @param from первый день (включительно)
+     * @param to   последний день (включительно)
+     * @return суммы по дням в порядке возрастания даты
+     */
+    @Query("SELECT r.deliveryDate AS deliveryDate, SUM(r.quantity) AS quantity FROM DeliveryRollup r " +
+            "WHERE r.deliveryDate BETWEEN :from AND :to GROUP BY r.deliveryDate ORDER BY r.deliveryDate")
+    List<DailyQuantity> sumByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Суммы по дням в диапазоне дат для одной категории.
+     *
+     * @param from       первый день (включительно)
+     * @param to         последний день (включительно)
+     * @param categoryId идентификатор категории
+     * @return суммы по дням в порядке возрастания даты
+     */
+    @Query("SELECT r.deliveryDate AS deliveryDate, SUM(r.quantity) AS quantity FROM DeliveryRollup r " +
+            "WHERE r.deliveryDate BETWEEN :from AND :to AND r.categoryId = :categoryId " +
+            "GROUP BY r.deliveryDate ORDER BY r.deliveryDate")
+    List<DailyQuantity> sumByDay(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                 @Param("categoryId") Long categoryId);
+
+    /**
+     * Полностью очищает сводку.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "delivery_rollup"))
+    @Query(value = "DELETE FROM delivery_rollup", nativeQuery = true)
+    void clear();
+
+    /**
+     * Заполняет сводку агрегированием таблицы продуктов одним запросом.
+     *
+     * @return количество созданных строк сводки
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "delivery_rollup"))
+    @Query(value = "INSERT INTO delivery_rollup (delivery_date, category_id, quantity, product_count) " +
+            "SELECT delivery_date, category_id, SUM(quantity), COUNT(*) FROM product " +
+            "GROUP BY delivery_date, category_id", nativeQuery = true)
+    int backfill();
+}
@@ -1,28 +1,149 @@
 package org.example.pharm.repository;
 
+import jakarta.persistence.QueryHint;
+import org.example.pharm.dto.ProductRollupState;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.StockLevel;
 import org.example.pharm.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с {@link Product}.
- * Предоставляет стандартные CRUD-операции и метод для поиска продуктов по ключевому слову.
+ * Предоставляет стандартные CRUD-операции, метод для поиска продуктов по ключевому слову
+ * и методы постраничной выдачи из {@link ProductRepositoryCustom}.
  */
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    /** Начало запроса строк списка {@link ProductRow}: продукт и название категории одним соединением. */
+    String ROW_SELECT = "SELECT new org.example.pharm.dto.ProductRow(p.id, p.name, c.id, c.name, " +
+            "p.manufacturer, p.price, p.quantity, p.deliveryDate) FROM Product p JOIN p.category c";
 
     /**
-     * Ищет продукты по ключевому слову в полях: название, категория, производитель, дата поставки.
+     * Загружает продукт вместе с категорией одним запросом.
      *
-     * @param keyword Ключевое слово для поиска.
-     * @return Список найденных продуктов.
+     * @param id идентификатор продукта
+     * @return продукт с загруженной категорией
      */
-    @Query("SELECT p FROM Product p WHERE CONCAT(p.name, ' ', p.category.name, ' ', p.manufacturer, ' ', p.deliveryDate) LIKE %?1%")
-    List<Product> search(String keyword);
-}
+    @Override
+    @EntityGraph(attributePaths = "category")
+    Optional<Product> findById(Long id);
+
+    /**
+     * Загружает страницу продуктов вместе с категориями одним запросом.
+     *
+     * @param pageable параметры страницы
+     * @return страница продуктов с загруженными категориями
+     */
+    @Override
+    @EntityGraph(attributePaths = "category")
+    Page<Product> findAll(Pageable pageable);
+
+    /**
+     * Загружает строки списка всех продуктов в порядке идентификатора.
+     *
+     * @return строки всех продуктов
+     */
+    @Query(ROW_SELECT + " ORDER BY p.id")
+    List<ProductRow> findAllRows();
+
+    /**
+     * Загружает строки списка продуктов с заданными идентификаторами (в произвольном порядке).
+     *
+     * @param ids идентификаторы продуктов
+     * @return строки найденных продуктов
+     */
+    @Query(ROW_SELECT + " WHERE p.id IN :ids")
+    List<ProductRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Возвращает приблизительное количество строк в таблице продуктов по статистике MySQL.
+     * <p>
+     * Значение берётся из {@code information_schema} и не требует сканирования таблицы,
+     * но может отличаться от точного количества.
+     *
+     * @return оценка количества продуктов или {@code null}, если статистика недоступна
+     */
+    @Query(value = "SELECT table_rows FROM information_schema.tables " +
+            "WHERE table_schema = DATABASE() AND table_name = 'product'", nativeQuery = true)
+    Number estimateCount();
 
+    /**
+     * Читает из базы данных состояние продукта, от которого зависит сводка поставок.
+     * <p>
+     * Запрос выполняется без предварительной записи изменений контекста персистентности (flush),
+     * поэтому возвращает зафиксированное состояние, даже если загруженный продукт уже изменён в памяти.
+     *
+     * @param id идентификатор продукта
+     * @return состояние продукта в базе данных
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    @Query("SELECT new org.example.pharm.dto.ProductRollupState(p.deliveryDate, p.category.id, p.quantity) " +
+            "FROM Product p WHERE p.id = :id")
+    Optional<ProductRollupState> findRollupState(@Param("id") Long id);
 
+    /**
+     * Читает все продукты вместе с категориями в порядке идентификатора, не загружая их в память целиком.
+     * <p>
+     * Строки выбираются с сервера порциями (fetch size); загруженные объекты доступны только для чтения.
+     * Поток нужно закрыть и читать внутри транзакции. Вызывающий код должен периодически очищать
+     * контекст персистентности, иначе прочитанные объекты накапливаются в нём.
+     *
+     * @return поток продуктов
+     */
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT p FROM Product p JOIN FETCH p.category ORDER BY p.id")
+    Stream<Product> streamAll();
 
+    /**
+     * Атомарно изменяет остаток продукта на {@code delta}, если остатка хватает.
+     * <p>
+     * Изменение выполняется одним условным UPDATE без предварительного чтения: параллельные списания
+     * одного продукта сериализуются блокировкой строки и не теряются, а остаток не уходит в минус.
+     * Версия продукта увеличивается, поэтому полное редактирование, начатое до изменения остатка, отклоняется.
+     *
+     * @param id       идентификатор продукта
+     * @param delta    изменение остатка (отрицательное — списание)
+     * @param required минимальный остаток, при котором изменение допустимо ({@code -delta} для списания, иначе 0)
+     * @return 1, если остаток изменён; 0, если продукта нет или остатка не хватает
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :delta, p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.quantity >= :required")
+    int adjustQuantity(@Param("id") Long id, @Param("delta") int delta, @Param("required") int required);
 
+    /**
+     * Читает остаток и версию продукта.
+     *
+     * @param id идентификатор продукта
+     * @return остаток и версия продукта
+     */
+    @Query("SELECT new org.example.pharm.dto.StockLevel(p.id, p.quantity, p.version) FROM Product p WHERE p.id = :id")
+    Optional<StockLevel> findStockLevel(@Param("id") Long id);
 
+    /**
+     * Читает остаток продукта из базы, блокируя его строку до конца транзакции (SELECT ... FOR UPDATE).
+     * Запрос не сбрасывает контекст персистентности и не берёт продукт из него, поэтому возвращает остаток
+     * в базе, даже если продукт уже загружен или изменён в текущей транзакции.
+     *
+     * @param id идентификатор продукта
+     * @return остаток продукта в базе
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    @Query(value = "SELECT quantity FROM product WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Integer> lockQuantity(@Param("id") Long id);
+}
@@ -0,0 +1,75 @@
+package org.example.pharm.repository;
+
+import org.example.pharm.dto.ProductCursor;
+import org.example.pharm.dto.ProductRow;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Дополнительные методы репозитория {@link ProductRepository}, которые нельзя выразить производными запросами.
+ * <p>
+ * Реализация находится в {@link ProductRepositoryImpl} и строит запросы через Criteria API,
+ * полнотекстовый поиск MySQL — нативными запросами.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Ищет продукты по ключевому слову в полях: название, категория, производитель, дата поставки.
+     * Символы {@code %} и {@code _} ищутся буквально, как и в {@link #findKeyset} и {@link #countByKeyword}.
+     *
+     * @param keyword Ключевое слово для поиска.
+     * @return Список строк найденных продуктов в порядке идентификатора.
+     */
+    List<ProductRow> search(String keyword);
+
+    /**
+     * Возвращает очередную страницу продуктов в порядке заданной сортировки, начиная после курсора (keyset-пагинация).
+     * <p>
+     * Порядок всегда дополняется идентификатором продукта, поэтому он стабилен даже для повторяющихся значений поля.
+     * Строки загружаются одним запросом с соединением категории, без создания управляемых сущностей.
+     *
+     * @param keyword   ключевое слово для фильтрации (может быть {@code null})
+     * @param ids       идентификаторы, которыми ограничивается выборка, например найденные поисковым индексом
+     *                  (может быть {@code null})
+     * @param sort      поле сортировки
+     * @param ascending направление сортировки
+     * @param after     курсор последней выданной строки или {@code null} для первой страницы
+     * @param limit     максимальное количество строк
+     * @return строки страницы
+     */
+    List<ProductRow> findKeyset(String keyword, Collection<Long> ids, ProductSortField sort, boolean ascending,
+                                ProductCursor after, int limit);
+
+    /**
+     * Считает количество продуктов, соответствующих ключевому слову.
+     *
+     * @param keyword ключевое слово для фильтрации (может быть {@code null})
+     * @return количество продуктов
+     */
+    long countByKeyword(String keyword);
+
+    /**
+     * Ищет продукты полнотекстовым поиском MySQL ({@code MATCH ... AGAINST} в логическом режиме) по названию
+     * и производителю продукта и по названию категории.
+     * <p>
+     * Каждое слово ключевого слова обязательно и ищется как начало слова; служебные символы логического режима
+     * удаляются. Продукт находится, если все слова есть в его названии и производителе или все слова есть
+     * в названии категории. В отличие от {@link #search(String)}, дата поставки не ищется.
+     * Требует полнотекстовых индексов из миграций и работает только на MySQL.
+     *
+     * @param keyword ключевое слово
+     * @param offset  количество пропускаемых строк
+     * @param limit   максимальное количество строк
+     * @return строки найденных продуктов по убыванию релевантности, при равной релевантности — по идентификатору
+     */
+    List<ProductRow> searchFulltext(String keyword, int offset, int limit);
+
+    /**
+     * Считает количество продуктов, найденных {@link #searchFulltext(String, int, int)}.
+     *
+     * @param keyword ключевое слово
+     * @return количество продуктов
+     */
+    long countFulltext(String keyword);
+}
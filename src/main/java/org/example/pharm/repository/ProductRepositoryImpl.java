@@ -0,0 +1,229 @@
+package org.example.pharm.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.example.pharm.dto.ProductCursor;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.hibernate.query.NativeQuery;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Реализация {@link ProductRepositoryCustom} на Criteria API.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    /**
+     * Идентификаторы и релевантность продуктов, найденных полнотекстовым поиском. Совпадения в продукте
+     * и в категории ищутся отдельными запросами по своим индексам и объединяются: условие MATCH ... OR MATCH
+     * по разным таблицам не может использовать полнотекстовые индексы. Релевантность совпадений суммируется.
+     */
+    private static final String FULLTEXT_HITS = "SELECT id, SUM(score) AS score FROM (" +
+            "SELECT p.id, MATCH (p.name, p.manufacturer) AGAINST (:query IN BOOLEAN MODE) AS score FROM product p " +
+            "WHERE MATCH (p.name, p.manufacturer) AGAINST (:query IN BOOLEAN MODE) " +
+            "UNION ALL " +
+            "SELECT p.id, MATCH (c.name) AGAINST (:query IN BOOLEAN MODE) FROM category c " +
+            "JOIN product p ON p.category_id = c.id WHERE MATCH (c.name) AGAINST (:query IN BOOLEAN MODE)" +
+            ") matches GROUP BY id";
+
+    /** Символы, которые логический режим MATCH ... AGAINST трактует как операторы. */
+    private static final String FULLTEXT_OPERATORS = "+-<>()~*\"@";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductRow> search(String keyword) {
+        return rowQuery(keyword, null, ProductSortField.ID, true, null).getResultList();
+    }
+
+    @Override
+    public List<ProductRow> findKeyset(String keyword, Collection<Long> ids, ProductSortField sort, boolean ascending,
+                                       ProductCursor after, int limit) {
+        return rowQuery(keyword, ids, sort, ascending, after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Запрос строк списка с фильтрами и сортировкой {@link #findKeyset}, без ограничения количества.
+     */
+    private TypedQuery<ProductRow> rowQuery(String keyword, Collection<Long> ids, ProductSortField sort,
+                                            boolean ascending, ProductCursor after) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductRow> query = cb.createQuery(ProductRow.class);
+        Root<Product> root = query.from(Product.class);
+        // Название категории выбирается тем же запросом, чтобы не делать отдельный SELECT на каждую категорию
+        Join<Product, Category> category = root.join("category");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (keyword != null && !keyword.isEmpty()) {
+            predicates.add(keywordPredicate(cb, root, category, keyword));
+        }
+        if (ids != null) {
+            predicates.add(root.get("id").in(ids));
+        }
+        if (after != null) {
+            predicates.add(afterPredicate(cb, root, category, after));
+        }
+
+        Expression<?> key = sort.path(root, category);
+        List<Order> order = new ArrayList<>();
+        if (sort.isNullable()) {
+            // Строки без значения идут первыми по возрастанию и последними по убыванию в любой СУБД
+            Expression<Integer> present = cb.<Integer>selectCase().when(cb.isNull(key), 0).otherwise(1);
+            order.add(ascending ? cb.asc(present) : cb.desc(present));
+        }
+        order.add(ascending ? cb.asc(key) : cb.desc(key));
+        order.add(ascending ? cb.asc(root.get("id")) : cb.desc(root.get("id")));
+        query.select(cb.construct(ProductRow.class,
+                        root.get("id"), root.get("name"), category.get("id"), category.get("name"),
+                        root.get("manufacturer"), root.get("price"), root.get("quantity"), root.get("deliveryDate")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(order);
+
+        return entityManager.createQuery(query);
+    }
+
+    @Override
+    public long countByKeyword(String keyword) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        if (keyword != null && !keyword.isEmpty()) {
+            Join<Product, Category> category = root.join("category");
+            query.where(keywordPredicate(cb, root, category, keyword));
+        }
+        query.select(cb.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ProductRow> searchFulltext(String keyword, int offset, int limit) {
+        String query = toBooleanQuery(keyword);
+        if (query == null) {
+            return List.of();
+        }
+        List<Object[]> rows = entityManager.createNativeQuery("SELECT p.id, p.name, c.id AS category_id, " +
+                        "c.name AS category_name, p.manufacturer, p.price, p.quantity, p.delivery_date " +
+                        "FROM (" + FULLTEXT_HITS + ") hits JOIN product p ON p.id = hits.id " +
+                        "JOIN category c ON c.id = p.category_id ORDER BY hits.score DESC, p.id")
+                .unwrap(NativeQuery.class)
+                .addScalar("id", Long.class)
+                .addScalar("name", String.class)
+                .addScalar("category_id", Long.class)
+                .addScalar("category_name", String.class)
+                .addScalar("manufacturer", String.class)
+                .addScalar("price", BigDecimal.class)
+                .addScalar("quantity", Integer.class)
+                .addScalar("delivery_date", LocalDate.class)
+                .setParameter("query", query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+        List<ProductRow> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(new ProductRow((Long) row[0], (String) row[1], (Long) row[2], (String) row[3],
+                    (String) row[4], (BigDecimal) row[5], (Integer) row[6], (LocalDate) row[7]));
+        }
+        return result;
+    }
+
+    @Override
+    public long countFulltext(String keyword) {
+        String query = toBooleanQuery(keyword);
+        if (query == null) {
+            return 0;
+        }
+        Number count = (Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM (" + FULLTEXT_HITS + ") hits")
+                .setParameter("query", query)
+                .getSingleResult();
+        return count.longValue();
+    }
+
+    /**
+     * Строит запрос логического режима MATCH ... AGAINST: каждое слово обязательно ({@code +}) и ищется
+     * как начало слова ({@code *}). Операторы из ключевого слова удаляются, чтобы оно искалось буквально.
+     *
+     * @return запрос или {@code null}, если в ключевом слове нет ни одного слова
+     */
+    private static String toBooleanQuery(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        StringBuilder words = new StringBuilder(keyword.length());
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            words.append(FULLTEXT_OPERATORS.indexOf(c) >= 0 ? ' ' : c);
+        }
+        StringBuilder query = new StringBuilder();
+        for (String word : words.toString().trim().split("\\s+")) {
+            if (!word.isEmpty()) {
+                query.append(query.isEmpty() ? "" : " ").append('+').append(word).append('*');
+            }
+        }
+        return query.isEmpty() ? null : query.toString();
+    }
+
+    /**
+     * Условие поиска по ключевому слову для {@link #search(String)}, {@link #findKeyset} и {@link #countByKeyword}.
+     */
+    private Predicate keywordPredicate(CriteriaBuilder cb, Root<Product> root, Join<Product, Category> category,
+                                       String keyword) {
+        Expression<String> text = cb.concat(root.get("name"), " ");
+        text = cb.concat(text, category.get("name"));
+        text = cb.concat(text, " ");
+        text = cb.concat(text, root.get("manufacturer"));
+        text = cb.concat(text, " ");
+        text = cb.concat(text, root.get("deliveryDate").as(String.class));
+        return cb.like(text, "%" + escapeLike(keyword) + "%", '\\');
+    }
+
+    /**
+     * Условие "строка находится после курсора" с учётом направления сортировки:
+     * {@code key > value OR (key = value AND id > lastId)} (для убывания — со знаком "меньше").
+     * Отсутствующее значение меньше любого другого: по возрастанию после строки без значения идут остальные
+     * строки без значения с большим id и все строки со значением, по убыванию строки без значения идут последними.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate afterPredicate(CriteriaBuilder cb, Root<Product> root, Join<Product, Category> category,
+                                     ProductCursor after) {
+        Expression id = root.get("id");
+        Predicate afterId = after.ascending() ? cb.greaterThan(id, after.id()) : cb.lessThan(id, after.id());
+        if (after.sort() == ProductSortField.ID) {
+            return afterId;
+        }
+        Expression key = after.sort().path(root, category);
+        Comparable value = after.typedValue();
+        if (value == null) {
+            return after.ascending()
+                    ? cb.or(cb.and(cb.isNull(key), afterId), cb.isNotNull(key))
+                    : cb.and(cb.isNull(key), afterId);
+        }
+        Predicate afterKey = after.ascending() ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+        Predicate afterValue = cb.or(afterKey, cb.and(cb.equal(key, value), afterId));
+        return after.sort().isNullable() && !after.ascending() ? cb.or(afterValue, cb.isNull(key)) : afterValue;
+    }
+
+    /**
+     * Экранирует спецсимволы LIKE, чтобы ключевое слово искалось буквально.
+     */
+    private static String escapeLike(String keyword) {
+        return keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
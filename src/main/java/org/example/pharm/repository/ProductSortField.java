@@ -0,0 +1,110 @@
+package org.example.pharm.repository;
+
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * Поля, по которым возможна серверная сортировка списка продуктов.
+ * <p>
+ * Каждое поле знает имя параметра запроса, путь в Criteria-запросе, способ извлечения значения из строки списка
+ * (для построения курсора) и способ разбора значения обратно из строки курсора.
+ */
+public enum ProductSortField {
+
+    ID("id", ProductRow::id, Long::valueOf),
+    CATEGORY("category", ProductRow::categoryName, s -> s),
+    NAME("name", ProductRow::name, s -> s),
+    MANUFACTURER("manufacturer", ProductRow::manufacturer, s -> s),
+    QUANTITY("quantity", ProductRow::quantity, Integer::valueOf),
+    PRICE("price", ProductRow::price, BigDecimal::new),
+    DELIVERY_DATE("deliveryDate", ProductRow::deliveryDate, LocalDate::parse);
+
+    private final String param;
+    private final Function<ProductRow, Object> extractor;
+    private final Function<String, Comparable<?>> parser;
+
+    ProductSortField(String param, Function<ProductRow, Object> extractor, Function<String, Comparable<?>> parser) {
+        this.param = param;
+        this.extractor = extractor;
+        this.parser = parser;
+    }
+
+    /**
+     * Имя поля в параметрах запроса и в атрибуте {@code data-field} таблицы на главной странице.
+     *
+     * @return имя параметра сортировки
+     */
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * Извлекает значение поля сортировки из строки списка.
+     *
+     * @param product строка списка продуктов
+     * @return значение поля, по которому выполняется сортировка
+     */
+    public Object valueOf(ProductRow product) {
+        return extractor.apply(product);
+    }
+
+    /**
+     * Разбирает строковое значение из курсора в тип поля.
+     *
+     * @param raw строковое значение
+     * @return значение, пригодное для сравнения в запросе
+     * @throws IllegalArgumentException если значение не соответствует типу поля
+     */
+    public Comparable<?> parse(String raw) {
+        try {
+            return parser.apply(raw);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некорректное значение курсора для поля " + param, e);
+        }
+    }
+
+    /**
+     * Может ли значение поля отсутствовать. Название категории необязательно, остальные поля списка
+     * обязательны. Отсутствующее значение считается меньше любого другого, как в MySQL.
+     *
+     * @return {@code true}, если значение поля может быть {@code null}
+     */
+    public boolean isNullable() {
+        return this == CATEGORY;
+    }
+
+    /**
+     * Возвращает выражение Criteria API для поля сортировки.
+     *
+     * @param root     корень запроса по продуктам
+     * @param category соединение с категорией продукта
+     * @return выражение, по которому выполняется сортировка и сравнение
+     */
+    public Expression<?> path(Root<Product> root, Join<Product, Category> category) {
+        return this == CATEGORY ? category.get("name") : root.get(param);
+    }
+
+    /**
+     * Находит поле сортировки по имени параметра запроса.
+     *
+     * @param param имя параметра (например, "deliveryDate")
+     * @return поле сортировки
+     * @throws IllegalArgumentException если поле не поддерживается
+     */
+    public static ProductSortField fromParam(String param) {
+        for (ProductSortField field : values()) {
+            if (field.param.equals(param)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Сортировка по полю " + param + " не поддерживается");
+    }
+}
@@ -1,7 +1,10 @@
 package org.example.pharm.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.pharm.model.Role;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -15,10 +18,15 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
 
     /**
      * Ищет роль по имени.
+     * Результат хранится в кэше запросов Hibernate и сбрасывается при любом изменении таблицы ролей.
      *
      * @param name Имя роли.
      * @return Опционально возвращает роль с заданным именем.
      */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = Role.BY_NAME_QUERY_REGION)
+    })
     Optional<Role> findByName(String name);
 }
 
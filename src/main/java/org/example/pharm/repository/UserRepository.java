@@ -2,6 +2,9 @@ package org.example.pharm.repository;
 
 import org.example.pharm.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -40,8 +43,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return {@code true}, если email уже существует в базе данных, иначе {@code false}.
      */
     boolean existsByEmail(String email);
-}
-
-
-
 
+    /**
+     * Заменяет хеш пароля пользователя.
+     *
+     * @param username Имя пользователя.
+     * @param password Новый хеш пароля.
+     * @return Количество изменённых строк.
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+}
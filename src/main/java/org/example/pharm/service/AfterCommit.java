@@ -0,0 +1,35 @@
+package org.example.pharm.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Вспомогательный класс для выполнения действий после успешной фиксации текущей транзакции.
+ * <p>
+ * Используется для обновления внутрипроцессных структур (индексов, кэшей, версий), которые не должны
+ * видеть изменения, пока они не зафиксированы в базе данных.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Выполняет действие после фиксации текущей транзакции или сразу, если транзакции нет.
+     * При откате транзакции действие не выполняется.
+     *
+     * @param action действие
+     */
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.pharm.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Монотонно растущая версия каталога (продуктов и категорий).
+ * <p>
+ * Версия увеличивается после фиксации каждой записи продукта или категории. Её используют ключи кэшей
+ * списков продуктов, поэтому после записи устаревший список не может быть выдан из кэша.
+ * Начальное значение берётся из текущего времени, чтобы версии не повторялись между перезапусками.
+ * По версии строятся ETag ответов API каталога ({@link org.example.pharm.config.CatalogCacheInterceptor}).
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private volatile long lastModified = System.currentTimeMillis();
+
+    /**
+     * Текущая версия каталога.
+     *
+     * @return номер версии
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Время последнего изменения каталога (или запуска приложения).
+     *
+     * @return время в миллисекундах эпохи Unix
+     */
+    public long lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Увеличивает версию после фиксации текущей транзакции (или сразу, если транзакции нет).
+     */
+    public void bump() {
+        AfterCommit.run(() -> {
+            lastModified = System.currentTimeMillis();
+            version.incrementAndGet();
+        });
+    }
+}
@@ -1,8 +1,12 @@
 package org.example.pharm.service;
 
+import org.example.pharm.config.CacheConfig;
 import org.example.pharm.model.Category;
 import org.example.pharm.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -17,23 +21,55 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ProductEventBus eventBus;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
     /**
      * Получает все категории продуктов.
+     * Результат кэшируется до ближайшей записи категории.
      *
      * @return Список всех категорий.
      */
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "'all'")
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
 
     /**
      * Сохраняет новую категорию или обновляет существующую.
+     * Сбрасывает кэши категорий и продуктов (продукты содержат название категории) и увеличивает версию каталога.
+     * После фиксации переименования индексы поиска и подсказок перестраиваются, а подписчики получают сброс списка.
      *
      * @param category Категория для сохранения.
      * @return Сохраненная категория.
      */
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CATEGORIES, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.CATEGORY, key = "#result.id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTS, allEntries = true)
+    })
     public Category save(Category category) {
-        return categoryRepository.save(category);
+        boolean renamed = category.getId() != null;
+        Category saved = categoryRepository.save(category);
+        catalogVersion.bump();
+        if (renamed) {
+            // Название категории входит в строки всех её продуктов, в поисковый индекс и в подсказки
+            AfterCommit.run(() -> {
+                searchIndex.rebuildAsync();
+                suggestIndex.rebuildAsync();
+                eventBus.publishReset();
+            });
+        }
+        return saved;
     }
 
     /**
@@ -42,6 +78,7 @@ public class CategoryService {
      * @param id Идентификатор категории.
      * @return Категория с заданным ID, или {@code null}, если категория не найдена.
      */
+    @Cacheable(cacheNames = CacheConfig.CATEGORY, key = "#id", unless = "#result == null")
     public Category findById(Long id) {
         return categoryRepository.findById(id).orElse(null); // Если категория не найдена, возвращаем null
     }
@@ -0,0 +1,106 @@
+package org.example.pharm.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение записей CSV (RFC 4180).
+ * <p>
+ * Поддерживает поля в кавычках, удвоенные кавычки внутри них и переводы строк внутри полей.
+ * Читает по одной записи, не загружая файл целиком.
+ */
+final class CsvRecordReader {
+
+    private final Reader reader;
+    private final char delimiter;
+    private long line = 1;
+    private long recordLine;
+    private int pending = -2; // Прочитанный заранее символ; -2 — нет такого
+
+    /**
+     * @param reader    источник (желательно буферизованный)
+     * @param delimiter разделитель полей
+     */
+    CsvRecordReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Читает следующую запись.
+     *
+     * @return поля записи или {@code null}, если файл закончился
+     * @throws IOException если чтение не удалось или кавычка не закрыта до конца файла
+     */
+    List<String> next() throws IOException {
+        recordLine = line;
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Незакрытая кавычка в записи, начатой в строке " + recordLine);
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == -1 || c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        pending = following;
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * Номер строки файла, с которой началась последняя прочитанная запись.
+     *
+     * @return номер строки, начиная с 1
+     */
+    long recordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pending != -2) {
+            c = pending;
+            pending = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+}
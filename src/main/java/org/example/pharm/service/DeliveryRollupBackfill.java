@@ -0,0 +1,50 @@
+package org.example.pharm.service;
+
+import org.example.pharm.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Однократное заполнение сводки поставок при старте приложения.
+ * <p>
+ * Режим задаётся свойством {@code pharm.rollup.backfill}:
+ * "auto" — заполнить, если сводка пуста, а продукты есть (по умолчанию);
+ * "always" — пересчитать сводку при каждом старте;
+ * "never" — не заполнять.
+ * <p>
+ * Заполнение выполняется после создания всех бинов, но до запуска веб-сервера и планировщика: пересчёт
+ * по таблице продуктов не должен пересекаться с записями, которые сами переносят продукты в сводке,
+ * иначе продукт, сохранённый во время пересчёта, может быть учтён дважды.
+ */
+@Component
+public class DeliveryRollupBackfill implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryRollupBackfill.class);
+
+    @Autowired
+    private DeliveryRollupService rollupService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${pharm.rollup.backfill:auto}")
+    private String mode;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        boolean needed = switch (mode) {
+            case "always" -> true;
+            case "never" -> false;
+            default -> rollupService.isEmpty() && productRepository.count() > 0;
+        };
+        if (needed) {
+            long started = System.nanoTime();
+            int rows = rollupService.rebuild();
+            log.info("Сводка поставок заполнена: {} строк за {} мс", rows, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.example.pharm.service;
+
+import jakarta.transaction.Transactional;
+import org.example.pharm.dto.HistogramBucket;
+import org.example.pharm.dto.HistogramGranularity;
+import org.example.pharm.dto.ProductRollupState;
+import org.example.pharm.repository.DeliveryRollupRepository;
+import org.example.pharm.repository.DeliveryRollupRepository.DailyQuantity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сервис сводки поставок по дням и категориям.
+ * Поддерживает сводку в актуальном состоянии при изменении продуктов и строит по ней гистограммы.
+ */
+@Service
+public class DeliveryRollupService {
+
+    /** Максимальное количество столбцов гистограммы в одном запросе. */
+    public static final int MAX_BUCKETS = 1000;
+
+    @Autowired
+    private DeliveryRollupRepository rollupRepository;
+
+    /**
+     * Переносит продукт в сводке из состояния {@code before} в состояние {@code after}.
+     * Должен вызываться в той же транзакции, что и изменение продукта.
+     *
+     * @param before состояние продукта до изменения или {@code null} для нового продукта
+     * @param after  состояние продукта после изменения или {@code null} для удалённого продукта
+     */
+    public void apply(ProductRollupState before, ProductRollupState after) {
+        if (before != null && before.equals(after)) {
+            return;
+        }
+        if (before != null && before.isComplete()) {
+            rollupRepository.addDelta(before.deliveryDate(), before.categoryId(), -quantityOf(before), -1);
+            rollupRepository.deleteIfEmpty(before.deliveryDate(), before.categoryId());
+        }
+        if (after != null && after.isComplete()) {
+            rollupRepository.addDelta(after.deliveryDate(), after.categoryId(), quantityOf(after), 1);
+        }
+    }
+
+    /**
+     * Суммарное количество товаров по дням поставки в диапазоне дат.
+     *
+     * @param from первый день (включительно)
+     * @param to   последний день (включительно)
+     * @return карта "дата — количество" в порядке возрастания даты, только дни с поставками
+     */
+    public Map<LocalDate, Long> dailyTotals(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> totals = new LinkedHashMap<>();
+        for (DailyQuantity day : rollupRepository.sumByDay(from, to)) {
+            totals.put(day.getDeliveryDate(), day.getQuantity());
+        }
+        return totals;
+    }
+
+    /**
+     * Строит гистограмму поставок за произвольный период с заданным шагом.
+     * <p>
+     * Все интервалы периода присутствуют в ответе, в том числе пустые. Крайние интервалы обрезаются
+     * по границам периода.
+     *
+     * @param from        первый день периода (включительно)
+     * @param to          последний день периода (включительно)
+     * @param granularity шаг гистограммы
+     * @param categoryId  идентификатор категории для фильтрации или {@code null} для всех категорий
+     * @return столбцы гистограммы в порядке возрастания даты
+     * @throws IllegalArgumentException если период задан неверно или содержит больше {@link #MAX_BUCKETS} интервалов
+     */
+    public List<HistogramBucket> histogram(LocalDate from, LocalDate to, HistogramGranularity granularity,
+                                           Long categoryId) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало периода позже его окончания");
+        }
+        List<LocalDate> starts = new ArrayList<>();
+        for (LocalDate start = granularity.bucketStart(from); !start.isAfter(to); start = granularity.next(start)) {
+            if (starts.size() == MAX_BUCKETS) {
+                throw new IllegalArgumentException("Слишком много интервалов, увеличьте шаг гистограммы");
+            }
+            starts.add(start);
+        }
+
+        List<DailyQuantity> days = categoryId != null
+                ? rollupRepository.sumByDay(from, to, categoryId)
+                : rollupRepository.sumByDay(from, to);
+
+        // Дни отсортированы по дате, поэтому раскладываем их по интервалам одним проходом
+        List<HistogramBucket> buckets = new ArrayList<>(starts.size());
+        int dayIndex = 0;
+        for (LocalDate start : starts) {
+            LocalDate next = granularity.next(start);
+            long quantity = 0;
+            while (dayIndex < days.size() && days.get(dayIndex).getDeliveryDate().isBefore(next)) {
+                Long value = days.get(dayIndex).getQuantity();
+                quantity += value != null ? value : 0;
+                dayIndex++;
+            }
+            LocalDate bucketStart = start.isBefore(from) ? from : start;
+            LocalDate bucketEnd = next.minusDays(1).isAfter(to) ? to : next.minusDays(1);
+            buckets.add(new HistogramBucket(bucketStart, bucketEnd, quantity));
+        }
+        return buckets;
+    }
+
+    /**
+     * Пересчитывает сводку целиком по таблице продуктов.
+     *
+     * @return количество строк сводки после пересчёта
+     */
+    @Transactional
+    public int rebuild() {
+        rollupRepository.clear();
+        return rollupRepository.backfill();
+    }
+
+    /**
+     * Пуста ли сводка.
+     *
+     * @return {@code true}, если в сводке нет строк
+     */
+    public boolean isEmpty() {
+        return rollupRepository.count() == 0;
+    }
+
+    /**
+     * Создаёт накопитель изменений сводки для массовых операций.
+     * Изменения суммируются по дням и категориям и записываются в сводку одним вызовом {@link Batch#flush()}.
+     *
+     * @return пустой накопитель
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Накопитель изменений сводки. Не потокобезопасен; сбрасывается в той же транзакции, что и изменения продуктов.
+     */
+    public final class Batch {
+
+        // Ячейки упорядочены, чтобы параллельные массовые операции блокировали строки сводки в одном порядке
+        private final Map<Cell, long[]> deltas = new TreeMap<>();
+
+        private Batch() {
+        }
+
+        /**
+         * Учитывает перенос продукта из состояния {@code before} в состояние {@code after}.
+         *
+         * @param before состояние продукта до изменения или {@code null} для нового продукта
+         * @param after  состояние продукта после изменения или {@code null} для удалённого продукта
+         */
+        public void add(ProductRollupState before, ProductRollupState after) {
+            if (before != null && before.equals(after)) {
+                return;
+            }
+            if (before != null && before.isComplete()) {
+                long[] delta = deltas.computeIfAbsent(new Cell(before.deliveryDate(), before.categoryId()),
+                        cell -> new long[2]);
+                delta[0] -= quantityOf(before);
+                delta[1]--;
+            }
+            if (after != null && after.isComplete()) {
+                long[] delta = deltas.computeIfAbsent(new Cell(after.deliveryDate(), after.categoryId()),
+                        cell -> new long[2]);
+                delta[0] += quantityOf(after);
+                delta[1]++;
+            }
+        }
+
+        /**
+         * Записывает накопленные изменения в сводку и очищает накопитель.
+         */
+        public void flush() {
+            deltas.forEach((cell, delta) -> {
+                if (delta[0] == 0 && delta[1] == 0) {
+                    return;
+                }
+                rollupRepository.addDelta(cell.date(), cell.categoryId(), delta[0], delta[1]);
+                if (delta[1] < 0) {
+                    rollupRepository.deleteIfEmpty(cell.date(), cell.categoryId());
+                }
+            });
+            deltas.clear();
+        }
+    }
+
+    /**
+     * Ячейка сводки: день поставки и категория.
+     */
+    private record Cell(LocalDate date, Long categoryId) implements Comparable<Cell> {
+
+        private static final Comparator<Cell> ORDER = Comparator.comparing(Cell::date).thenComparing(Cell::categoryId);
+
+        @Override
+        public int compareTo(Cell other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private static long quantityOf(ProductRollupState state) {
+        return state.quantity() != null ? state.quantity() : 0;
+    }
+}
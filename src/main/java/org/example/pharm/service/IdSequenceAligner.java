@@ -0,0 +1,55 @@
+package org.example.pharm.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Выравнивание таблиц-последовательностей идентификаторов по существующим данным.
+ * <p>
+ * Строки, созданные до перехода с автоинкремента, или вставленные напрямую с явными идентификаторами,
+ * не учтены в последовательности. При старте её следующее значение поднимается выше максимального
+ * идентификатора таблицы, чтобы выделенные блоки не пересекались с существующими строками.
+ * <p>
+ * Выравнивание выполняется до запуска веб-сервера: блок идентификаторов, выделенный первой вставкой
+ * до выравнивания, мог бы пересечься с существующими строками.
+ */
+@Component
+public class IdSequenceAligner implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceAligner.class);
+
+    /** Таблицы сущностей и соответствующие им таблицы-последовательности. */
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "product", "product_seq",
+            "category", "category_seq"
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        align();
+    }
+
+    /**
+     * Поднимает следующее значение каждой последовательности выше максимального идентификатора её таблицы.
+     * Последовательности, которые уже впереди, не изменяются.
+     */
+    public void align() {
+        SEQUENCES.forEach((table, sequence) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            long next = (maxId != null ? maxId : 0) + 1;
+            int updated = jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", next, next);
+            if (updated > 0) {
+                log.info("Последовательность {} выровнена по таблице {}: следующее значение {}", sequence, table, next);
+            }
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.pharm.service;
+
+/**
+ * Остатка продукта не хватает для списания.
+ */
+public class InsufficientStockException extends IllegalStateException {
+
+    private final Long productId;
+
+    /**
+     * @param productId идентификатор продукта
+     * @param delta     отклонённое изменение остатка
+     */
+    public InsufficientStockException(Long productId, int delta) {
+        super("Недостаточно остатка продукта " + productId + " для изменения на " + delta);
+        this.productId = productId;
+    }
+
+    /**
+     * Идентификатор продукта, остатка которого не хватило.
+     *
+     * @return идентификатор продукта
+     */
+    public Long getProductId() {
+        return productId;
+    }
+}
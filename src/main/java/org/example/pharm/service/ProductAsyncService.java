@@ -0,0 +1,49 @@
+package org.example.pharm.service;
+
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронные варианты чтения продуктов.
+ * <p>
+ * Методы выполняются исполнителем {@code @Async}, а поток обработки HTTP-запроса освобождается до готовности
+ * результата. Блокирующий доступ к базе остаётся, но переносится на исполнитель; с виртуальными потоками
+ * ожидание соединения и ответа базы не занимает поток-носитель.
+ */
+@Service
+public class ProductAsyncService {
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * Загружает строки всех продуктов или найденных по ключевому слову.
+     *
+     * @param keyword ключевое слово (может быть {@code null})
+     * @return будущий список строк продуктов
+     */
+    @Async
+    public CompletableFuture<List<ProductRow>> findProducts(String keyword) {
+        List<ProductRow> products = keyword == null || keyword.isEmpty()
+                ? productService.findAllRows()
+                : productService.search(keyword);
+        return CompletableFuture.completedFuture(products);
+    }
+
+    /**
+     * Загружает продукт по идентификатору.
+     *
+     * @param id идентификатор продукта
+     * @return будущий продукт или {@code null}, если продукт не найден
+     */
+    @Async
+    public CompletableFuture<Product> getProduct(Long id) {
+        return CompletableFuture.completedFuture(productService.get(id));
+    }
+}
@@ -0,0 +1,285 @@
+package org.example.pharm.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.pharm.dto.ProductEvent;
+import org.example.pharm.dto.ProductRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Рассылка изменений каталога подписчикам потока Server-Sent Events.
+ * <p>
+ * События публикуются после фиксации транзакции ({@link AfterCommit}) и сохраняются в кольцевом буфере последних
+ * {@code pharm.events.history-size} событий: переподключившийся клиент передаёт Last-Event-ID и получает
+ * пропущенные события. Если их в буфере уже нет, клиент получает {@link ProductEvent.Type#RESET}.
+ * <p>
+ * У каждого подписчика своя ограниченная очередь, отправка выполняется на виртуальных потоках, поэтому
+ * медленный клиент не задерживает публикацию и остальных подписчиков. При переполнении очереди она очищается
+ * и вместо пропущенных событий клиенту отправляется {@link ProductEvent.Type#RESET}. Неактивные соединения
+ * поддерживаются комментариями-пульсом.
+ */
+@Component
+public class ProductEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductEventBus.class);
+
+    /** Время жизни соединения; после него браузер переподключается сам, передавая Last-Event-ID. */
+    private static final Duration CONNECTION_TIMEOUT = Duration.ofMinutes(30);
+
+    private final int historySize;
+    private final int queueCapacity;
+    private final ProductEvent[] history;
+    private final ReentrantLock historyLock = new ReentrantLock();
+    // Номера событий начинаются с времени запуска, чтобы Last-Event-ID прошлого запуска не совпал с новым
+    private long lastId = System.currentTimeMillis() * 1000; // Защищён historyLock
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param historySize   количество последних событий для возобновления потока
+     * @param queueCapacity размер очереди неотправленных событий одного подписчика
+     * @param meterRegistry реестр метрик
+     */
+    public ProductEventBus(@Value("${pharm.events.history-size:1024}") int historySize,
+                           @Value("${pharm.events.queue-capacity:256}") int queueCapacity,
+                           MeterRegistry meterRegistry) {
+        this.historySize = historySize;
+        this.queueCapacity = queueCapacity;
+        this.history = new ProductEvent[historySize];
+        meterRegistry.gaugeCollectionSize("pharm.events.subscribers", List.of(), subscribers);
+    }
+
+    /**
+     * Публикует создание или изменение продукта.
+     * Вызывается после фиксации транзакции, чтобы клиенты не увидели откатившихся изменений.
+     *
+     * @param created {@code true}, если продукт создан
+     * @param row     строка продукта после изменения
+     */
+    public void publishSaved(boolean created, ProductRow row) {
+        publish(created ? ProductEvent.Type.CREATED : ProductEvent.Type.UPDATED, row.id(), row, null);
+    }
+
+    /**
+     * Публикует удаление продукта.
+     *
+     * @param productId идентификатор продукта
+     */
+    public void publishDeleted(Long productId) {
+        publish(ProductEvent.Type.DELETED, productId, null, null);
+    }
+
+    /**
+     * Публикует изменение остатка продукта.
+     *
+     * @param productId идентификатор продукта
+     * @param quantity  остаток после изменения
+     */
+    public void publishStock(Long productId, int quantity) {
+        publish(ProductEvent.Type.STOCK, productId, null, quantity);
+    }
+
+    /**
+     * Публикует сброс: изменений слишком много или они затрагивают много строк, чтобы передавать их по одному.
+     */
+    public void publishReset() {
+        publish(ProductEvent.Type.RESET, null, null, null);
+    }
+
+    /**
+     * Подписывает клиента на поток событий.
+     *
+     * @param lastEventId номер последнего полученного события (заголовок Last-Event-ID) или {@code null}
+     * @return поток событий
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(CONNECTION_TIMEOUT.toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        historyLock.lock();
+        try {
+            // Пропущенные события ставятся в очередь под той же блокировкой, что и публикация,
+            // поэтому между ними и новыми событиями нет ни пропусков, ни повторов
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                List<ProductEvent> missed = eventsAfter(lastEventId.trim());
+                if (missed == null) {
+                    subscriber.offer(new ProductEvent(lastId, ProductEvent.Type.RESET, null, null, null));
+                } else {
+                    missed.forEach(subscriber::offer);
+                }
+            }
+            subscribers.add(subscriber);
+        } finally {
+            historyLock.unlock();
+        }
+        drain(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Отправляет подписчикам комментарий-пульс, чтобы прокси и балансировщики не закрывали неактивные соединения,
+     * а отключившиеся клиенты обнаруживались.
+     */
+    @Scheduled(fixedDelayString = "${pharm.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeat = true;
+            drain(subscriber);
+        }
+    }
+
+    /**
+     * Закрывает соединения подписчиков при остановке приложения.
+     */
+    @PreDestroy
+    void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdown();
+    }
+
+    private void publish(ProductEvent.Type type, Long productId, ProductRow row, Integer quantity) {
+        List<Subscriber> targets;
+        historyLock.lock();
+        try {
+            ProductEvent event = new ProductEvent(++lastId, type, productId, row, quantity);
+            history[(int) (event.id() % historySize)] = event;
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+            targets = new ArrayList<>(subscribers);
+        } finally {
+            historyLock.unlock();
+        }
+        targets.forEach(this::drain);
+    }
+
+    /**
+     * События после заданного номера из кольцевого буфера. Вызывается под historyLock.
+     *
+     * @return события или {@code null}, если часть из них уже вытеснена или номер не относится к этому запуску
+     */
+    private List<ProductEvent> eventsAfter(String lastEventId) {
+        long after;
+        try {
+            after = Long.parseLong(lastEventId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (after > lastId || after < lastId - historySize) {
+            return null;
+        }
+        List<ProductEvent> events = new ArrayList<>((int) (lastId - after));
+        for (long id = after + 1; id <= lastId; id++) {
+            ProductEvent event = history[(int) (id % historySize)];
+            if (event == null || event.id() != id) {
+                return null;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Запускает отправку очереди подписчика, если она ещё не выполняется.
+     */
+    private void drain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> send(subscriber));
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            while (true) {
+                ProductEvent event;
+                boolean heartbeat;
+                subscriber.lock.lock();
+                try {
+                    event = subscriber.queue.poll();
+                    heartbeat = event == null && subscriber.heartbeat;
+                    subscriber.heartbeat = false;
+                    if (event == null && !heartbeat) {
+                        subscriber.draining.set(false);
+                        return;
+                    }
+                } finally {
+                    subscriber.lock.unlock();
+                }
+                if (event != null) {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(Long.toString(event.id()))
+                            .name(event.type().name().toLowerCase())
+                            .data(event, MediaType.APPLICATION_JSON));
+                } else {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился или поток уже завершён
+            log.debug("Подписчик потока событий отключён: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.draining.set(false);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Подписчик: соединение и очередь неотправленных событий.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Queue<ProductEvent> queue = new ArrayDeque<>(); // Защищена lock
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeat;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Ставит событие в очередь. При переполнении пропущенные события заменяются одним сбросом.
+         */
+        void offer(ProductEvent event) {
+            lock.lock();
+            try {
+                if (queue.size() >= queueCapacity) {
+                    queue.clear();
+                    queue.add(new ProductEvent(event.id(), ProductEvent.Type.RESET, null, null, null));
+                } else if (queue.size() == 1 && queue.peek().type() == ProductEvent.Type.RESET
+                        && event.type() != ProductEvent.Type.RESET) {
+                    // Клиент всё равно загрузит список заново: продвигаем номер сброса, чтобы не повторять события
+                    queue.clear();
+                    queue.add(new ProductEvent(event.id(), ProductEvent.Type.RESET, null, null, null));
+                } else {
+                    queue.add(event);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.pharm.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.pharm.dto.ProductFileFormat;
+import org.example.pharm.model.Product;
+import org.example.pharm.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Сервис потоковой выгрузки каталога продуктов.
+ * <p>
+ * Продукты читаются из базы курсором и сразу пишутся в выходной поток, контекст персистентности очищается
+ * каждые {@link #CLEAR_INTERVAL} строк, поэтому расход памяти не зависит от размера каталога.
+ * Поля совпадают с полями импорта ({@link ProductImportService}), так что выгрузку можно загрузить обратно,
+ * например в пустую базу; идентификаторы не выгружаются, импорт создаёт продукты заново.
+ * Остатки выгружаются с учётом изменений журнала {@link StockLedger}, ещё не записанных в базу.
+ */
+@Service
+public class ProductExportService {
+
+    /** Количество строк, после которого очищается контекст персистентности. */
+    private static final int CLEAR_INTERVAL = 1000;
+
+    /**
+     * Заголовок CSV: те же поля, что читает импорт. Идентификатор не выгружается: импорт всегда создаёт
+     * новые продукты, и столбец, который при загрузке молча отбрасывается, вводил бы в заблуждение.
+     */
+    private static final String CSV_HEADER = "name,category,manufacturer,price,quantity,deliveryDate";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Выгружает все продукты в порядке идентификатора.
+     *
+     * @param format формат выгрузки
+     * @param out    выходной поток; не закрывается
+     * @return количество выгруженных продуктов
+     * @throws IOException если запись в поток не удалась (например, клиент разорвал соединение)
+     */
+    public long export(ProductFileFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        try {
+            Long exported = template.execute(status -> {
+                try (Stream<Product> products = productRepository.streamAll()) {
+                    return format == ProductFileFormat.CSV
+                            ? writeCsv(products.iterator(), writer)
+                            : writeNdjson(products.iterator(), writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+            return exported != null ? exported : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long writeCsv(Iterator<Product> products, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        long count = 0;
+        while (products.hasNext()) {
+            Product product = stockLedger.overlay(products.next());
+            writeCsvField(writer, product.getName());
+            writer.write(',');
+            writeCsvField(writer, product.getCategory() != null ? product.getCategory().getName() : null);
+            writer.write(',');
+            writeCsvField(writer, product.getManufacturer());
+            writer.write(',');
+            writer.write(product.getPrice() != null ? product.getPrice().toPlainString() : "");
+            writer.write(',');
+            writer.write(product.getQuantity() != null ? product.getQuantity().toString() : "");
+            writer.write(',');
+            writer.write(product.getDeliveryDate() != null ? product.getDeliveryDate().toString() : "");
+            writer.write('\n');
+            count = advance(count);
+        }
+        return count;
+    }
+
+    private long writeNdjson(Iterator<Product> products, Writer writer) throws IOException {
+        long count = 0;
+        // Генератор не закрывается, чтобы не закрыть выходной поток ответа
+        JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        while (products.hasNext()) {
+            Product product = stockLedger.overlay(products.next());
+            json.writeStartObject();
+            json.writeStringField("name", product.getName());
+            json.writeStringField("category", product.getCategory() != null ? product.getCategory().getName() : null);
+            json.writeStringField("manufacturer", product.getManufacturer());
+            json.writeFieldName("price");
+            if (product.getPrice() != null) {
+                json.writeNumber(product.getPrice());
+            } else {
+                json.writeNull();
+            }
+            json.writeFieldName("quantity");
+            if (product.getQuantity() != null) {
+                json.writeNumber(product.getQuantity());
+            } else {
+                json.writeNull();
+            }
+            json.writeStringField("deliveryDate",
+                    product.getDeliveryDate() != null ? product.getDeliveryDate().toString() : null);
+            json.writeEndObject();
+            json.writeRaw('\n');
+            count = advance(count);
+        }
+        json.flush();
+        return count;
+    }
+
+    /**
+     * Учитывает выгруженную строку и периодически очищает контекст персистентности.
+     */
+    private long advance(long count) {
+        count++;
+        if (count % CLEAR_INTERVAL == 0) {
+            entityManager.clear();
+        }
+        return count;
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,224 @@
+package org.example.pharm.service;
+
+import org.example.pharm.dto.FacetValue;
+import org.example.pharm.dto.FacetedSearchResult;
+import org.example.pharm.dto.ProductFacetFilter;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.StockStatus;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Подсчёт фасетов по найденным продуктам за один проход, без запросов GROUP BY.
+ * <p>
+ * Каждому значению фасета присваивается порядковый номер, и для каждого найденного продукта запоминаются номера
+ * его значений в массивах int. Выбор в фасете превращается в битовую маску найденных продуктов; выдача — пересечение
+ * масок всех фасетов, а количества значения фасета считаются по пересечению масок остальных фасетов, чтобы
+ * при выборе одного значения были видны количества соседних.
+ */
+final class ProductFacets {
+
+    /** Фасет категории; значение — идентификатор категории. */
+    static final String CATEGORY = "category";
+
+    /** Фасет производителя; значение — название производителя. */
+    static final String MANUFACTURER = "manufacturer";
+
+    /** Фасет ценового диапазона; значение — номер диапазона. */
+    static final String PRICE = "price";
+
+    /** Фасет наличия на складе; значение — {@link StockStatus}. */
+    static final String STOCK = "stock";
+
+    /** Максимальное количество значений фасета категорий или производителей в ответе. */
+    static final int MAX_FACET_VALUES = 50;
+
+    private ProductFacets() {
+    }
+
+    /**
+     * Применяет выбор в фасетах к найденным продуктам и считает фасеты.
+     *
+     * @param hits       найденные продукты в порядке релевантности
+     * @param filter     выбранные значения фасетов
+     * @param priceEdges возрастающие границы ценовых диапазонов
+     * @param limit      количество продуктов в выдаче
+     * @param withFacets считать ли фасеты
+     * @return выдача и фасеты
+     */
+    static FacetedSearchResult compute(List<ProductRow> hits, ProductFacetFilter filter, BigDecimal[] priceEdges,
+                                       int limit, boolean withFacets) {
+        int n = hits.size();
+        Facet category = new Facet(CATEGORY, n, false);
+        Facet manufacturer = new Facet(MANUFACTURER, n, false);
+        Facet price = new Facet(PRICE, n, true);
+        Facet stock = new Facet(STOCK, n, true);
+        for (int band = 0; band <= priceEdges.length; band++) {
+            price.value(band, String.valueOf(band), bandLabel(priceEdges, band));
+        }
+        stock.value(StockStatus.IN_STOCK, "in_stock", "В наличии");
+        stock.value(StockStatus.OUT_OF_STOCK, "out_of_stock", "Нет в наличии");
+
+        for (int i = 0; i < n; i++) {
+            ProductRow row = hits.get(i);
+            category.ordinals[i] = category.value(row.categoryId(),
+                    row.categoryId() != null ? row.categoryId().toString() : "",
+                    row.categoryName() != null ? row.categoryName() : "Без категории");
+            String maker = row.manufacturer() != null ? row.manufacturer() : "";
+            manufacturer.ordinals[i] = manufacturer.value(maker, maker, maker);
+            price.ordinals[i] = band(priceEdges, row.price());
+            stock.ordinals[i] = StockStatus.of(row.quantity()).ordinal();
+        }
+
+        filter.categoryIds().forEach(id -> category.select(id, id.toString(), id.toString()));
+        filter.manufacturers().forEach(name -> manufacturer.select(name, name, name));
+        filter.priceBands().forEach(band -> price.select(band, null, null));
+        filter.stock().forEach(status -> stock.select(status, null, null));
+
+        List<Facet> facets = List.of(category, manufacturer, price, stock);
+        BitSet matched = new BitSet(n);
+        matched.set(0, n);
+        for (Facet facet : facets) {
+            if (facet.constrained) {
+                matched.and(facet.matches());
+            }
+        }
+
+        List<ProductRow> items = new ArrayList<>(Math.min(limit, n));
+        for (int i = matched.nextSetBit(0); i >= 0 && items.size() < limit; i = matched.nextSetBit(i + 1)) {
+            items.add(hits.get(i));
+        }
+        if (!withFacets) {
+            return new FacetedSearchResult(items, matched.cardinality(), Map.of());
+        }
+
+        Map<String, List<FacetValue>> counts = new LinkedHashMap<>();
+        for (Facet facet : facets) {
+            BitSet base = new BitSet(n);
+            base.set(0, n);
+            for (Facet other : facets) {
+                if (other != facet && other.constrained) {
+                    base.and(other.matches());
+                }
+            }
+            counts.put(facet.name, facet.count(base));
+        }
+        return new FacetedSearchResult(items, matched.cardinality(), counts);
+    }
+
+    /**
+     * Номер ценового диапазона: количество границ, не превышающих цену.
+     */
+    private static int band(BigDecimal[] edges, BigDecimal price) {
+        if (price == null) {
+            return 0;
+        }
+        int band = 0;
+        while (band < edges.length && price.compareTo(edges[band]) >= 0) {
+            band++;
+        }
+        return band;
+    }
+
+    private static String bandLabel(BigDecimal[] edges, int band) {
+        if (edges.length == 0) {
+            return "Любая цена";
+        }
+        if (band == 0) {
+            return "до " + edges[0].toPlainString();
+        }
+        if (band == edges.length) {
+            return "от " + edges[band - 1].toPlainString();
+        }
+        return edges[band - 1].toPlainString() + "–" + edges[band].toPlainString();
+    }
+
+    /**
+     * Фасет: словарь значений, номера значений найденных продуктов и выбранные значения.
+     */
+    private static final class Facet {
+        final String name;
+        final boolean fixedOrder;
+        final int[] ordinals;
+        final Map<Object, Integer> index = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+        final List<String> labels = new ArrayList<>();
+        final BitSet selected = new BitSet();
+        boolean constrained;
+        private BitSet matches;
+
+        Facet(String name, int hits, boolean fixedOrder) {
+            this.name = name;
+            this.fixedOrder = fixedOrder;
+            this.ordinals = new int[hits];
+        }
+
+        /**
+         * Номер значения, новое значение добавляется в словарь.
+         */
+        int value(Object key, String value, String label) {
+            Integer ordinal = index.get(key);
+            if (ordinal == null) {
+                ordinal = values.size();
+                index.put(key, ordinal);
+                values.add(value);
+                labels.add(label);
+            }
+            return ordinal;
+        }
+
+        /**
+         * Отмечает значение выбранным. Значение, которого нет среди найденных продуктов, добавляется в словарь,
+         * чтобы вернуться в ответе с нулевым количеством.
+         */
+        void select(Object key, String value, String label) {
+            selected.set(value != null ? value(key, value, label) : index.get(key));
+            constrained = true;
+        }
+
+        /**
+         * Найденные продукты, значение которых выбрано.
+         */
+        BitSet matches() {
+            if (matches == null) {
+                matches = new BitSet(ordinals.length);
+                for (int i = 0; i < ordinals.length; i++) {
+                    if (selected.get(ordinals[i])) {
+                        matches.set(i);
+                    }
+                }
+            }
+            return matches;
+        }
+
+        List<FacetValue> count(BitSet base) {
+            int[] counts = new int[values.size()];
+            for (int i = base.nextSetBit(0); i >= 0; i = base.nextSetBit(i + 1)) {
+                counts[ordinals[i]]++;
+            }
+            List<FacetValue> result = new ArrayList<>();
+            for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+                boolean isSelected = selected.get(ordinal);
+                if (fixedOrder || counts[ordinal] > 0 || isSelected) {
+                    result.add(new FacetValue(values.get(ordinal), labels.get(ordinal), counts[ordinal], isSelected));
+                }
+            }
+            if (!fixedOrder) {
+                result.sort(Comparator.comparing(FacetValue::selected).reversed()
+                        .thenComparing(Comparator.comparingInt(FacetValue::count).reversed())
+                        .thenComparing(FacetValue::label));
+                if (result.size() > MAX_FACET_VALUES) {
+                    return List.copyOf(result.subList(0, MAX_FACET_VALUES));
+                }
+            }
+            return result;
+        }
+    }
+}
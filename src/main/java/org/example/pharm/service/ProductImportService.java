@@ -0,0 +1,390 @@
+package org.example.pharm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.pharm.dto.ImportReport;
+import org.example.pharm.dto.ImportRowError;
+import org.example.pharm.dto.ProductFileFormat;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Сервис массового импорта продуктов из файлов поставщиков.
+ * <p>
+ * Файл читается потоково, по одной записи. Корректные строки накапливаются порциями по {@link #CHUNK_SIZE}
+ * и сохраняются через {@link ProductService#saveAll(Iterable)}, каждая порция — отдельной транзакцией.
+ * Категории ищутся по имени без учёта регистра в словаре импорта; отсутствующие создаются один раз,
+ * в транзакции порции, где встретились впервые: если порция откатилась, категория создаётся заново со следующей.
+ * Ход импорта доступен через {@link #status(String)}, пока импорт выполняется, и некоторое время после.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    /** Количество продуктов, сохраняемых одной транзакцией. */
+    static final int CHUNK_SIZE = 1000;
+
+    /** Максимальное количество ошибок по строкам в отчёте. */
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    /** Поля файла. В CSV это названия столбцов заголовка, в NDJSON — ключи объекта. */
+    private static final List<String> FIELDS = List.of(
+            "name", "category", "manufacturer", "price", "quantity", "deliveryDate");
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Выполняющиеся импорты. Не ограничены по размеру и времени: их число равно числу одновременных запросов. */
+    private final ConcurrentMap<String, Job> running = new ConcurrentHashMap<>();
+
+    /**
+     * Завершённые импорты. Ограничены по размеру и времени; срок хранения отсчитывается от завершения,
+     * поэтому выполняющийся импорт не вытесняется, как бы долго он ни шёл.
+     */
+    private final Cache<String, Job> finished = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    /**
+     * Импортирует продукты из потока.
+     *
+     * @param importId идентификатор импорта для отслеживания хода или {@code null}, чтобы сгенерировать его
+     * @param format   формат файла
+     * @param reader   содержимое файла
+     * @return итоговый отчёт
+     * @throws IllegalStateException если импорт с таким идентификатором уже выполняется
+     */
+    public ImportReport importProducts(String importId, ProductFileFormat format, Reader reader) {
+        String id = importId != null && !importId.isBlank() ? importId : UUID.randomUUID().toString();
+        Job job = new Job(id);
+        // Проверка и регистрация атомарны: два одновременных импорта с одним идентификатором не запустятся оба
+        if (running.putIfAbsent(id, job) != null) {
+            throw new IllegalStateException("Импорт " + id + " уже выполняется");
+        }
+
+        Chunk chunk = new Chunk(job);
+        try (BufferedReader input = new BufferedReader(reader)) {
+            for (Category category : categoryService.getAllCategories()) {
+                chunk.categories.putIfAbsent(normalize(category.getName()), category);
+            }
+            if (format == ProductFileFormat.CSV) {
+                readCsv(input, chunk);
+            } else {
+                readNdjson(input, chunk);
+            }
+            chunk.save();
+            job.finish(ImportReport.State.COMPLETED, null);
+        } catch (IOException | IllegalArgumentException e) {
+            chunk.save();
+            job.finish(ImportReport.State.FAILED, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Импорт {} прерван", id, e);
+            job.finish(ImportReport.State.FAILED, "Внутренняя ошибка: " + e.getMessage());
+        } finally {
+            // Сначала в завершённые, затем из выполняющихся: запрос состояния не застанет импорт ни в одной из карт
+            finished.put(id, job);
+            running.remove(id, job);
+        }
+        ImportReport report = job.report();
+        log.info("Импорт {} завершён: {}, импортировано {}, ошибок {}",
+                id, report.state(), report.importedRows(), report.failedRows());
+        return report;
+    }
+
+    /**
+     * Текущее состояние импорта.
+     *
+     * @param id идентификатор импорта
+     * @return отчёт или {@code null}, если импорт не найден (или сведения о нём устарели)
+     */
+    public ImportReport status(String id) {
+        Job job = running.get(id);
+        if (job == null) {
+            job = finished.getIfPresent(id);
+        }
+        return job != null ? job.report() : null;
+    }
+
+    private void readCsv(BufferedReader input, Chunk chunk) throws IOException {
+        input.mark(4096);
+        String headerLine = input.readLine();
+        if (headerLine == null) {
+            throw new IllegalArgumentException("Файл пуст");
+        }
+        input.reset();
+        // Табличные редакторы с русской локалью сохраняют CSV через точку с запятой
+        char delimiter = headerLine.indexOf(';') >= 0 && headerLine.indexOf(',') < 0 ? ';' : ',';
+        CsvRecordReader csv = new CsvRecordReader(input, delimiter);
+
+        List<String> header = csv.next();
+        int[] columns = new int[FIELDS.size()];
+        for (int i = 0; i < FIELDS.size(); i++) {
+            columns[i] = indexOfColumn(header, FIELDS.get(i));
+            if (columns[i] < 0) {
+                throw new IllegalArgumentException("В заголовке CSV нет столбца " + FIELDS.get(i));
+            }
+        }
+
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            long line = csv.recordLine();
+            String[] values = new String[FIELDS.size()];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = columns[i] < record.size() ? record.get(columns[i]) : null;
+            }
+            accept(line, values, chunk);
+        }
+    }
+
+    private void readNdjson(BufferedReader input, Chunk chunk) throws IOException {
+        String text;
+        long line = 0;
+        while ((text = input.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                chunk.job.rowFailed(line, "Некорректный JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            if (!node.isObject()) {
+                chunk.job.rowFailed(line, "Ожидался JSON-объект");
+                continue;
+            }
+            String[] values = new String[FIELDS.size()];
+            for (int i = 0; i < FIELDS.size(); i++) {
+                JsonNode value = node.get(FIELDS.get(i));
+                // Категория может быть передана строкой или объектом, как в API продуктов
+                if (value != null && value.isObject()) {
+                    value = value.get("name");
+                }
+                values[i] = value != null && !value.isNull() ? value.asText() : null;
+            }
+            accept(line, values, chunk);
+        }
+    }
+
+    /**
+     * Проверяет строку и добавляет продукт в порцию или записывает ошибку.
+     */
+    private void accept(long line, String[] values, Chunk chunk) {
+        Product product;
+        try {
+            product = toProduct(values, chunk.categories);
+        } catch (IllegalArgumentException e) {
+            chunk.job.rowFailed(line, e.getMessage());
+            return;
+        }
+        chunk.add(line, product);
+    }
+
+    private Product toProduct(String[] values, Map<String, Category> categories) {
+        Product product = new Product();
+        product.setName(required(values[0], "name"));
+        String categoryName = required(values[1], "category");
+        product.setManufacturer(required(values[2], "manufacturer"));
+
+        String price = required(values[3], "price");
+        try {
+            product.setPrice(new BigDecimal(price.replace(',', '.')));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректная цена: " + price);
+        }
+        if (product.getPrice().signum() < 0) {
+            throw new IllegalArgumentException("Цена не может быть отрицательной");
+        }
+
+        String quantity = required(values[4], "quantity");
+        try {
+            product.setQuantity(Integer.valueOf(quantity));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное количество: " + quantity);
+        }
+        if (product.getQuantity() < 0) {
+            throw new IllegalArgumentException("Количество не может быть отрицательным");
+        }
+
+        String deliveryDate = required(values[5], "deliveryDate");
+        try {
+            product.setDeliveryDate(LocalDate.parse(deliveryDate));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректная дата поставки (ожидается YYYY-MM-DD): " + deliveryDate);
+        }
+
+        // Категория добавляется в словарь последней, чтобы некорректная строка не оставляла после себя
+        // пустых категорий. Новая категория сохраняется вместе с порцией (см. Chunk#save)
+        product.setCategory(categories.computeIfAbsent(normalize(categoryName), key -> {
+            Category category = new Category();
+            category.setName(categoryName);
+            return category;
+        }));
+        return product;
+    }
+
+    private static String required(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Не заполнено поле " + field);
+        }
+        String trimmed = value.trim();
+        if (trimmed.length() > 255) {
+            throw new IllegalArgumentException("Поле " + field + " длиннее 255 символов");
+        }
+        return trimmed;
+    }
+
+    private static int indexOfColumn(List<String> header, String field) {
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim().replace("_", "");
+            if (column.equalsIgnoreCase(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String normalize(String categoryName) {
+        return categoryName == null ? "" : categoryName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Порция продуктов, ожидающая сохранения, и словарь категорий импорта по нормализованному имени.
+     */
+    private final class Chunk {
+
+        private final Job job;
+        private final Map<String, Category> categories = new HashMap<>();
+        private final List<Product> products = new ArrayList<>(CHUNK_SIZE);
+        private final List<Long> lines = new ArrayList<>(CHUNK_SIZE);
+
+        private Chunk(Job job) {
+            this.job = job;
+        }
+
+        void add(long line, Product product) {
+            products.add(product);
+            lines.add(line);
+            if (products.size() == CHUNK_SIZE) {
+                save();
+            }
+        }
+
+        void save() {
+            if (products.isEmpty()) {
+                return;
+            }
+            // Категории, впервые встретившиеся в порции, ещё не сохранены
+            Set<Category> created = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Product product : products) {
+                if (product.getCategory().getId() == null) {
+                    created.add(product.getCategory());
+                }
+            }
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    created.forEach(categoryService::save);
+                    productService.saveAll(products);
+                });
+                job.rowsImported(products.size());
+            } catch (RuntimeException e) {
+                // Порция откатилась целиком вместе с новыми категориями: отмечаем все её строки и продолжаем
+                // со следующей, которая создаст эти категории заново
+                created.forEach(category -> categories.remove(normalize(category.getName())));
+                log.warn("Импорт {}: не удалось сохранить порцию строк {}–{}",
+                        job.id, lines.get(0), lines.get(lines.size() - 1), e);
+                for (Long line : lines) {
+                    job.rowFailed(line, "Не удалось сохранить порцию: " + e.getMessage());
+                }
+            }
+            products.clear();
+            lines.clear();
+        }
+    }
+
+    /**
+     * Изменяемое состояние импорта. Пишется потоком импорта, читается запросами состояния.
+     */
+    private static final class Job {
+
+        private final String id;
+        private final Instant startedAt = Instant.now();
+        private final List<ImportRowError> errors = new ArrayList<>();
+        private volatile ImportReport.State state = ImportReport.State.RUNNING;
+        private volatile long imported;
+        private volatile long failed;
+        private volatile String message;
+        private volatile Instant finishedAt;
+
+        private Job(String id) {
+            this.id = id;
+        }
+
+        void rowsImported(int count) {
+            imported += count;
+        }
+
+        synchronized void rowFailed(long line, String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportRowError(line, error));
+            }
+        }
+
+        void finish(ImportReport.State finalState, String failure) {
+            message = failure;
+            finishedAt = Instant.now();
+            state = finalState;
+        }
+
+        synchronized ImportReport report() {
+            return new ImportReport(id, state, imported + failed, imported, failed, List.copyOf(errors),
+                    failed > errors.size(), message, startedAt, finishedAt);
+        }
+    }
+}
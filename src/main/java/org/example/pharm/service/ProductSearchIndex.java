@@ -0,0 +1,447 @@
+package org.example.pharm.service;
+
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Внутрипроцессный поисковый индекс продуктов.
+ * <p>
+ * Индексирует тот же текст, что и {@link ProductRepository#search(String)} (название, категория, производитель
+ * и дата поставки), приведённый к нижнему регистру. Поиск по подстроке выполняется через инвертированный
+ * индекс триграмм: кандидаты получаются пересечением списков для всех триграмм запроса, затем проверяются
+ * точным вхождением подстроки.
+ * <p>
+ * Индекс состоит из неизменяемых сегментов: большого базового и небольшого дельта-сегмента, который
+ * пересобирается при каждой записи (copy-on-write). Читатели работают с неизменяемым снимком и не блокируются
+ * записью. Когда дельта разрастается, базовый сегмент пересобирается в фоновом потоке.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    /** Размер дельты, после которого она сливается с базовым сегментом. */
+    static final int MERGE_THRESHOLD = 512;
+
+    private static final int[] NO_ORDINALS = new int[0];
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final Object writeLock = new Object();
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "product-index-merge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long sequence; // Номер последней записи, защищён writeLock
+    private volatile Snapshot snapshot = Snapshot.of(Segment.EMPTY, Map.of());
+    private volatile boolean ready;
+
+    /**
+     * Полностью перестраивает индекс по данным из базы. Вызывается при старте приложения.
+     * <p>
+     * Записи, пришедшие во время перестроения, не теряются: они остаются в дельте.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long captured;
+            synchronized (writeLock) {
+                captured = sequence;
+            }
+            long started = System.nanoTime();
+            List<IndexedProduct> docs = productRepository.findAllRows().stream()
+                    .map(IndexedProduct::of)
+                    .toList();
+            install(Segment.build(docs), captured);
+            ready = true;
+            log.info("Поисковый индекс продуктов построен: {} документов за {} мс",
+                    docs.size(), (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    /**
+     * Готов ли индекс к поиску (завершено первичное построение).
+     *
+     * @return {@code true}, если индекс построен
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Добавляет или обновляет продукт в индексе.
+     *
+     * @param product строка сохранённого продукта
+     */
+    public void upsert(ProductRow product) {
+        apply(product.id(), IndexedProduct.of(product));
+    }
+
+    /**
+     * Добавляет или обновляет несколько продуктов одной записью в дельту.
+     *
+     * @param products строки сохранённых продуктов
+     */
+    public void upsertAll(Collection<ProductRow> products) {
+        Map<Long, IndexedProduct> docs = new HashMap<>();
+        for (ProductRow product : products) {
+            docs.put(product.id(), IndexedProduct.of(product));
+        }
+        apply(docs);
+    }
+
+    /**
+     * Запускает полное перестроение индекса в фоновом потоке.
+     * Используется после массовых изменений, когда переносить их в дельту по одной дороже перестроения.
+     */
+    public void rebuildAsync() {
+        merger.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Не удалось перестроить поисковый индекс", e);
+            }
+        });
+    }
+
+    /**
+     * Удаляет продукт из индекса.
+     *
+     * @param id идентификатор продукта
+     */
+    public void remove(Long id) {
+        apply(id, null);
+    }
+
+    /**
+     * Ищет продукты, текст которых содержит ключевое слово (без учёта регистра).
+     * <p>
+     * Результаты ранжируются: точное совпадение названия, затем название начинается с ключевого слова,
+     * затем содержит его, затем совпадение в производителе или категории, затем остальные; при равенстве —
+     * по идентификатору.
+     *
+     * @param keyword ключевое слово
+     * @return идентификаторы найденных продуктов в порядке релевантности или {@code null}, если индекс ещё не построен
+     */
+    public List<Long> search(String keyword) {
+        if (!ready) {
+            return null;
+        }
+        String query = keyword.toLowerCase(Locale.ROOT);
+        Snapshot current = snapshot;
+        List<Hit> hits = new ArrayList<>();
+        current.base.collect(query, current.delta.keySet(), hits);
+        current.deltaSegment.collect(query, Set.of(), hits);
+        hits.sort(Hit.ORDER);
+
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            ids.add(hit.id());
+        }
+        return ids;
+    }
+
+    /**
+     * Количество продуктов в индексе.
+     *
+     * @return количество проиндексированных продуктов
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        int size = current.deltaSegment.docs.length;
+        for (IndexedProduct doc : current.base.docs) {
+            if (!current.delta.containsKey(doc.id())) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        merger.shutdownNow();
+    }
+
+    private void apply(long id, IndexedProduct doc) {
+        apply(Collections.singletonMap(id, doc));
+    }
+
+    /**
+     * Переносит изменения в дельту; значение {@code null} означает удаление продукта.
+     */
+    private void apply(Map<Long, IndexedProduct> changes) {
+        int deltaSize;
+        synchronized (writeLock) {
+            Map<Long, DeltaEntry> delta = new HashMap<>(snapshot.delta);
+            changes.forEach((id, doc) -> delta.put(id, new DeltaEntry(++sequence, doc)));
+            snapshot = Snapshot.of(snapshot.base, delta);
+            deltaSize = delta.size();
+        }
+        if (deltaSize >= MERGE_THRESHOLD && mergeScheduled.compareAndSet(false, true)) {
+            merger.execute(() -> {
+                try {
+                    merge();
+                } catch (RuntimeException e) {
+                    log.error("Не удалось слить дельту поискового индекса", e);
+                } finally {
+                    mergeScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Сливает текущую дельту с базовым сегментом.
+     */
+    private void merge() {
+        synchronized (rebuildLock) {
+            Snapshot current;
+            long captured;
+            synchronized (writeLock) {
+                current = snapshot;
+                captured = sequence;
+            }
+            List<IndexedProduct> docs = new ArrayList<>(current.base.docs.length + current.delta.size());
+            for (IndexedProduct doc : current.base.docs) {
+                if (!current.delta.containsKey(doc.id())) {
+                    docs.add(doc);
+                }
+            }
+            docs.addAll(Arrays.asList(current.deltaSegment.docs));
+            install(Segment.build(docs), captured);
+        }
+    }
+
+    /**
+     * Устанавливает новый базовый сегмент, оставляя в дельте только записи новее {@code captured}.
+     */
+    private void install(Segment base, long captured) {
+        synchronized (writeLock) {
+            Map<Long, DeltaEntry> delta = new HashMap<>();
+            snapshot.delta.forEach((id, entry) -> {
+                if (entry.sequence() > captured) {
+                    delta.put(id, entry);
+                }
+            });
+            snapshot = Snapshot.of(base, delta);
+        }
+    }
+
+    /**
+     * Упаковывает три символа в ключ триграммы.
+     */
+    private static long trigram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    /**
+     * Проиндексированное представление продукта.
+     */
+    record IndexedProduct(long id, String name, String category, String manufacturer, String text) {
+
+        static IndexedProduct of(ProductRow product) {
+            String name = lower(product.name());
+            String category = lower(product.categoryName());
+            String manufacturer = lower(product.manufacturer());
+            String date = product.deliveryDate() != null ? product.deliveryDate().toString() : "";
+            return new IndexedProduct(product.id(), name, category, manufacturer,
+                    name + " " + category + " " + manufacturer + " " + date);
+        }
+
+        /**
+         * Ранг совпадения: чем меньше, тем релевантнее.
+         */
+        int rank(String query) {
+            if (name.equals(query)) {
+                return 0;
+            }
+            if (name.startsWith(query)) {
+                return 1;
+            }
+            if (name.contains(query)) {
+                return 2;
+            }
+            if (manufacturer.contains(query) || category.contains(query)) {
+                return 3;
+            }
+            return 4;
+        }
+
+        private static String lower(String value) {
+            return value != null ? value.toLowerCase(Locale.ROOT) : "";
+        }
+    }
+
+    /**
+     * Запись дельты: новая версия документа или {@code null}, если продукт удалён.
+     */
+    record DeltaEntry(long sequence, IndexedProduct doc) {
+    }
+
+    /**
+     * Найденный продукт с рангом совпадения.
+     */
+    record Hit(long id, int rank) {
+        static final Comparator<Hit> ORDER = Comparator.comparingInt(Hit::rank).thenComparingLong(Hit::id);
+    }
+
+    /**
+     * Неизменяемый снимок индекса: базовый сегмент, дельта и сегмент, построенный по дельте.
+     * Документы базового сегмента, идентификаторы которых есть в дельте, считаются устаревшими.
+     */
+    static final class Snapshot {
+        final Segment base;
+        final Map<Long, DeltaEntry> delta;
+        final Segment deltaSegment;
+
+        private Snapshot(Segment base, Map<Long, DeltaEntry> delta, Segment deltaSegment) {
+            this.base = base;
+            this.delta = delta;
+            this.deltaSegment = deltaSegment;
+        }
+
+        static Snapshot of(Segment base, Map<Long, DeltaEntry> delta) {
+            List<IndexedProduct> docs = new ArrayList<>(delta.size());
+            for (DeltaEntry entry : delta.values()) {
+                if (entry.doc() != null) {
+                    docs.add(entry.doc());
+                }
+            }
+            return new Snapshot(base, Collections.unmodifiableMap(delta), Segment.build(docs));
+        }
+    }
+
+    /**
+     * Неизменяемый сегмент индекса: документы по порядковым номерам и списки номеров для каждой триграммы.
+     */
+    static final class Segment {
+        static final Segment EMPTY = build(List.of());
+
+        final IndexedProduct[] docs;
+        final Map<Long, int[]> postings;
+
+        private Segment(IndexedProduct[] docs, Map<Long, int[]> postings) {
+            this.docs = docs;
+            this.postings = postings;
+        }
+
+        static Segment build(List<IndexedProduct> source) {
+            IndexedProduct[] docs = source.toArray(new IndexedProduct[0]);
+            Map<Long, IntList> lists = new HashMap<>();
+            for (int ordinal = 0; ordinal < docs.length; ordinal++) {
+                String text = docs[ordinal].text();
+                for (int i = 0; i + 3 <= text.length(); i++) {
+                    IntList list = lists.computeIfAbsent(trigram(text, i), k -> new IntList());
+                    // Номера добавляются по возрастанию, поэтому повтор триграммы в документе — это последний элемент
+                    if (list.size == 0 || list.values[list.size - 1] != ordinal) {
+                        list.add(ordinal);
+                    }
+                }
+            }
+            Map<Long, int[]> postings = new HashMap<>(lists.size() * 4 / 3 + 1);
+            lists.forEach((key, list) -> postings.put(key, list.toArray()));
+            return new Segment(docs, postings);
+        }
+
+        /**
+         * Добавляет в {@code out} документы сегмента, содержащие запрос, кроме замаскированных идентификаторов.
+         */
+        void collect(String query, Set<Long> masked, List<Hit> out) {
+            int[] candidates = candidates(query);
+            int count = candidates != null ? candidates.length : docs.length;
+            for (int i = 0; i < count; i++) {
+                IndexedProduct doc = docs[candidates != null ? candidates[i] : i];
+                if (doc.text().contains(query) && !masked.contains(doc.id())) {
+                    out.add(new Hit(doc.id(), doc.rank(query)));
+                }
+            }
+        }
+
+        /**
+         * Кандидаты по пересечению списков триграмм или {@code null}, если запрос короче триграммы.
+         */
+        private int[] candidates(String query) {
+            if (query.length() < 3) {
+                return null;
+            }
+            List<int[]> lists = new ArrayList<>();
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                int[] list = postings.get(trigram(query, i));
+                if (list == null) {
+                    return NO_ORDINALS;
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.length));
+            int[] result = lists.get(0);
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                result = intersect(result, lists.get(i));
+            }
+            return result;
+        }
+
+        private static int[] intersect(int[] a, int[] b) {
+            int[] out = new int[Math.min(a.length, b.length)];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    out[n++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+    }
+
+    /**
+     * Растущий массив примитивных int для построения списков триграмм.
+     */
+    static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
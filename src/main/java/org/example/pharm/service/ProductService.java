@@ -1,13 +1,38 @@
 package org.example.pharm.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import org.example.pharm.config.CacheConfig;
+import org.example.pharm.dto.CountMode;
+import org.example.pharm.dto.FacetedSearchResult;
+import org.example.pharm.dto.ProductCursor;
+import org.example.pharm.dto.ProductFacetFilter;
+import org.example.pharm.dto.ProductPage;
+import org.example.pharm.dto.ProductRollupState;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.ProductSuggestion;
+import org.example.pharm.dto.StockAdjustment;
+import org.example.pharm.dto.StockLevel;
 import org.example.pharm.model.Product;
 import org.example.pharm.repository.ProductRepository;
+import org.example.pharm.repository.ProductSortField;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 /**
  * Сервис для управления продуктами.
@@ -17,26 +42,281 @@ import java.util.stream.Collectors;
 @Service
 public class ProductService {
 
+    /** Максимальный размер страницы при постраничной выдаче. */
+    public static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * Максимальное количество найденных индексом или полнотекстовым поиском продуктов, при котором страница
+     * строится по их идентификаторам. При большем количестве совпадений фильтрация выполняется запросом LIKE.
+     */
+    private static final int MAX_INDEXED_HITS_PER_QUERY = 5000;
+
+    /** Размер пакета идентификаторов при загрузке найденных продуктов. */
+    private static final int ID_BATCH_SIZE = 1000;
+
+    /** Количество продуктов, после которого при массовом сохранении контекст сбрасывается в базу и очищается. */
+    static final int SAVE_CHUNK_SIZE = 1000;
+
+    /**
+     * Количество продуктов массового сохранения, до которого поисковый индекс обновляется точечно.
+     * При большем количестве индекс перестраивается целиком в фоне.
+     */
+    private static final int MAX_INDEX_UPSERTS = 20_000;
+
+    /**
+     * Количество продуктов массового сохранения, до которого подписчикам {@link ProductEventBus} отправляются
+     * события по каждому продукту. При большем количестве отправляется одно событие сброса.
+     */
+    private static final int MAX_SAVE_EVENTS = 100;
+
+    /** Максимальное количество изменений остатка в одном пакете. */
+    public static final int MAX_STOCK_BATCH = 1000;
+
+    /** Метрика поисковых запросов с тегами источника (index, fulltext, database) и результата (hit, miss). */
+    public static final String SEARCH_METRIC = "pharm.product.search";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private ProductRepository repo;
 
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
+    @Autowired
+    private DeliveryRollupService rollupService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ProductEventBus eventBus;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${pharm.search.mode:index}")
+    private SearchMode searchMode;
+
+    @Value("${pharm.search.price-bands:100,500,1000,5000}")
+    private BigDecimal[] priceBandEdges;
+
+    @Value("${pharm.singleflight.timeout:5s}")
+    private Duration singleFlightTimeout;
+
+    private SingleFlight<List<Object>, List<ProductRow>> rowsFlight;
+    private SingleFlight<List<Object>, Map<LocalDate, Long>> histogramFlight;
+
+    /**
+     * Создаёт объединители одинаковых одновременных запросов списков и гистограммы.
+     */
+    @PostConstruct
+    void initSingleFlight() {
+        rowsFlight = new SingleFlight<>("productRows", singleFlightTimeout, meterRegistry);
+        histogramFlight = new SingleFlight<>("deliveryHistogram", singleFlightTimeout, meterRegistry);
+    }
+
     /**
      * Сохраняет продукт в базе данных.
+     * В той же транзакции обновляется сводка поставок; после фиксации продукт удаляется из кэша
+     * и увеличивается версия каталога.
+     * <p>
+     * Если остатки ведутся в журнале {@link StockLedger}, остаток существующего продукта в базе не перезаписывается:
+     * новое значение после фиксации передаётся в журнал, а возвращаемый продукт содержит остаток из базы.
+     * Отсоединённый продукт при этом не изменяется.
      *
      * @param product продукт для сохранения.
      * @return сохраненный продукт.
      */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, key = "#result.id")
     public Product save(Product product) {
-        return repo.save(product);
+        Integer requested = product.getQuantity();
+        Long version = product.getVersion();
+        Integer storedQuantity = lockLedgerQuantity(product);
+        boolean created = product.getId() == null;
+        ProductRollupState before = !created
+                ? repo.findRollupState(product.getId()).orElse(null)
+                : null;
+        Product saved = repo.save(product);
+        if (storedQuantity != null) {
+            saved.setQuantity(storedQuantity);
+            setLedgerQuantity(saved, requested, version);
+        }
+        rollupService.apply(before, ProductRollupState.of(saved));
+        // Строка для индекса строится в транзакции, пока категорию ещё можно загрузить
+        ProductRow row = ProductRow.of(saved);
+        AfterCommit.run(() -> {
+            ProductRow current = stockLedger.overlay(List.of(row)).get(0);
+            searchIndex.upsert(row);
+            suggestIndex.upsert(current);
+            eventBus.publishSaved(created, current);
+        });
+        catalogVersion.bump();
+        return saved;
+    }
+
+    /**
+     * Сохраняет продукты одной транзакцией, порциями по {@link #SAVE_CHUNK_SIZE}.
+     * <p>
+     * После каждой порции контекст сохраняемости сбрасывается в базу (вставки уходят JDBC-пакетами) и очищается,
+     * поэтому расход памяти не зависит от количества продуктов, если их источник сам не держит их в памяти.
+     * Сохранённые объекты после вызова отсоединены от контекста. Изменения сводки поставок суммируются
+     * и записываются один раз в конце. Остатки существующих продуктов в режиме журнала {@link StockLedger}
+     * передаются в журнал, как в {@link #save(Product)}.
+     *
+     * @param products продукты для сохранения; новые продукты не должны иметь идентификатора
+     * @return количество сохранённых продуктов
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, allEntries = true)
+    public int saveAll(Iterable<Product> products) {
+        DeliveryRollupService.Batch rollup = rollupService.batch();
+        List<ProductRow> indexed = new ArrayList<>();
+        List<ProductRow> createdRows = new ArrayList<>();
+        List<ProductRow> updatedRows = new ArrayList<>();
+        boolean rebuildIndex = false;
+        int saved = 0;
+        for (Product product : products) {
+            ProductRollupState before = null;
+            boolean created = product.getId() == null;
+            if (created) {
+                entityManager.persist(product);
+            } else {
+                Integer requested = product.getQuantity();
+                Long version = product.getVersion();
+                Integer storedQuantity = lockLedgerQuantity(product);
+                before = repo.findRollupState(product.getId()).orElse(null);
+                product = entityManager.merge(product);
+                if (storedQuantity != null) {
+                    product.setQuantity(storedQuantity);
+                    setLedgerQuantity(product, requested, version);
+                }
+            }
+            rollup.add(before, ProductRollupState.of(product));
+            if (saved < MAX_SAVE_EVENTS) {
+                (created ? createdRows : updatedRows).add(ProductRow.of(product));
+            }
+            if (!rebuildIndex) {
+                indexed.add(ProductRow.of(product));
+                if (indexed.size() > MAX_INDEX_UPSERTS) {
+                    indexed.clear();
+                    rebuildIndex = true;
+                }
+            }
+            if (++saved % SAVE_CHUNK_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        if (saved == 0) {
+            return 0;
+        }
+        entityManager.flush();
+        entityManager.clear();
+        rollup.flush();
+
+        boolean rebuild = rebuildIndex;
+        boolean reset = saved > MAX_SAVE_EVENTS;
+        AfterCommit.run(() -> {
+            if (rebuild) {
+                searchIndex.rebuildAsync();
+                suggestIndex.rebuildAsync();
+            } else {
+                searchIndex.upsertAll(indexed);
+                suggestIndex.upsertAll(stockLedger.overlay(indexed));
+            }
+            if (reset) {
+                eventBus.publishReset();
+            } else {
+                createdRows.forEach(row -> eventBus.publishSaved(true, row));
+                stockLedger.overlay(updatedRows).forEach(row -> eventBus.publishSaved(false, row));
+            }
+        });
+        catalogVersion.bump();
+        return saved;
+    }
+
+    /**
+     * В режиме журнала остатков блокирует строку существующего продукта и читает его остаток из базы.
+     * Блокировка не даёт сбросу журнала изменить остаток между чтением и записью продукта.
+     *
+     * @param product сохраняемый продукт
+     * @return остаток, который нужно сохранить в базе вместо запрошенного (запрошенный передаётся в журнал
+     *         через {@link #setLedgerQuantity}), или {@code null}, если продукт сохраняется как есть
+     */
+    private Integer lockLedgerQuantity(Product product) {
+        if (!stockLedger.isEnabled() || product.getId() == null || product.getQuantity() == null) {
+            return null;
+        }
+        return repo.lockQuantity(product.getId()).orElse(null);
+    }
+
+    /**
+     * После фиксации передаёт запрошенный остаток в журнал вместе с приращением версии продукта при сохранении,
+     * чтобы версия в журнале совпадала с версией в базе. Новая версия сохранённого продукта известна
+     * только после сброса контекста сохраняемости, поэтому читается после фиксации.
+     *
+     * @param saved     сохранённый продукт
+     * @param requested запрошенный остаток
+     * @param version   версия продукта до сохранения
+     */
+    private void setLedgerQuantity(Product saved, int requested, Long version) {
+        Long id = saved.getId();
+        AfterCommit.run(() -> stockLedger.set(id, requested,
+                version != null && saved.getVersion() != null ? saved.getVersion() - version : 0));
     }
 
     /**
      * Получает продукт по его идентификатору.
+     * Результат кэшируется; возвращаемый объект нельзя изменять, для редактирования используется {@link #getForUpdate(Long)}.
+     * Остаток накладывается из журнала {@link StockLedger} поверх закэшированного продукта, поэтому всегда актуален.
      *
      * @param id идентификатор продукта.
      * @return продукт с указанным идентификатором, или null, если продукт не найден.
      */
     public Product get(Long id) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTS);
+        Product product = cache.get(id, Product.class);
+        if (product == null) {
+            product = repo.findById(id).orElse(null);
+            if (product != null) {
+                cache.put(id, product);
+            }
+        }
+        return stockLedger.overlay(product);
+    }
+
+    /**
+     * Загружает строки списка всех продуктов в порядке идентификатора с актуальными остатками.
+     * Строки кэшируются до следующего изменения каталога ({@link CacheConfig#PRODUCT_ROWS}), а одновременные
+     * вызовы при неизменном каталоге выполняют один запрос к базе.
+     *
+     * @return строки всех продуктов (не изменять)
+     */
+    public List<ProductRow> findAllRows() {
+        List<ProductRow> rows = cacheManager.getCache(CacheConfig.PRODUCT_ROWS).get(catalogVersion.current(),
+                () -> rowsFlight.execute(catalogKey("all"), repo::findAllRows));
+        return stockLedger.overlay(rows);
+    }
+
+    /**
+     * Загружает продукт из базы данных в обход кэша для последующего изменения и сохранения.
+     *
+     * @param id идентификатор продукта.
+     * @return продукт с указанным идентификатором, или null, если продукт не найден.
+     */
+    public Product getForUpdate(Long id) {
         return repo.findById(id).orElse(null);
     }
 
@@ -45,44 +325,393 @@ public class ProductService {
      *
      * @param id идентификатор продукта, который нужно удалить.
      */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     public void delete(Long id) {
+        ProductRollupState before = repo.findRollupState(id).orElse(null);
         repo.deleteById(id);
+        rollupService.apply(before, null);
+        AfterCommit.run(() -> {
+            searchIndex.remove(id);
+            suggestIndex.remove(id);
+            stockLedger.forget(id);
+            eventBus.publishDeleted(id);
+        });
+        catalogVersion.bump();
     }
 
     /**
-     * Получает статистику по количеству продуктов, поставленных в последние 14 дней.
+     * Изменяет остаток продукта на {@code delta} одним условным UPDATE, без чтения и перезаписи продукта.
+     * <p>
+     * Параллельные изменения остатка одного продукта не теряются, а списание больше имеющегося остатка отклоняется.
+     * Сводка поставок корректируется на ту же величину; после фиксации продукт удаляется из кэша
+     * и увеличивается версия каталога. В режиме журнала остатков изменения выполняет {@link StockLedger#adjust}.
      *
-     * @return карта, где ключом является дата поставки, а значением - количество продуктов, поставленных в эту дату.
-     *         Продукты учитываются только за последние 14 дней.
+     * @param id    идентификатор продукта
+     * @param delta изменение остатка: отрицательное — списание, положительное — приход
+     * @return остаток после изменения или {@code null}, если продукт не найден
+     * @throws InsufficientStockException если остатка не хватает для списания
+     * @throws IllegalArgumentException   если изменение нулевое
      */
-    public Map<LocalDate, Long> getProductsCountByDeliveryDate() {
-        List<Product> allProducts = repo.findAll();
-        Map<LocalDate, Long> countMap = new HashMap<>();
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, key = "#id")
+    public StockLevel adjustStock(Long id, int delta) {
+        if (delta == 0) {
+            throw new IllegalArgumentException("Изменение остатка не может быть нулевым");
+        }
+        if (!applyStockDelta(id, delta, rollupService::apply)) {
+            return null;
+        }
+        catalogVersion.bump();
+        StockLevel level = repo.findStockLevel(id).orElseThrow();
+        AfterCommit.run(() -> {
+            suggestIndex.updateStock(id, level.quantity());
+            eventBus.publishStock(id, level.quantity());
+        });
+        return level;
+    }
 
-        LocalDate today = LocalDate.now();
-        LocalDate startDate = today.minusDays(14);
+    /**
+     * Изменяет остатки нескольких продуктов одной транзакцией: либо применяются все изменения, либо ни одно.
+     * <p>
+     * Изменения применяются в порядке идентификаторов продуктов, чтобы параллельные пакеты блокировали строки
+     * в одном порядке и не взаимоблокировались; изменения одного продукта применяются в порядке запроса.
+     * Изменения сводки поставок суммируются и записываются один раз.
+     *
+     * @param adjustments изменения остатков, не больше {@link #MAX_STOCK_BATCH}
+     * @return остатки после изменения в порядке запроса
+     * @throws InsufficientStockException если остатка какого-либо продукта не хватает
+     * @throws IllegalArgumentException   если пакет пуст или слишком велик, изменение нулевое или продукт не найден
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, allEntries = true)
+    public List<StockLevel> adjustStock(List<StockAdjustment> adjustments) {
+        if (adjustments.isEmpty() || adjustments.size() > MAX_STOCK_BATCH) {
+            throw new IllegalArgumentException("Пакет должен содержать от 1 до " + MAX_STOCK_BATCH + " изменений");
+        }
+        for (StockAdjustment adjustment : adjustments) {
+            if (adjustment.productId() == null || adjustment.delta() == null || adjustment.delta() == 0) {
+                throw new IllegalArgumentException("В каждом изменении нужны productId и ненулевой delta");
+            }
+        }
+        List<StockAdjustment> ordered = new ArrayList<>(adjustments);
+        ordered.sort(Comparator.comparing(StockAdjustment::productId)); // Сортировка устойчива
 
-        for (Product product : allProducts) {
-            LocalDate deliveryDate = product.getDeliveryDate();
+        DeliveryRollupService.Batch rollup = rollupService.batch();
+        for (StockAdjustment adjustment : ordered) {
+            if (!applyStockDelta(adjustment.productId(), adjustment.delta(), rollup::add)) {
+                throw new IllegalArgumentException("Продукт " + adjustment.productId() + " не найден");
+            }
+        }
+        rollup.flush();
+        catalogVersion.bump();
+
+        Map<Long, StockLevel> levels = new HashMap<>();
+        List<StockLevel> result = new ArrayList<>(adjustments.size());
+        for (StockAdjustment adjustment : adjustments) {
+            result.add(levels.computeIfAbsent(adjustment.productId(), id -> repo.findStockLevel(id).orElseThrow()));
+        }
+        AfterCommit.run(() -> levels.values().forEach(level -> {
+            suggestIndex.updateStock(level.productId(), level.quantity());
+            eventBus.publishStock(level.productId(), level.quantity());
+        }));
+        return result;
+    }
+
+    /**
+     * Выполняет условное изменение остатка и передаёт изменение сводки поставок в {@code rollup}.
+     *
+     * @return {@code false}, если продукт не найден
+     * @throws InsufficientStockException если остатка не хватает
+     */
+    private boolean applyStockDelta(Long id, int delta,
+                                    BiConsumer<ProductRollupState, ProductRollupState> rollup) {
+        if (repo.adjustQuantity(id, delta, Math.max(0, -delta)) == 0) {
+            if (repo.findStockLevel(id).isEmpty()) {
+                return false;
+            }
+            throw new InsufficientStockException(id, delta);
+        }
+        ProductRollupState after = repo.findRollupState(id).orElseThrow();
+        rollup.accept(new ProductRollupState(after.deliveryDate(), after.categoryId(), after.quantity() - delta),
+                after);
+        return true;
+    }
+
+    /**
+     * Ищет продукты по ключевому слову в названии, категории, производителе и дате поставки.
+     * <p>
+     * Способ поиска задаётся свойством {@code pharm.search.mode} (см. {@link SearchMode}). Внутрипроцессный
+     * индекс {@link ProductSearchIndex} и полнотекстовый поиск упорядочивают результаты по релевантности,
+     * запрос LIKE — по идентификатору. Пока индекс не построен, используется запрос LIKE.
+     *
+     * @param keyword ключевое слово
+     * @return строки найденных продуктов
+     */
+    public List<ProductRow> search(String keyword) {
+        // Одновременные одинаковые запросы при неизменном каталоге выполняют поиск один раз
+        return stockLedger.overlay(rowsFlight.execute(catalogKey("search", keyword), () -> searchRows(keyword)));
+    }
+
+    /**
+     * Ищет продукты по ключевому слову с фильтром по фасетам и, при необходимости, с подсчётом фасетов:
+     * категорий, производителей, ценовых диапазонов и наличия на складе.
+     * <p>
+     * Фасеты считаются в памяти за один проход по найденным продуктам (см. {@link ProductFacets}), остатки
+     * берутся с учётом журнала {@link StockLedger}. Без ключевого слова фасеты считаются по всему каталогу; его строки
+     * кэшируются до следующего изменения каталога.
+     *
+     * @param keyword    ключевое слово или {@code null}
+     * @param filter     выбранные значения фасетов
+     * @param limit      количество продуктов в выдаче, от 1 до {@link #MAX_PAGE_SIZE}
+     * @param withFacets считать ли фасеты
+     * @return первые найденные продукты, их количество и фасеты
+     * @throws IllegalArgumentException если размер выдачи или номер ценового диапазона вне допустимых пределов
+     */
+    public FacetedSearchResult facetedSearch(String keyword, ProductFacetFilter filter, int limit,
+                                             boolean withFacets) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер выдачи должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        for (int band : filter.priceBands()) {
+            if (band < 0 || band > priceBandEdges.length) {
+                throw new IllegalArgumentException("Неизвестный ценовой диапазон: " + band);
+            }
+        }
+        List<ProductRow> hits = keyword == null || keyword.isBlank() ? findAllRows() : search(keyword);
+        return ProductFacets.compute(hits, filter, priceBandEdges, limit, withFacets);
+    }
+
+    /**
+     * Подсказки для строки поиска по началу названия, производителя или категории из индекса {@link ProductSuggestIndex}.
+     *
+     * @param prefix начало текста
+     * @param limit  количество подсказок
+     * @return подсказки по убыванию суммарного остатка
+     */
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        return suggestIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * Получает страницу результатов поиска в порядке релевантности с постраничной навигацией по смещению.
+     * <p>
+     * При полнотекстовом поиске страница и общее количество выбираются в базе ({@code LIMIT ... OFFSET}),
+     * в остальных режимах страница вырезается из полного результата {@link #search(String)}. Курсор следующей
+     * страницы — смещение её первой строки. Подсчёт общего количества выполняется только в режиме
+     * {@link CountMode#EXACT}.
+     *
+     * @param keyword   ключевое слово
+     * @param cursor    курсор, полученный с предыдущей страницей, или {@code null} для первой страницы
+     * @param size      запрошенный размер страницы
+     * @param countMode режим подсчёта общего количества
+     * @return страница продуктов
+     * @throws IllegalArgumentException если ключевое слово не задано или курсор повреждён
+     */
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_PAGES, keyGenerator = "catalogKeyGenerator")
+    public ProductPage findRelevancePage(String keyword, String cursor, int size, CountMode countMode) {
+        if (keyword == null || keyword.isBlank()) {
+            throw new IllegalArgumentException("Для сортировки по релевантности нужно ключевое слово");
+        }
+        int offset = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                offset = Integer.parseInt(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor, e);
+            }
+            if (offset < 0) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+            }
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        List<ProductRow> rows;
+        Long total = null;
+        if (searchMode == SearchMode.FULLTEXT) {
+            // Запрашиваем на одну строку больше, чтобы понять, есть ли следующая страница
+            rows = repo.searchFulltext(keyword, offset, limit + 1);
+            if (offset == 0) {
+                countSearch("fulltext", !rows.isEmpty());
+            }
+            if (countMode == CountMode.EXACT) {
+                total = repo.countFulltext(keyword);
+            }
+        } else {
+            List<ProductRow> all = rowsFlight.execute(catalogKey("search", keyword), () -> searchRows(keyword));
+            rows = all.subList(Math.min(offset, all.size()), (int) Math.min((long) offset + limit + 1, all.size()));
+            if (countMode == CountMode.EXACT) {
+                total = (long) all.size();
+            }
+        }
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            nextCursor = String.valueOf(offset + limit);
+        }
+        return new ProductPage(List.copyOf(rows), nextCursor, total, false);
+    }
+
+    private List<ProductRow> searchRows(String keyword) {
+        if (searchMode == SearchMode.FULLTEXT) {
+            List<ProductRow> rows = repo.searchFulltext(keyword, 0, Integer.MAX_VALUE);
+            countSearch("fulltext", !rows.isEmpty());
+            return rows;
+        }
+        List<Long> ids = searchMode == SearchMode.INDEX ? searchIndex.search(keyword) : null;
+        if (ids == null) {
+            List<ProductRow> rows = repo.search(keyword);
+            countSearch("database", !rows.isEmpty());
+            return rows;
+        }
+        countSearch("index", !ids.isEmpty());
+        Map<Long, ProductRow> byId = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size()));
+            repo.findRowsByIdIn(batch).forEach(row -> byId.put(row.id(), row));
+        }
+        List<ProductRow> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductRow product = byId.get(id);
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Получает страницу продуктов с серверной сортировкой и keyset-пагинацией.
+     * <p>
+     * Размер страницы ограничивается значением {@link #MAX_PAGE_SIZE}. Курсор должен быть получен
+     * из предыдущей страницы с той же сортировкой. Страницы кэшируются с ключом, включающим версию каталога,
+     * поэтому после любой записи в каталог устаревшая страница не выдаётся.
+     *
+     * @param keyword   ключевое слово для фильтрации (может быть {@code null})
+     * @param sort      поле сортировки
+     * @param ascending направление сортировки
+     * @param cursor    курсор предыдущей страницы или {@code null} для первой страницы
+     * @param size      запрошенный размер страницы
+     * @param countMode режим подсчёта общего количества
+     * @return страница продуктов
+     * @throws IllegalArgumentException если курсор повреждён или получен для другой сортировки
+     */
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_PAGES, keyGenerator = "catalogKeyGenerator")
+    public ProductPage findPage(String keyword, ProductSortField sort, boolean ascending, String cursor,
+                                int size, CountMode countMode) {
+        ProductCursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            after = ProductCursor.decode(cursor);
+            if (after.sort() != sort || after.ascending() != ascending) {
+                throw new IllegalArgumentException("Курсор получен для другой сортировки");
+            }
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        // Если индекс или полнотекстовый поиск нашёл немного продуктов, ограничиваем выборку их идентификаторами
+        // вместо сканирования LIKE
+        List<Long> hits = keyword != null && !keyword.isEmpty() ? searchIds(keyword) : null;
+        String source = searchMode == SearchMode.FULLTEXT ? "fulltext" : "index";
+        if (hits != null && hits.isEmpty()) {
+            if (after == null) {
+                countSearch(source, false);
+            }
+            return new ProductPage(List.of(), null, countMode == CountMode.NONE ? null : 0L, false);
+        }
+        boolean byIndex = hits != null && hits.size() <= MAX_INDEXED_HITS_PER_QUERY;
+
+        // Запрашиваем на одну строку больше, чтобы понять, есть ли следующая страница
+        List<ProductRow> rows = byIndex
+                ? repo.findKeyset(null, hits, sort, ascending, after, limit + 1)
+                : repo.findKeyset(keyword, null, sort, ascending, after, limit + 1);
+        if (after == null && keyword != null && !keyword.isEmpty()) {
+            countSearch(byIndex ? source : "database", !rows.isEmpty());
+        }
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            nextCursor = ProductCursor.after(sort, ascending, rows.get(limit - 1)).encode();
+        }
+
+        Long total = null;
+        boolean estimated = false;
+        if (byIndex && countMode != CountMode.NONE) {
+            total = (long) hits.size();
+        } else if (countMode == CountMode.EXACT) {
+            total = repo.countByKeyword(keyword);
+        } else if (countMode == CountMode.ESTIMATE && (keyword == null || keyword.isEmpty())) {
+            // Дешёвая оценка доступна только для всей таблицы; для поиска по ключевому слову её нет
+            total = estimateTotal();
+            estimated = true;
+        }
+        return new ProductPage(rows, nextCursor, total, estimated);
+    }
+
+    /**
+     * Идентификаторы продуктов, найденных индексом или полнотекстовым поиском, для фильтрации страницы.
+     * Полнотекстовый поиск возвращает не больше {@link #MAX_INDEXED_HITS_PER_QUERY} + 1 идентификатора:
+     * этого достаточно, чтобы понять, что совпадений слишком много для фильтрации по идентификаторам.
+     *
+     * @return идентификаторы или {@code null}, если выборку нужно фильтровать запросом LIKE
+     */
+    private List<Long> searchIds(String keyword) {
+        return switch (searchMode) {
+            case INDEX -> searchIndex.search(keyword);
+            case FULLTEXT -> repo.searchFulltext(keyword, 0, MAX_INDEXED_HITS_PER_QUERY + 1).stream()
+                    .map(ProductRow::id)
+                    .toList();
+            case LIKE -> null;
+        };
+    }
+
+    /**
+     * Учитывает поисковый запрос в метрике {@link #SEARCH_METRIC}.
+     * Для постраничной выдачи учитывается только первая страница.
+     */
+    private void countSearch(String source, boolean found) {
+        meterRegistry.counter(SEARCH_METRIC, "source", source, "result", found ? "hit" : "miss").increment();
+    }
 
-            // Учитываем только те продукты, которые были поставлены за последние 14 дней
-            if (deliveryDate != null && !deliveryDate.isBefore(startDate) && !deliveryDate.isAfter(today)) {
-                // Добавляем количество "В наличии" (quantity) к соответствующей дате поставки
-                Long availableCount = (long) product.getQuantity();  // Используем поле quantity
-                countMap.put(deliveryDate, countMap.getOrDefault(deliveryDate, 0L) + availableCount);
+    /**
+     * Оценивает количество продуктов по статистике таблицы, при недоступности статистики считает точно.
+     *
+     * @return количество продуктов
+     */
+    private long estimateTotal() {
+        try {
+            Number estimate = repo.estimateCount();
+            if (estimate != null) {
+                return estimate.longValue();
             }
+        } catch (DataAccessException e) {
+            // Статистика information_schema недоступна (например, не MySQL) — считаем точно
         }
+        return repo.count();
+    }
 
-        // Сортировка по дате в порядке возрастания
-        return countMap.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByKey())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
+    /**
+     * Получает статистику по количеству продуктов, поставленных в последние 14 дней.
+     * <p>
+     * Данные берутся из сводки поставок {@link DeliveryRollupService}, а не из таблицы продуктов.
+     *
+     * @return карта, где ключом является дата поставки, а значением - количество продуктов, поставленных в эту дату.
+     *         Продукты учитываются только за последние 14 дней.
+     */
+    public Map<LocalDate, Long> getProductsCountByDeliveryDate() {
+        LocalDate today = LocalDate.now();
+        return histogramFlight.execute(catalogKey("daily", today),
+                () -> rollupService.dailyTotals(today.minusDays(14), today));
+    }
+
+    /**
+     * Ключ объединения запросов: параметры запроса и версия данных каталога, включая изменения журнала остатков.
+     */
+    private List<Object> catalogKey(Object... parts) {
+        List<Object> key = new ArrayList<>(parts.length + 2);
+        key.add(catalogVersion.current());
+        key.add(stockLedger.changeCount());
+        key.addAll(Arrays.asList(parts));
+        return key;
     }
 
 }
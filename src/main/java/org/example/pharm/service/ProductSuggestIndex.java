@@ -0,0 +1,676 @@
+package org.example.pharm.service;
+
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.ProductSuggestion;
+import org.example.pharm.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Внутрипроцессный индекс подсказок для строки поиска: названия продуктов, производители и категории по префиксу.
+ * <p>
+ * Термы (значения полей в нижнем регистре с признаком поля) хранятся отсортированными в общем массиве символов
+ * со смещениями, поэтому диапазон термов с заданным префиксом находится двумя двоичными поисками без создания
+ * строк. Для каждого терма ведутся суммарный остаток и количество продуктов в примитивных массивах; дерево отрезков
+ * над термами хранит в узле номер лучшего терма поддиапазона, поэтому k лучших термов префикса извлекаются
+ * за O(k log n), а изменение остатка продукта обновляет дерево за O(log n).
+ * <p>
+ * Записи применяются к индексу на месте. Термы, которых нет в словаре (новые названия), попадают в небольшой
+ * дополнительный набор; когда он разрастается, словарь пересобирается в фоновом потоке, а записи, пришедшие
+ * во время пересборки, повторяются на новом словаре.
+ */
+@Component
+public class ProductSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    /** Максимальное количество подсказок в ответе. */
+    public static final int MAX_LIMIT = 50;
+
+    /** Размер дополнительного набора термов и продуктов, после которого словарь пересобирается. */
+    static final int MERGE_THRESHOLD = 1024;
+
+    /** Разделитель значения и признака поля в терме; в нормализованных значениях не встречается. */
+    private static final char SEPARATOR = '\u0000';
+
+    private static final char[] KINDS = {'n', 'm', 'c'};
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "product-suggest-merge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private State state = State.build(List.of()); // Защищено lock
+    private List<Consumer<State>> replay; // Записи во время пересборки, защищено lock
+    private volatile boolean ready;
+
+    /**
+     * Полностью перестраивает индекс по данным из базы. Вызывается при старте приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        int terms = rebuild(() -> productRepository.findAllRows().stream().map(Doc::of).toList());
+        ready = true;
+        log.info("Индекс подсказок построен: {} термов за {} мс", terms, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Запускает полное перестроение индекса в фоновом потоке.
+     * Используется после массовых изменений и переименования категорий.
+     */
+    public void rebuildAsync() {
+        merger.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Не удалось перестроить индекс подсказок", e);
+            }
+        });
+    }
+
+    /**
+     * Готов ли индекс (завершено первичное построение).
+     *
+     * @return {@code true}, если индекс построен
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Добавляет или обновляет продукт в индексе.
+     *
+     * @param product строка сохранённого продукта с актуальным остатком
+     */
+    public void upsert(ProductRow product) {
+        Doc doc = Doc.of(product);
+        apply(current -> current.upsert(doc));
+    }
+
+    /**
+     * Добавляет или обновляет несколько продуктов.
+     *
+     * @param products строки сохранённых продуктов с актуальными остатками
+     */
+    public void upsertAll(Collection<ProductRow> products) {
+        List<Doc> docs = products.stream().map(Doc::of).toList();
+        apply(current -> docs.forEach(current::upsert));
+    }
+
+    /**
+     * Удаляет продукт из индекса.
+     *
+     * @param id идентификатор продукта
+     */
+    public void remove(Long id) {
+        apply(current -> current.remove(id));
+    }
+
+    /**
+     * Обновляет остаток продукта, от которого зависит порядок подсказок.
+     *
+     * @param id       идентификатор продукта
+     * @param quantity остаток после изменения
+     */
+    public void updateStock(Long id, int quantity) {
+        apply(current -> current.updateStock(id, quantity));
+    }
+
+    /**
+     * Подсказки, начинающиеся с префикса (без учёта регистра), по убыванию суммарного остатка,
+     * затем количества продуктов, затем по алфавиту.
+     *
+     * @param prefix начало названия, производителя или категории
+     * @param limit  количество подсказок, приводится к диапазону от 1 до {@link #MAX_LIMIT}
+     * @return подсказки; пустой список, если префикс пуст или индекс ещё не построен
+     */
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (!ready || normalized == null) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return state.suggest(normalized, Math.max(1, Math.min(limit, MAX_LIMIT)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        merger.shutdownNow();
+    }
+
+    /**
+     * Применяет запись к текущему состоянию и запоминает её, если идёт пересборка.
+     * Все записи задают абсолютные значения, поэтому повторное применение безопасно.
+     */
+    private void apply(Consumer<State> op) {
+        boolean merge;
+        lock.writeLock().lock();
+        try {
+            op.accept(state);
+            if (replay != null) {
+                replay.add(op);
+            }
+            merge = ready && state.extraSize() >= MERGE_THRESHOLD;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (merge && mergeScheduled.compareAndSet(false, true)) {
+            merger.execute(() -> {
+                try {
+                    merge();
+                } catch (RuntimeException e) {
+                    log.error("Не удалось пересобрать словарь подсказок", e);
+                } finally {
+                    mergeScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Пересобирает словарь по текущему содержимому индекса, без обращения к базе.
+     */
+    private void merge() {
+        // Снимок берётся после начала записи повтора: записи, попавшие и в снимок, и в повтор, применятся дважды,
+        // что безопасно
+        rebuild(() -> {
+            lock.readLock().lock();
+            try {
+                return state.docs();
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Строит новое состояние по документам из источника и заменяет им текущее. Записи, пришедшие после начала
+     * пересборки, повторяются на новом состоянии.
+     *
+     * @return количество термов нового словаря
+     */
+    private int rebuild(Supplier<List<Doc>> source) {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                replay = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            State built = null;
+            try {
+                built = State.build(source.get());
+                return built.offsets.length - 1;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (built != null) {
+                        for (Consumer<State> op : replay) {
+                            op.accept(built);
+                        }
+                        state = built;
+                    }
+                    replay = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.strip().toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() || normalized.indexOf(SEPARATOR) >= 0 ? null : normalized;
+    }
+
+    /**
+     * Терм поля: нормализованное значение и признак поля или {@code null}, если поле пусто.
+     */
+    private static String key(String value, int kind) {
+        String normalized = normalize(value);
+        return normalized != null ? normalized + SEPARATOR + KINDS[kind] : null;
+    }
+
+    private static ProductSuggestion.Type type(String key) {
+        return switch (key.charAt(key.length() - 1)) {
+            case 'n' -> ProductSuggestion.Type.NAME;
+            case 'm' -> ProductSuggestion.Type.MANUFACTURER;
+            default -> ProductSuggestion.Type.CATEGORY;
+        };
+    }
+
+    /**
+     * Индексируемые поля продукта.
+     */
+    record Doc(long id, String[] values, int quantity) {
+
+        static Doc of(ProductRow product) {
+            return new Doc(product.id(),
+                    new String[]{strip(product.name()), strip(product.manufacturer()), strip(product.categoryName())},
+                    product.quantity() != null ? product.quantity() : 0);
+        }
+
+        String key(int kind) {
+            return ProductSuggestIndex.key(values[kind], kind);
+        }
+
+        Doc withQuantity(int newQuantity) {
+            return new Doc(id, values, newQuantity);
+        }
+
+        private static String strip(String value) {
+            return value != null ? value.strip() : null;
+        }
+    }
+
+    /**
+     * Терм вне словаря с накопленными весами.
+     */
+    static final class ExtraTerm {
+        final String display;
+        long stock;
+        int count;
+
+        ExtraTerm(String display) {
+            this.display = display;
+        }
+    }
+
+    /**
+     * Кандидат в подсказки при выборке.
+     */
+    private record Candidate(String key, String display, long stock, int count) {
+        static final Comparator<Candidate> ORDER = Comparator.comparingLong(Candidate::stock).reversed()
+                .thenComparing(Comparator.comparingInt(Candidate::count).reversed())
+                .thenComparing(Candidate::key);
+    }
+
+    /**
+     * Состояние индекса: неизменяемый словарь с изменяемыми весами, продукты словаря
+     * и дополнительный набор для термов и продуктов, не попавших в словарь.
+     */
+    static final class State {
+
+        // Словарь: термы по возрастанию в общем массиве символов, терм i занимает [offsets[i], offsets[i + 1])
+        final char[] chars;
+        final int[] offsets;
+        final String[] display;
+        final long[] stock;
+        final int[] count;
+        // Дерево отрезков: узел хранит номер лучшего терма поддиапазона или -1
+        final int[] tree;
+        final int leaves;
+
+        // Продукты словаря по возрастанию идентификатора: остаток и номера термов трёх полей (-1 — поле пусто)
+        final long[] ids;
+        final int[] quantities;
+        final int[] terms;
+        // Продукты словаря, удалённые или перенесённые в дополнительный набор
+        final BitSet detached = new BitSet();
+
+        final Map<Long, Doc> extraDocs = new HashMap<>();
+        final TreeMap<String, ExtraTerm> extraTerms = new TreeMap<>();
+
+        private State(char[] chars, int[] offsets, String[] display, long[] ids) {
+            int n = display.length;
+            this.chars = chars;
+            this.offsets = offsets;
+            this.display = display;
+            this.stock = new long[n];
+            this.count = new int[n];
+            int size = 1;
+            while (size < n) {
+                size <<= 1;
+            }
+            this.leaves = size;
+            this.tree = new int[2 * size];
+            this.ids = ids;
+            this.quantities = new int[ids.length];
+            this.terms = new int[ids.length * KINDS.length];
+        }
+
+        static State build(List<Doc> source) {
+            Map<String, String> displayByKey = new HashMap<>();
+            for (Doc doc : source) {
+                for (int kind = 0; kind < KINDS.length; kind++) {
+                    String key = doc.key(kind);
+                    if (key != null) {
+                        displayByKey.putIfAbsent(key, doc.values()[kind]);
+                    }
+                }
+            }
+            List<String> keys = new ArrayList<>(displayByKey.keySet());
+            keys.sort(null);
+            int length = 0;
+            for (String key : keys) {
+                length += key.length();
+            }
+            char[] chars = new char[length];
+            int[] offsets = new int[keys.size() + 1];
+            String[] display = new String[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                key.getChars(0, key.length(), chars, offsets[i]);
+                offsets[i + 1] = offsets[i] + key.length();
+                display[i] = displayByKey.get(key);
+            }
+
+            List<Doc> docs = new ArrayList<>(source);
+            docs.sort(Comparator.comparingLong(Doc::id));
+            long[] ids = new long[docs.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = docs.get(i).id();
+            }
+            State state = new State(chars, offsets, display, ids);
+            for (int slot = 0; slot < ids.length; slot++) {
+                Doc doc = docs.get(slot);
+                state.quantities[slot] = doc.quantity();
+                for (int kind = 0; kind < KINDS.length; kind++) {
+                    String key = doc.key(kind);
+                    int term = key != null ? state.find(key) : -1;
+                    state.terms[slot * KINDS.length + kind] = term;
+                    if (term >= 0) {
+                        state.stock[term] += doc.quantity();
+                        state.count[term]++;
+                    }
+                }
+            }
+            for (int i = 0; i < state.leaves; i++) {
+                state.tree[state.leaves + i] = i < display.length ? i : -1;
+            }
+            for (int node = state.leaves - 1; node > 0; node--) {
+                state.tree[node] = state.better(state.tree[2 * node], state.tree[2 * node + 1]);
+            }
+            return state;
+        }
+
+        int size() {
+            return ids.length - detached.cardinality() + extraDocs.size();
+        }
+
+        int extraSize() {
+            return extraDocs.size() + extraTerms.size();
+        }
+
+        void upsert(Doc doc) {
+            remove(doc.id());
+            int slot = slot(doc.id());
+            boolean inDictionary = slot >= 0;
+            int[] found = new int[KINDS.length];
+            for (int kind = 0; kind < KINDS.length; kind++) {
+                String key = doc.key(kind);
+                found[kind] = key != null ? find(key) : -1;
+                if (key != null && found[kind] < 0) {
+                    inDictionary = false;
+                }
+            }
+            if (inDictionary) {
+                detached.clear(slot);
+                quantities[slot] = doc.quantity();
+                for (int kind = 0; kind < KINDS.length; kind++) {
+                    terms[slot * KINDS.length + kind] = found[kind];
+                    if (found[kind] >= 0) {
+                        adjust(found[kind], doc.quantity(), 1);
+                    }
+                }
+            } else {
+                extraDocs.put(doc.id(), doc);
+                contribute(doc, 1);
+            }
+        }
+
+        void remove(long id) {
+            int slot = slot(id);
+            if (slot >= 0 && !detached.get(slot)) {
+                for (int kind = 0; kind < KINDS.length; kind++) {
+                    int term = terms[slot * KINDS.length + kind];
+                    if (term >= 0) {
+                        adjust(term, -quantities[slot], -1);
+                    }
+                }
+                detached.set(slot);
+                return;
+            }
+            Doc extra = extraDocs.remove(id);
+            if (extra != null) {
+                contribute(extra, -1);
+            }
+        }
+
+        void updateStock(long id, int quantity) {
+            int slot = slot(id);
+            if (slot >= 0 && !detached.get(slot)) {
+                int delta = quantity - quantities[slot];
+                quantities[slot] = quantity;
+                for (int kind = 0; kind < KINDS.length; kind++) {
+                    int term = terms[slot * KINDS.length + kind];
+                    if (term >= 0 && delta != 0) {
+                        adjust(term, delta, 0);
+                    }
+                }
+                return;
+            }
+            Doc extra = extraDocs.get(id);
+            if (extra != null) {
+                contribute(extra, -1);
+                Doc updated = extra.withQuantity(quantity);
+                extraDocs.put(id, updated);
+                contribute(updated, 1);
+            }
+        }
+
+        /**
+         * Все продукты индекса, поля берутся из словаря.
+         */
+        List<Doc> docs() {
+            List<Doc> docs = new ArrayList<>(size());
+            for (int slot = 0; slot < ids.length; slot++) {
+                if (detached.get(slot)) {
+                    continue;
+                }
+                String[] values = new String[KINDS.length];
+                for (int kind = 0; kind < KINDS.length; kind++) {
+                    int term = terms[slot * KINDS.length + kind];
+                    values[kind] = term >= 0 ? display[term] : null;
+                }
+                docs.add(new Doc(ids[slot], values, quantities[slot]));
+            }
+            docs.addAll(extraDocs.values());
+            return docs;
+        }
+
+        List<ProductSuggestion> suggest(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            List<Candidate> candidates = new ArrayList<>();
+
+            // Лучшие термы словаря: извлекаем максимум диапазона и делим диапазон по нему
+            Comparator<int[]> byBest = (a, b) -> a[2] == b[2] ? 0 : better(a[2], b[2]) == a[2] ? -1 : 1;
+            PriorityQueue<int[]> ranges = new PriorityQueue<>(byBest);
+            offer(ranges, from, to);
+            while (!ranges.isEmpty() && candidates.size() < limit) {
+                int[] range = ranges.poll();
+                int term = range[2];
+                if (count[term] <= 0) {
+                    break; // Остальные термы диапазона не хуже только пустых
+                }
+                candidates.add(new Candidate(term(term), display[term], stock[term], count[term]));
+                offer(ranges, range[0], term);
+                offer(ranges, term + 1, range[1]);
+            }
+
+            for (Map.Entry<String, ExtraTerm> entry
+                    : extraTerms.subMap(prefix, prefix + Character.MAX_VALUE).entrySet()) {
+                ExtraTerm extra = entry.getValue();
+                candidates.add(new Candidate(entry.getKey(), extra.display, extra.stock, extra.count));
+            }
+            candidates.sort(Candidate.ORDER);
+
+            List<ProductSuggestion> result = new ArrayList<>(Math.min(limit, candidates.size()));
+            for (Candidate candidate : candidates) {
+                if (result.size() == limit) {
+                    break;
+                }
+                result.add(new ProductSuggestion(candidate.display(), type(candidate.key()),
+                        candidate.stock(), candidate.count()));
+            }
+            return result;
+        }
+
+        private void offer(PriorityQueue<int[]> ranges, int from, int to) {
+            int best = best(from, to);
+            if (best >= 0) {
+                ranges.add(new int[]{from, to, best});
+            }
+        }
+
+        /**
+         * Учитывает все поля продукта из дополнительного набора или словаря.
+         */
+        private void contribute(Doc doc, int sign) {
+            for (int kind = 0; kind < KINDS.length; kind++) {
+                String key = doc.key(kind);
+                if (key == null) {
+                    continue;
+                }
+                int term = find(key);
+                if (term >= 0) {
+                    adjust(term, (long) sign * doc.quantity(), sign);
+                } else {
+                    String display = doc.values()[kind];
+                    ExtraTerm extra = extraTerms.computeIfAbsent(key, k -> new ExtraTerm(display));
+                    extra.stock += (long) sign * doc.quantity();
+                    extra.count += sign;
+                    if (extra.count <= 0) {
+                        extraTerms.remove(key);
+                    }
+                }
+            }
+        }
+
+        private void adjust(int term, long stockDelta, int countDelta) {
+            stock[term] += stockDelta;
+            count[term] += countDelta;
+            for (int node = (leaves + term) >> 1; node > 0; node >>= 1) {
+                tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        /**
+         * Номер лучшего терма в диапазоне [from, to) или -1, если диапазон пуст.
+         */
+        private int best(int from, int to) {
+            int best = -1;
+            for (int lo = from + leaves, hi = to + leaves; lo < hi; lo >>= 1, hi >>= 1) {
+                if ((lo & 1) == 1) {
+                    best = better(best, tree[lo++]);
+                }
+                if ((hi & 1) == 1) {
+                    best = better(best, tree[--hi]);
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Лучший из двух термов: больше остаток, затем больше продуктов, затем раньше по алфавиту.
+         */
+        private int better(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            if (stock[a] != stock[b]) {
+                return stock[a] > stock[b] ? a : b;
+            }
+            if (count[a] != count[b]) {
+                return count[a] > count[b] ? a : b;
+            }
+            return Math.min(a, b);
+        }
+
+        private int slot(long id) {
+            int slot = Arrays.binarySearch(ids, id);
+            return slot >= 0 ? slot : -1;
+        }
+
+        private int find(String key) {
+            int term = lowerBound(key);
+            return term < display.length && compare(term, key) == 0 ? term : -1;
+        }
+
+        /**
+         * Номер первого терма, не меньшего {@code key}.
+         */
+        private int lowerBound(String key) {
+            int lo = 0;
+            int hi = display.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(mid, key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private int compare(int term, String key) {
+            int start = offsets[term];
+            int length = offsets[term + 1] - start;
+            int common = Math.min(length, key.length());
+            for (int i = 0; i < common; i++) {
+                int diff = chars[start + i] - key.charAt(i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return length - key.length();
+        }
+
+        private String term(int term) {
+            return new String(chars, offsets[term], offsets[term + 1] - offsets[term]);
+        }
+    }
+}
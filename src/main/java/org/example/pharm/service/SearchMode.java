@@ -0,0 +1,23 @@
+package org.example.pharm.service;
+
+import org.example.pharm.repository.ProductRepository;
+
+/**
+ * Способ поиска продуктов по ключевому слову (свойство {@code pharm.search.mode}).
+ */
+public enum SearchMode {
+
+    /** Запрос {@link ProductRepository#search(String)}: поиск подстроки через LIKE с просмотром всей таблицы. */
+    LIKE,
+
+    /**
+     * Полнотекстовый поиск MySQL {@link ProductRepository#searchFulltext(String, int, int)} с упорядочиванием
+     * по релевантности. Требует MySQL и полнотекстовых индексов из миграций.
+     */
+    FULLTEXT,
+
+    /**
+     * Внутрипроцессный индекс {@link ProductSearchIndex}; пока индекс строится, используется {@link #LIKE}.
+     */
+    INDEX
+}
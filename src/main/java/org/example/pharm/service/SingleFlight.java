@@ -0,0 +1,123 @@
+package org.example.pharm.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных запросов (single-flight).
+ * <p>
+ * Первый вызов с данным ключом (ведущий) выполняет загрузку в своём потоке; вызовы с тем же ключом, пришедшие,
+ * пока загрузка не завершена, ждут её результата (или исключения) вместо повторного выполнения. Результат
+ * не кэшируется: следующий вызов после завершения загрузки выполнит её заново. Ключ должен включать всё,
+ * от чего зависит результат, в том числе версию данных, чтобы запрос после записи не получил результат,
+ * загруженный до неё.
+ * <p>
+ * Ожидающий вызов ждёт не дольше заданного времени, после чего выполняет загрузку сам: медленный ведущий
+ * не задерживает остальных неограниченно. Количество вызовов публикуется в метрике {@link #METRIC}
+ * с тегами {@code name} и {@code result}: {@code leader}, {@code coalesced} или {@code timeout}.
+ *
+ * @param <K> тип ключа
+ * @param <V> тип результата; результат передаётся всем ожидающим и не должен изменяться
+ */
+public class SingleFlight<K, V> {
+
+    /** Метрика вызовов с объединением. */
+    public static final String METRIC = "pharm.singleflight.calls";
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration defaultTimeout;
+    private final Counter leaders;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    /**
+     * @param name           имя для метрик
+     * @param defaultTimeout время ожидания чужой загрузки по умолчанию
+     * @param meterRegistry  реестр метрик
+     */
+    public SingleFlight(String name, Duration defaultTimeout, MeterRegistry meterRegistry) {
+        this.defaultTimeout = defaultTimeout;
+        this.leaders = meterRegistry.counter(METRIC, "name", name, "result", "leader");
+        this.coalesced = meterRegistry.counter(METRIC, "name", name, "result", "coalesced");
+        this.timeouts = meterRegistry.counter(METRIC, "name", name, "result", "timeout");
+    }
+
+    /**
+     * Выполняет загрузку или присоединяется к уже выполняющейся с тем же ключом.
+     *
+     * @param key    ключ запроса
+     * @param loader загрузка
+     * @return результат загрузки
+     */
+    public V execute(K key, Supplier<V> loader) {
+        return execute(key, defaultTimeout, loader);
+    }
+
+    /**
+     * Выполняет загрузку или присоединяется к уже выполняющейся с тем же ключом.
+     *
+     * @param key     ключ запроса
+     * @param timeout время ожидания чужой загрузки, после которого загрузка выполняется самостоятельно
+     * @param loader  загрузка
+     * @return результат загрузки
+     */
+    public V execute(K key, Duration timeout, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            leaders.increment();
+            try {
+                V value = loader.get();
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        try {
+            V value = existing.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            coalesced.increment();
+            return value;
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return loader.get();
+        } catch (ExecutionException e) {
+            coalesced.increment();
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (CancellationException e) {
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание результата прервано", e);
+        }
+    }
+
+    /**
+     * Количество загрузок, выполняющихся в данный момент.
+     *
+     * @return количество ключей с незавершённой загрузкой
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,655 @@
+package org.example.pharm.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.pharm.dto.ProductPage;
+import org.example.pharm.dto.ProductRollupState;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.StockAdjustment;
+import org.example.pharm.dto.StockLevel;
+import org.example.pharm.model.Product;
+import org.example.pharm.model.StockLedgerCheckpoint;
+import org.example.pharm.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Журнал остатков с отложенной записью в базу (write-behind).
+ * <p>
+ * Включается свойством {@code pharm.stock.mode=write-behind}. Изменения остатков применяются к счётчикам
+ * в памяти, защищённым набором блокировок по идентификатору продукта (lock striping), и дописываются
+ * в локальный журнал упреждающей записи {@link StockWriteAheadLog}. Накопленные изменения записываются
+ * в таблицу продуктов одним JDBC-пакетом по расписанию ({@code pharm.stock.ledger.flush-interval-ms})
+ * или при накоплении {@code pharm.stock.ledger.flush-threshold} изменений; в той же транзакции
+ * корректируется сводка поставок и сохраняется контрольная точка журнала. При запуске изменения из
+ * сегментов журнала после контрольной точки применяются к базе (восстановление после сбоя).
+ * <p>
+ * Счётчик продукта создаётся при первом изменении по остатку из базы и остаётся в памяти; чтения через
+ * {@link ProductService#get(Long)} и списки продуктов накладывают на результат текущее значение счётчика.
+ * Журнал локален для узла, поэтому режим рассчитан на единственный экземпляр приложения.
+ * <p>
+ * Каждое изменение остатка увеличивает версию продукта в счётчике, а сброс прибавляет к версии в базе число
+ * записанных изменений, поэтому версия в базе после сброса совпадает с версией счётчика и не уменьшается
+ * после перезапуска. Полное редактирование не перезаписывает остаток в базе, а передаёт новое значение
+ * в журнал (см. {@link #set(Long, int, long)}); сверка версии и запись остатка выполняются под блокировкой
+ * продукта (см. {@link #locked(Long, Supplier)}), поэтому изменение остатка между ними не теряется.
+ */
+@Component
+public class StockLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    /** Значение {@code pharm.stock.mode}, включающее журнал. */
+    public static final String MODE = "write-behind";
+
+    private static final int STRIPES = 64;
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DeliveryRollupService rollupService;
+
+    @Autowired
+    private ProductEventBus eventBus;
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${pharm.stock.mode:direct}")
+    private String mode;
+
+    @Value("${pharm.stock.ledger.dir:data/stock-ledger}")
+    private Path directory;
+
+    @Value("${pharm.stock.ledger.flush-threshold:10000}")
+    private int flushThreshold;
+
+    @Value("${pharm.stock.ledger.fsync:false}")
+    private boolean fsync;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    // Изменения берут блокировку на чтение, сброс — на запись: так он забирает изменения и закрывает сегмент
+    // журнала атомарно относительно изменений
+    private final ReentrantReadWriteLock flushBarrier = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger unflushed = new AtomicInteger();
+    private final LongAdder changes = new LongAdder();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "stock-ledger-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean enabled;
+    private StockWriteAheadLog wal;
+
+    /**
+     * Создаёт журнал.
+     */
+    public StockLedger() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Применяет к базе изменения из журнала, не попавшие в неё до остановки, и открывает журнал для записи.
+     * Выполняется до начала обработки запросов, поэтому счётчики создаются уже по восстановленным остаткам.
+     * Оставшиеся сегменты применяются, даже если режим с тех пор выключен.
+     *
+     * @throws IOException если журнал не удалось прочитать или создать
+     */
+    @PostConstruct
+    void recover() throws IOException {
+        enabled = MODE.equalsIgnoreCase(mode);
+        if (!enabled && !Files.isDirectory(directory)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        long checkpoint = readCheckpoint();
+        SortedMap<Long, Path> segments = StockWriteAheadLog.segments(directory);
+        Map<Long, Long> deltas = new TreeMap<>();
+        Map<Long, Long> counts = new HashMap<>();
+        long last = checkpoint;
+        long records = 0;
+        for (Map.Entry<Long, Path> segment : segments.tailMap(checkpoint + 1).entrySet()) {
+            records += StockWriteAheadLog.read(segment.getValue(), deltas, counts);
+            last = segment.getKey();
+        }
+        if (last > checkpoint) {
+            long applied = last;
+            Map<Long, Pending> pending = new TreeMap<>();
+            deltas.forEach((id, delta) -> pending.put(id, new Pending(delta, counts.get(id))));
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> write(pending, applied));
+            log.info("Журнал остатков восстановлен: {} записей из сегментов {}–{}, продуктов {}",
+                    records, checkpoint + 1, last, pending.size());
+        }
+        long newest = Math.max(last, segments.isEmpty() ? 0 : segments.lastKey());
+        deleteSegmentsUpTo(newest);
+        if (enabled) {
+            wal = StockWriteAheadLog.open(directory, newest + 1, fsync);
+            log.info("Остатки ведутся в журнале с отложенной записью: {}", directory.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Включён ли режим отложенной записи остатков.
+     *
+     * @return {@code true}, если изменения остатков ведутся в журнале
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Количество изменений, сделанных журналом: изменений остатков и сбросов в базу.
+     * Растёт монотонно; вместе с {@link CatalogVersion} определяет, изменились ли данные каталога.
+     *
+     * @return количество изменений (0, если режим выключен)
+     */
+    public long changeCount() {
+        return changes.sum();
+    }
+
+    /**
+     * Изменяет остаток продукта на {@code delta}, если остатка хватает.
+     *
+     * @param id    идентификатор продукта
+     * @param delta изменение остатка: отрицательное — списание, положительное — приход
+     * @return остаток и версия продукта после изменения или {@code null}, если продукт не найден
+     * @throws InsufficientStockException если остатка не хватает для списания
+     * @throws IllegalArgumentException   если изменение нулевое
+     */
+    public StockLevel adjust(Long id, int delta) {
+        if (delta == 0) {
+            throw new IllegalArgumentException("Изменение остатка не может быть нулевым");
+        }
+        StockLevel level;
+        flushBarrier.readLock().lock();
+        ReentrantLock stripe = stripe(id);
+        stripe.lock();
+        try {
+            Entry entry = entry(id);
+            if (entry == null) {
+                return null;
+            }
+            if ((long) entry.quantity + delta < 0) {
+                throw new InsufficientStockException(id, delta);
+            }
+            record(id, entry, delta);
+            level = new StockLevel(id, entry.quantity, entry.version);
+            // Публикация под блокировкой продукта сохраняет порядок событий его остатка
+            suggestIndex.updateStock(id, entry.quantity);
+            eventBus.publishStock(id, entry.quantity);
+        } finally {
+            stripe.unlock();
+            flushBarrier.readLock().unlock();
+        }
+        scheduleFlushIfNeeded();
+        return level;
+    }
+
+    /**
+     * Изменяет остатки нескольких продуктов: либо применяются все изменения, либо ни одно.
+     * Блокировки продуктов берутся в порядке номеров, поэтому параллельные пакеты не взаимоблокируются.
+     *
+     * @param adjustments изменения остатков
+     * @return остатки и версии продуктов после изменения в порядке запроса
+     * @throws InsufficientStockException если остатка какого-либо продукта не хватает
+     * @throws IllegalArgumentException   если изменение некорректно или продукт не найден
+     */
+    public List<StockLevel> adjust(List<StockAdjustment> adjustments) {
+        TreeSet<Integer> locked = new TreeSet<>();
+        for (StockAdjustment adjustment : adjustments) {
+            if (adjustment.productId() == null || adjustment.delta() == null || adjustment.delta() == 0) {
+                throw new IllegalArgumentException("В каждом изменении нужны productId и ненулевой delta");
+            }
+            locked.add(stripeIndex(adjustment.productId()));
+        }
+        List<StockLevel> result = new ArrayList<>(adjustments.size());
+        flushBarrier.readLock().lock();
+        List<ReentrantLock> held = new ArrayList<>(locked.size());
+        try {
+            for (int index : locked) {
+                stripes[index].lock();
+                held.add(stripes[index]);
+            }
+            // Сначала проверяем весь пакет по остаткам с учётом предыдущих изменений пакета, затем применяем
+            Map<Long, Long> projected = new HashMap<>();
+            for (StockAdjustment adjustment : adjustments) {
+                Entry entry = entry(adjustment.productId());
+                if (entry == null) {
+                    throw new IllegalArgumentException("Продукт " + adjustment.productId() + " не найден");
+                }
+                long quantity = projected.getOrDefault(adjustment.productId(), (long) entry.quantity)
+                        + adjustment.delta();
+                if (quantity < 0) {
+                    throw new InsufficientStockException(adjustment.productId(), adjustment.delta());
+                }
+                projected.put(adjustment.productId(), quantity);
+            }
+            for (StockAdjustment adjustment : adjustments) {
+                record(adjustment.productId(), entries.get(adjustment.productId()), adjustment.delta());
+            }
+            for (StockAdjustment adjustment : adjustments) {
+                Entry entry = entries.get(adjustment.productId());
+                result.add(new StockLevel(adjustment.productId(), entry.quantity, entry.version));
+            }
+            for (Long id : projected.keySet()) {
+                suggestIndex.updateStock(id, entries.get(id).quantity);
+                eventBus.publishStock(id, entries.get(id).quantity);
+            }
+        } finally {
+            Collections.reverse(held);
+            held.forEach(ReentrantLock::unlock);
+            flushBarrier.readLock().unlock();
+        }
+        scheduleFlushIfNeeded();
+        return result;
+    }
+
+    /**
+     * Устанавливает остаток продукта после сохранения продукта в базе, записывая в журнал разницу с текущим
+     * значением. Используется при полном редактировании продукта, которое в этом режиме не перезаписывает
+     * остаток в базе. Версия счётчика увеличивается на приращение версии при сохранении, чтобы совпадать
+     * с версией в базе; счётчик, созданный этим вызовом, уже читает сохранённую версию.
+     *
+     * @param id               идентификатор продукта
+     * @param quantity         новый остаток, не меньше нуля
+     * @param versionIncrement на сколько сохранение увеличило версию продукта в базе
+     */
+    public void set(Long id, int quantity, long versionIncrement) {
+        flushBarrier.readLock().lock();
+        ReentrantLock stripe = stripe(id);
+        stripe.lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                entry.version += versionIncrement;
+            } else {
+                entry = entry(id);
+            }
+            if (entry != null && entry.quantity != quantity) {
+                record(id, entry, quantity - entry.quantity);
+            }
+        } finally {
+            stripe.unlock();
+            flushBarrier.readLock().unlock();
+        }
+        scheduleFlushIfNeeded();
+    }
+
+    /**
+     * Выполняет действие под блокировкой остатка продукта: пока оно выполняется, остаток и версия продукта
+     * в журнале не изменяются и сброс не забирает изменения. Полное редактирование сверяет версию продукта
+     * и передаёт новый остаток в журнал внутри действия, поэтому списание между сверкой и записью остатка
+     * не теряется, а отклоняется как конфликт версий. Пока действие выполняется, ожидающий сброс задерживает
+     * изменения остатков остальных продуктов, поэтому действие должно быть коротким.
+     * Если журнал выключен, действие выполняется без блокировки.
+     *
+     * @param id     идентификатор продукта
+     * @param action действие
+     * @param <T>    тип результата
+     * @return результат действия
+     */
+    public <T> T locked(Long id, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        flushBarrier.readLock().lock();
+        ReentrantLock stripe = stripe(id);
+        stripe.lock();
+        try {
+            return action.get();
+        } finally {
+            stripe.unlock();
+            flushBarrier.readLock().unlock();
+        }
+    }
+
+    /**
+     * Забывает счётчик удалённого продукта. Записи журнала для него при сбросе не найдут строки и будут пропущены.
+     *
+     * @param id идентификатор продукта
+     */
+    public void forget(Long id) {
+        ReentrantLock stripe = stripe(id);
+        stripe.lock();
+        try {
+            entries.remove(id);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Текущий остаток продукта по журналу.
+     *
+     * @param id идентификатор продукта
+     * @return остаток или {@code null}, если остаток продукта журналом не изменялся
+     */
+    public Integer quantity(Long id) {
+        Entry entry = entries.get(id);
+        return entry != null ? entry.quantity : null;
+    }
+
+    /**
+     * Накладывает текущие остаток и версию из журнала на продукт.
+     * Загруженный (в том числе закэшированный) продукт не изменяется: при расхождении возвращается копия.
+     *
+     * @param product продукт или {@code null}
+     * @return продукт с текущими остатком и версией
+     */
+    public Product overlay(Product product) {
+        if (product == null || entries.isEmpty()) {
+            return product;
+        }
+        Entry entry = entries.get(product.getId());
+        if (entry == null) {
+            return product;
+        }
+        int quantity = entry.quantity;
+        long version = entry.version;
+        if (Integer.valueOf(quantity).equals(product.getQuantity())
+                && Long.valueOf(version).equals(product.getVersion())) {
+            return product;
+        }
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setCategory(product.getCategory());
+        copy.setManufacturer(product.getManufacturer());
+        copy.setPrice(product.getPrice());
+        copy.setQuantity(quantity);
+        copy.setDeliveryDate(product.getDeliveryDate());
+        copy.setVersion(version);
+        return copy;
+    }
+
+    /**
+     * Накладывает текущие остатки из журнала на строки списка.
+     *
+     * @param rows строки списка
+     * @return строки с текущими остатками (тот же список, если журнал пуст)
+     */
+    public List<ProductRow> overlay(List<ProductRow> rows) {
+        if (entries.isEmpty()) {
+            return rows;
+        }
+        List<ProductRow> result = new ArrayList<>(rows.size());
+        for (ProductRow row : rows) {
+            Integer quantity = quantity(row.id());
+            result.add(quantity == null || quantity.equals(row.quantity()) ? row : row.withQuantity(quantity));
+        }
+        return result;
+    }
+
+    /**
+     * Накладывает текущие остатки из журнала на страницу списка.
+     * Порядок страницы при сортировке по остатку соответствует остаткам в базе на момент её построения.
+     *
+     * @param page страница списка
+     * @return страница с текущими остатками
+     */
+    public ProductPage overlay(ProductPage page) {
+        if (entries.isEmpty()) {
+            return page;
+        }
+        return new ProductPage(overlay(page.items()), page.nextCursor(), page.total(), page.totalEstimated());
+    }
+
+    /**
+     * Записывает накопленные изменения в таблицу продуктов одной транзакцией.
+     * Если предыдущий сброс ещё выполняется, вызов ничего не делает. При ошибке изменения остаются в памяти
+     * и в журнале и будут записаны следующим сбросом.
+     */
+    @Scheduled(fixedDelayString = "${pharm.stock.ledger.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<Long, Pending> deltas = new TreeMap<>();
+            long segment;
+            flushBarrier.writeLock().lock();
+            try {
+                entries.forEach((id, entry) -> {
+                    if (entry.pendingChanges != 0) {
+                        deltas.put(id, new Pending(entry.pending, entry.pendingChanges));
+                        entry.pending = 0;
+                        entry.pendingChanges = 0;
+                    }
+                });
+                if (deltas.isEmpty()) {
+                    return;
+                }
+                unflushed.set(0);
+                segment = wal.rotate();
+            } finally {
+                flushBarrier.writeLock().unlock();
+            }
+
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> write(deltas, segment));
+            } catch (RuntimeException e) {
+                log.error("Не удалось записать {} изменений остатков в базу, повтор при следующем сбросе",
+                        deltas.size(), e);
+                restore(deltas);
+                return;
+            }
+            changes.increment(); // Сброс изменил сводку поставок
+            deleteSegmentsUpTo(segment);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Записывает оставшиеся изменения и закрывает журнал при остановке приложения.
+     *
+     * @throws IOException если журнал не удалось закрыть
+     */
+    @PreDestroy
+    void shutdown() throws IOException {
+        flusher.shutdown();
+        if (!enabled) {
+            return;
+        }
+        flush();
+        wal.close();
+    }
+
+    /**
+     * Записывает изменения остатков и контрольную точку журнала. Выполняется в транзакции.
+     * Строки продуктов блокируются в порядке идентификатора, как при пакетном изменении остатков.
+     * Версия продукта увеличивается на число записанных изменений: так она совпадает с версией счётчика,
+     * а сохранение продукта, загруженного до сброса, отклоняется оптимистической блокировкой.
+     */
+    private void write(Map<Long, Pending> deltas, long segment) {
+        List<Long> ids = new ArrayList<>(deltas.keySet());
+        DeliveryRollupService.Batch rollup = rollupService.batch();
+        for (int from = 0; from < ids.size(); from += FLUSH_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, ids.size()));
+            List<Object[]> updates = new ArrayList<>(chunk.size());
+            jdbcTemplate.query("SELECT id, delivery_date, category_id, quantity FROM product WHERE id IN ("
+                            + String.join(",", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY id FOR UPDATE",
+                    rs -> {
+                        long id = rs.getLong("id");
+                        Pending pending = deltas.get(id);
+                        long delta = pending.delta();
+                        int quantity = rs.getInt("quantity");
+                        ProductRollupState before = new ProductRollupState(rs.getDate("delivery_date").toLocalDate(),
+                                rs.getLong("category_id"), quantity);
+                        rollup.add(before, new ProductRollupState(before.deliveryDate(), before.categoryId(),
+                                (int) (quantity + delta)));
+                        updates.add(new Object[]{delta, pending.changes(), id});
+                    },
+                    chunk.toArray());
+            jdbcTemplate.batchUpdate("UPDATE product SET quantity = quantity + ?, version = version + ? WHERE id = ?",
+                    updates);
+        }
+        // Запись идёт мимо Hibernate, поэтому продукты удаляются из кэша второго уровня, если он включён
+        AfterCommit.run(() -> ids.forEach(id -> entityManagerFactory.getCache().evict(Product.class, id)));
+        rollup.flush();
+        if (jdbcTemplate.update("UPDATE stock_ledger_checkpoint SET segment = ? WHERE id = ?",
+                segment, StockLedgerCheckpoint.ID) == 0) {
+            jdbcTemplate.update("INSERT INTO stock_ledger_checkpoint (id, segment) VALUES (?, ?)",
+                    StockLedgerCheckpoint.ID, segment);
+        }
+    }
+
+    /**
+     * Возвращает в счётчики изменения, которые не удалось записать в базу.
+     */
+    private void restore(Map<Long, Pending> deltas) {
+        flushBarrier.writeLock().lock();
+        try {
+            deltas.forEach((id, pending) -> {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    entry.pending += pending.delta();
+                    entry.pendingChanges += pending.changes();
+                }
+            });
+        } finally {
+            flushBarrier.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Дописывает изменение в журнал, затем применяет его к счётчику. Вызывается под блокировкой продукта.
+     */
+    private void record(Long id, Entry entry, int delta) {
+        wal.append(id, delta);
+        entry.quantity += delta;
+        entry.pending += delta;
+        entry.pendingChanges++;
+        entry.version++;
+        unflushed.incrementAndGet();
+        changes.increment();
+    }
+
+    /**
+     * Счётчик продукта; при первом обращении создаётся по остатку и версии из базы. Вызывается под блокировкой продукта.
+     *
+     * @return счётчик или {@code null}, если продукт не найден
+     */
+    private Entry entry(Long id) {
+        if (!enabled) {
+            throw new IllegalStateException("Журнал остатков выключен (pharm.stock.mode=" + mode + ")");
+        }
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            entry = productRepository.findStockLevel(id)
+                    .map(level -> new Entry(level.quantity(), level.version() != null ? level.version() : 0))
+                    .orElse(null);
+            if (entry != null) {
+                entries.put(id, entry);
+            }
+        }
+        return entry;
+    }
+
+    private void scheduleFlushIfNeeded() {
+        if (unflushed.get() >= flushThreshold && flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushScheduled.set(false);
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    log.error("Не удалось сбросить журнал остатков", e);
+                }
+            });
+        }
+    }
+
+    private long readCheckpoint() {
+        List<Long> segments = jdbcTemplate.queryForList(
+                "SELECT segment FROM stock_ledger_checkpoint WHERE id = ?", Long.class, StockLedgerCheckpoint.ID);
+        return segments.isEmpty() ? 0 : segments.get(0);
+    }
+
+    private void deleteSegmentsUpTo(long segment) {
+        try {
+            for (Map.Entry<Long, Path> file : StockWriteAheadLog.segments(directory).headMap(segment + 1).entrySet()) {
+                Files.deleteIfExists(file.getValue());
+            }
+        } catch (IOException e) {
+            // Применённые сегменты при следующем запуске будут пропущены по контрольной точке
+            throw new UncheckedIOException("Не удалось удалить применённые сегменты журнала остатков", e);
+        }
+    }
+
+    private ReentrantLock stripe(Long id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    private static int stripeIndex(Long id) {
+        return Long.hashCode(id * 0x9E3779B97F4A7C15L) >>> 26; // Старшие 6 бит: STRIPES = 64
+    }
+
+    /**
+     * Счётчик остатка продукта. Поля изменяются под блокировкой продукта или под блокировкой сброса.
+     */
+    private static final class Entry {
+
+        private volatile int quantity; // Текущий остаток; читается без блокировки при наложении на выдачу
+        private volatile long version; // Текущая версия продукта; читается без блокировки при наложении
+        private long pending; // Изменение, ещё не записанное в базу
+        private long pendingChanges; // Количество изменений в pending: на столько сброс увеличит версию в базе
+
+        private Entry(int quantity, long version) {
+            this.quantity = quantity;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Изменения остатка продукта, забранные для записи в базу: суммарное изменение и их количество.
+     */
+    private record Pending(long delta, long changes) {
+    }
+}
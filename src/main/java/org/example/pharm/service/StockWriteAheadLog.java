@@ -0,0 +1,192 @@
+package org.example.pharm.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Журнал упреждающей записи изменений остатков.
+ * <p>
+ * Журнал состоит из сегментов {@code segment-<номер>.wal}; запись ведётся в последний сегмент, при сбросе
+ * изменений в базу он закрывается и начинается следующий. Запись — 16 байт: идентификатор продукта (long),
+ * изменение (int) и контрольная сумма (int), по которой при чтении отбрасывается недописанный хвост.
+ * Запись попадает в файл до изменения счётчика в памяти, поэтому переживает падение процесса;
+ * при {@code fsync} она переживает и отключение питания ценой синхронной записи на диск.
+ */
+class StockWriteAheadLog implements AutoCloseable {
+
+    private static final int RECORD_SIZE = 16;
+    private static final int CHECKSUM_SEED = 0x5107C4ED;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.wal");
+
+    private final Path directory;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    private long segment; // Номер текущего сегмента, защищён lock
+    private FileChannel channel; // Защищён lock
+
+    private StockWriteAheadLog(Path directory, long segment, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+    }
+
+    /**
+     * Открывает журнал для записи, начиная новый сегмент.
+     *
+     * @param directory каталог журнала
+     * @param segment   номер первого сегмента для записи
+     * @param fsync     синхронизировать ли каждую запись с диском
+     * @return журнал
+     * @throws IOException если сегмент не удалось создать
+     */
+    static StockWriteAheadLog open(Path directory, long segment, boolean fsync) throws IOException {
+        return new StockWriteAheadLog(directory, segment, fsync);
+    }
+
+    /**
+     * Дописывает изменение остатка в текущий сегмент.
+     *
+     * @param productId идентификатор продукта
+     * @param delta     изменение остатка
+     * @throws UncheckedIOException если запись не удалась
+     */
+    void append(long productId, int delta) {
+        lock.lock();
+        try {
+            record.clear();
+            record.putLong(productId).putInt(delta).putInt(checksum(productId, delta)).flip();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать изменение остатка в журнал", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Закрывает текущий сегмент и начинает следующий.
+     *
+     * @return номер закрытого сегмента
+     * @throws UncheckedIOException если сегмент не удалось закрыть или создать
+     */
+    long rotate() {
+        lock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+            long closed = segment;
+            channel = openSegment(++segment);
+            return closed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось начать новый сегмент журнала остатков", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(directory.resolve(segmentName(number)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Сегменты журнала в каталоге в порядке номеров.
+     *
+     * @param directory каталог журнала
+     * @return номера и пути сегментов
+     * @throws IOException если каталог не удалось прочитать
+     */
+    static SortedMap<Long, Path> segments(Path directory) throws IOException {
+        SortedMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        return segments;
+    }
+
+    /**
+     * Читает записи сегмента и прибавляет изменения к {@code deltas}.
+     * Чтение останавливается на первой неполной или повреждённой записи: это недописанный при сбое хвост.
+     *
+     * @param segment путь сегмента
+     * @param deltas  суммарные изменения по продуктам
+     * @return количество прочитанных записей
+     * @throws IOException если сегмент не удалось прочитать
+     */
+    static long read(Path segment, Map<Long, Long> deltas) throws IOException {
+        return read(segment, deltas, new HashMap<>());
+    }
+
+    /**
+     * Читает записи сегмента, прибавляет изменения к {@code deltas} и количество записей по продуктам к {@code counts}.
+     *
+     * @param segment путь сегмента
+     * @param deltas  суммарные изменения по продуктам
+     * @param counts  количество изменений по продуктам
+     * @return количество прочитанных записей
+     * @throws IOException если сегмент не удалось прочитать
+     */
+    static long read(Path segment, Map<Long, Long> deltas, Map<Long, Long> counts) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        long records = 0;
+        while (buffer.remaining() >= RECORD_SIZE) {
+            long productId = buffer.getLong();
+            int delta = buffer.getInt();
+            if (buffer.getInt() != checksum(productId, delta)) {
+                break;
+            }
+            deltas.merge(productId, (long) delta, Long::sum);
+            counts.merge(productId, 1L, Long::sum);
+            records++;
+        }
+        return records;
+    }
+
+    private static String segmentName(long number) {
+        return String.format("segment-%019d.wal", number);
+    }
+
+    private static int checksum(long productId, int delta) {
+        int hash = CHECKSUM_SEED;
+        hash = 31 * hash + Long.hashCode(productId);
+        hash = 31 * hash + delta;
+        return hash ^ (hash >>> 16);
+    }
+}
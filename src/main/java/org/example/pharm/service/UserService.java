@@ -1,11 +1,17 @@
 package org.example.pharm.service;
 
 import jakarta.transaction.Transactional;
+import org.example.pharm.config.CacheConfig;
 import org.example.pharm.model.Role;
 import org.example.pharm.model.User;
 import org.example.pharm.repository.RoleRepository;
 import org.example.pharm.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -15,9 +21,11 @@ import java.util.*;
  * Сервис для управления пользователями.
  * Обеспечивает операции регистрации, поиска, сохранения, удаления пользователей,
  * а также назначение ролей пользователям.
+ * <p>
+ * Изменения пользователей очищают как кэш пользователей, так и кэш данных аутентификации.
  */
 @Service
-public class UserService {
+public class UserService implements UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
@@ -46,6 +54,10 @@ public class UserService {
      * @return зарегистрированный пользователь.
      */
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS, key = "#user.username"),
+            @CacheEvict(cacheNames = CacheConfig.USER_DETAILS, key = "#user.username")
+    })
     public User registerUser(User user) {
         // Проверяем, существует ли пользователь с таким email
         if (userRepository.existsByEmail(user.getEmail())) {
@@ -75,10 +87,12 @@ public class UserService {
 
     /**
      * Найти пользователя по имени пользователя.
+     * Результат кэшируется до изменения пользователей.
      *
      * @param username имя пользователя.
      * @return пользователь с указанным именем.
      */
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#username", unless = "#result == null")
     public User findByUsername(String username) {
         return userRepository.findByUsername(username);
     }
@@ -99,6 +113,10 @@ public class UserService {
      *
      * @param id идентификатор пользователя.
      */
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.USER_DETAILS, allEntries = true)
+    })
     public void delete(Long id) {
         userRepository.deleteById(id);
     }
@@ -110,6 +128,10 @@ public class UserService {
      * @param userId идентификатор пользователя, которому необходимо назначить роль.
      * @throws IllegalArgumentException если роль "ROLE_ADMIN" не найдена.
      */
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.USER_DETAILS, allEntries = true)
+    })
     public void assignRoleToAdmin(Long userId) {
         Optional<User> userOptional = userRepository.findById(userId);
         if (userOptional.isPresent()) {
@@ -125,4 +147,26 @@ public class UserService {
             userRepository.save(user);
         }
     }
+
+    /**
+     * Сохранить пересчитанный хеш пароля пользователя.
+     * Вызывается Spring Security после успешного входа, если хеш записан устаревшим способом
+     * или с другой стоимостью BCrypt.
+     *
+     * @param user        данные аутентифицированного пользователя.
+     * @param newPassword новый хеш пароля.
+     * @return данные пользователя с новым хешем.
+     */
+    @Override
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS, key = "#user.username"),
+            @CacheEvict(cacheNames = CacheConfig.USER_DETAILS, key = "#user.username")
+    })
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
 }
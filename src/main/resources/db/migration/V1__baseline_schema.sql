@@ -0,0 +1,46 @@
+-- Исходная схема: таблицы в том виде, в каком их создавал Hibernate (ddl-auto=update) до перехода на миграции.
+-- Для существующей базы эта миграция не выполняется: база помечается версией 1 (spring.flyway.baseline-on-migrate),
+-- поэтому всё, что добавлено к схеме позже, вносится следующими миграциями и в новую, и в существующую базу.
+
+CREATE TABLE category (
+    id   BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE product (
+    id            BIGINT         NOT NULL AUTO_INCREMENT,
+    name          VARCHAR(255)   NOT NULL,
+    category_id   BIGINT         NOT NULL,
+    manufacturer  VARCHAR(255)   NOT NULL,
+    price         DECIMAL(38, 2) NOT NULL,
+    quantity      INT            NOT NULL,
+    delivery_date DATE           NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_product_category FOREIGN KEY (category_id) REFERENCES category (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE role (
+    id   BIGINT       NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE `user` (
+    id       BIGINT       NOT NULL AUTO_INCREMENT,
+    name     VARCHAR(255) NOT NULL,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    email    VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_username UNIQUE (username),
+    CONSTRAINT uk_user_email UNIQUE (email)
+) ENGINE = InnoDB;
+
+CREATE TABLE user_roles (
+    user_id BIGINT NOT NULL,
+    role_id BIGINT NOT NULL,
+    PRIMARY KEY (user_id, role_id),
+    CONSTRAINT fk_user_roles_user FOREIGN KEY (user_id) REFERENCES `user` (id),
+    CONSTRAINT fk_user_roles_role FOREIGN KEY (role_id) REFERENCES role (id)
+) ENGINE = InnoDB;
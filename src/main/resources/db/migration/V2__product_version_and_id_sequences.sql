@@ -0,0 +1,16 @@
+-- Версия продукта для оптимистической блокировки; существующие продукты получают версию 0.
+ALTER TABLE product ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+
+-- Таблицы-последовательности для PooledSequenceGenerator: идентификаторы продуктов и категорий выделяются
+-- блоками до вставки, чтобы вставки шли JDBC-пакетами. Следующий блок начинается после наибольшего
+-- существующего идентификатора. AUTO_INCREMENT столбцов id остаётся: Hibernate передаёт идентификатор сам,
+-- а снятие атрибута с category.id потребовало бы пересоздать внешний ключ продуктов.
+CREATE TABLE category_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+INSERT INTO category_seq SELECT COALESCE(MAX(id), 0) + 1 FROM category;
+
+CREATE TABLE product_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+INSERT INTO product_seq SELECT COALESCE(MAX(id), 0) + 1 FROM product;
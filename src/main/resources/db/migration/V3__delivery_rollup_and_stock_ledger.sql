@@ -0,0 +1,16 @@
+-- Сводка поставок по дням и категориям (DeliveryRollupService). В существующей базе она заполняется
+-- по таблице продуктов при первом запуске (DeliveryRollupBackfill, pharm.rollup.backfill=auto).
+CREATE TABLE delivery_rollup (
+    category_id   BIGINT NOT NULL,
+    delivery_date DATE   NOT NULL,
+    quantity      BIGINT NOT NULL,
+    product_count BIGINT NOT NULL,
+    PRIMARY KEY (category_id, delivery_date)
+) ENGINE = InnoDB;
+
+-- Контрольная точка журнала остатков (StockLedger)
+CREATE TABLE stock_ledger_checkpoint (
+    id      INT    NOT NULL,
+    segment BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
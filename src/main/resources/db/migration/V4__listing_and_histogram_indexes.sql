@@ -0,0 +1,25 @@
+-- Индексы для серверной сортировки списка, гистограммы поставок и поиска ролей.
+-- Вторичные индексы InnoDB содержат первичный ключ, поэтому индекс (поле, id) отдаёт строки в порядке
+-- keyset-пагинации ORDER BY поле, id без сортировки.
+
+-- Сортировка списка продуктов по каждому полю (ProductRepositoryImpl#findKeyset)
+CREATE INDEX idx_product_name ON product (name, id);
+CREATE INDEX idx_product_manufacturer ON product (manufacturer, id);
+CREATE INDEX idx_product_price ON product (price, id);
+CREATE INDEX idx_product_delivery_date ON product (delivery_date, id);
+-- Индекс по остатку обновляется при каждом изменении остатка; без него сортировка по остатку требует filesort
+CREATE INDEX idx_product_quantity ON product (quantity, id);
+
+-- Покрывающий индекс для заполнения сводки поставок (GROUP BY delivery_date, category_id с суммой остатков)
+-- и выборок продуктов за период поставок
+CREATE INDEX idx_product_delivery_rollup ON product (delivery_date, category_id, quantity);
+
+-- Сортировка по названию категории и поиск категории по имени при импорте
+CREATE INDEX idx_category_name ON category (name);
+
+-- Гистограмма поставок по всем категориям за период. Для одной категории хватает первичного ключа
+-- (category_id, delivery_date), а суммы по всем категориям без этого индекса читают сводку целиком
+CREATE INDEX idx_delivery_rollup_date ON delivery_rollup (delivery_date, quantity);
+
+-- Поиск роли по имени (RoleRepository#findByName); имена ролей уникальны
+CREATE UNIQUE INDEX uk_role_name ON role (name);
@@ -0,0 +1,13 @@
+-- Полнотекстовый индекс по названию и производителю для поиска MATCH ... AGAINST.
+-- Парсер ngram разбивает текст на n-граммы (ngram_token_size, по умолчанию 2 символа), поэтому находит
+-- совпадения внутри слов и не зависит от морфологии русского языка.
+--
+-- Парсер ngram отбрасывает n-граммы, содержащие стоп-слово. Стандартный список стоп-слов InnoDB английский
+-- и содержит однобуквенные "a" и "i", поэтому из индекса выпадают почти все латинские биграммы
+-- ("ba", "ay" в "Bayer") и производители латиницей не находятся. Стоп-слова отключаются на время
+-- создания индекса: настройка запоминается индексом.
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+ALTER TABLE product ADD FULLTEXT INDEX ft_product_name_manufacturer (name, manufacturer) WITH PARSER ngram;
+
+SET SESSION innodb_ft_enable_stopword = ON;
@@ -0,0 +1,8 @@
+-- Полнотекстовый поиск MATCH ... AGAINST по названию категории. MATCH работает только со столбцами одного
+-- полнотекстового индекса, поэтому категория индексируется отдельно от продуктов.
+-- Стоп-слова отключаются по той же причине, что и для индекса продуктов (V5).
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+ALTER TABLE category ADD FULLTEXT INDEX ft_category_name (name) WITH PARSER ngram;
+
+SET SESSION innodb_ft_enable_stopword = ON;
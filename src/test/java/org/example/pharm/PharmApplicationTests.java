@@ -2,10 +2,23 @@ package org.example.pharm;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
 
+/**
+ * Поднимает полный контекст приложения на MySQL в контейнере: миграции Flyway и проверка схемы
+ * ddl-auto=validate выполняются как при обычном запуске. Без Docker тест пропускается.
+ */
 @SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
 class PharmApplicationTests {
 
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.4");
+
     @Test
     void contextLoads() {
     }
@@ -0,0 +1,125 @@
+package org.example.pharm.config;
+
+import org.example.pharm.model.Role;
+import org.example.pharm.model.User;
+import org.example.pharm.repository.RoleRepository;
+import org.example.pharm.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверяет доступ к эндпоинтам Actuator на полном контексте приложения с H2: без аутентификации открыт только
+ * {@code /actuator/health}, метрики Prometheus отдаются только ADMIN по HTTP Basic и содержат счётчик поиска
+ * и количество SQL-запросов на HTTP-запрос.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:actuator;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false"
+})
+class ActuatorSecurityTest {
+
+    private static final String PASSWORD = "secret";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        if (userRepository.findByUsername("admin") == null) {
+            // Роль и пользователь сохраняются в одной транзакции: каскадное сохранение не принимает отсоединённую роль
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                saveUser("admin", "ROLE_ADMIN");
+                saveUser("user", "ROLE_USER");
+            });
+        }
+    }
+
+    @Test
+    void healthIsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void prometheusRequiresAuthentication() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "wrong")))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void prometheusIsForbiddenForUsers() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("user", PASSWORD)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/loggers").with(httpBasic("user", PASSWORD)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void prometheusExposesSearchAndStatementMetricsToAdmin() throws Exception {
+        mockMvc.perform(get("/api/products").param("size", "5").param("keyword", "несуществующий")
+                        .with(user("user").roles("USER")))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", PASSWORD)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "pharm_product_search_total{application=\"pharm\",result=\"miss\",source=\"index\"}")))
+                .andExpect(content().string(containsString(
+                        "pharm_sql_statements_per_request_count{application=\"pharm\",method=\"GET\","
+                                + "uri=\"/api/products\"}")));
+    }
+
+    private void saveUser(String username, String roleName) {
+        Role role = roleRepository.findByName(roleName).orElseGet(() -> {
+            Role created = new Role();
+            created.setName(roleName);
+            return roleRepository.save(created);
+        });
+        User user = new User();
+        user.setName(username);
+        user.setUsername(username);
+        user.setEmail(username + "@example.org");
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setRoles(Set.of(role));
+        userRepository.save(user);
+    }
+}
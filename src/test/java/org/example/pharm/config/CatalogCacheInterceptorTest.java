@@ -0,0 +1,129 @@
+package org.example.pharm.config;
+
+import org.example.pharm.service.CatalogVersion;
+import org.example.pharm.service.StockLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет условные GET-запросы к каталогу: совпавший If-None-Match даёт 304 без вызова контроллера,
+ * а изменение каталога или остатков в журнале меняет ETag.
+ */
+@ExtendWith(MockitoExtension.class)
+class CatalogCacheInterceptorTest {
+
+    @Mock
+    private StockLedger stockLedger;
+
+    private final CatalogVersion catalogVersion = new CatalogVersion();
+
+    private CatalogCacheInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new CatalogCacheInterceptor(catalogVersion, stockLedger);
+        lenient().when(stockLedger.changeCount()).thenReturn(0L);
+    }
+
+    @Test
+    void firstRequestGetsEtagAndReachesController() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(get(), response, null));
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNotNull(response.getHeader(HttpHeaders.ETAG));
+        assertNotNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+        assertEquals("no-cache, private", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void matchingIfNoneMatchGivesNotModifiedWithoutController() {
+        String etag = etag();
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request, response, null));
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertEquals(0, response.getContentLength());
+    }
+
+    @Test
+    void catalogChangeInvalidatesEtag() {
+        String etag = etag();
+        catalogVersion.bump();
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, null));
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertFalse(etag.equals(response.getHeader(HttpHeaders.ETAG)));
+    }
+
+    @Test
+    void stockChangeInLedgerInvalidatesEtag() {
+        String etag = etag();
+        when(stockLedger.changeCount()).thenReturn(1L);
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void ifModifiedSinceIsIgnoredWhileLedgerIsEnabled() {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, System.currentTimeMillis() + 60_000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request, response, null));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+
+        when(stockLedger.isEnabled()).thenReturn(true);
+        response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, null));
+        assertNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void writeRequestsAreNotConditional() {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/products/1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, null));
+
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+        assertNull(response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    private String etag() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(get(), response, null);
+        return response.getHeader(HttpHeaders.ETAG);
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/products");
+    }
+}
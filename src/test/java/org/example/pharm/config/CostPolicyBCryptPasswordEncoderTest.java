@@ -0,0 +1,65 @@
+package org.example.pharm.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет политику стоимости BCrypt и проверку паролей, записанных до перехода на хеши с префиксом.
+ * Стоимость в тестах минимальная, чтобы хеширование не замедляло сборку.
+ */
+class CostPolicyBCryptPasswordEncoderTest {
+
+    private static final int STRENGTH = 5;
+
+    private final String cheaperHash = new BCryptPasswordEncoder(4).encode("secret");
+    private final String configuredHash = new BCryptPasswordEncoder(STRENGTH).encode("secret");
+    private final String costlierHash = new BCryptPasswordEncoder(6).encode("secret");
+
+    @Test
+    void hashWithOtherCostIsUpgradedInBothDirections() {
+        CostPolicyBCryptPasswordEncoder encoder = new CostPolicyBCryptPasswordEncoder(STRENGTH);
+
+        assertTrue(encoder.upgradeEncoding(cheaperHash));
+        assertTrue(encoder.upgradeEncoding(costlierHash));
+        assertFalse(encoder.upgradeEncoding(configuredHash));
+        assertFalse(encoder.upgradeEncoding(null));
+        assertFalse(encoder.upgradeEncoding("не хеш BCrypt"));
+        assertTrue(encoder.matches("secret", cheaperHash));
+    }
+
+    @Test
+    void newPasswordsAreEncodedWithPrefixAndConfiguredCost() {
+        PasswordEncoder encoder = passwordEncoder();
+
+        String encoded = encoder.encode("secret");
+
+        assertTrue(encoded.startsWith("{bcrypt}$2a$05$"), encoded);
+        assertTrue(encoder.matches("secret", encoded));
+        assertFalse(encoder.matches("wrong", encoded));
+        assertFalse(encoder.upgradeEncoding(encoded));
+        assertTrue(encoder.upgradeEncoding("{bcrypt}" + cheaperHash));
+    }
+
+    @Test
+    void legacyAndNoopPasswordsVerifyAndAreUpgraded() {
+        PasswordEncoder encoder = passwordEncoder();
+
+        // Хеш без префикса, записанный до перехода на DelegatingPasswordEncoder
+        assertTrue(encoder.matches("secret", configuredHash));
+        assertFalse(encoder.matches("wrong", configuredHash));
+        assertTrue(encoder.upgradeEncoding(configuredHash));
+
+        assertTrue(encoder.matches("secret", "{noop}secret"));
+        assertFalse(encoder.matches("wrong", "{noop}secret"));
+        assertTrue(encoder.upgradeEncoding("{noop}secret"));
+    }
+
+    private static PasswordEncoder passwordEncoder() {
+        return new SecurityConfig(null).passwordEncoder(new SimpleMeterRegistry(), STRENGTH);
+    }
+}
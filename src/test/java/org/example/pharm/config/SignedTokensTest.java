@@ -0,0 +1,95 @@
+package org.example.pharm.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверяет выпуск и проверку подписанных токенов: подделанные, истёкшие, подписанные другим ключом
+ * и повреждённые токены отклоняются.
+ */
+class SignedTokensTest {
+
+    static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    static final Instant NOW = Instant.parse("2024-01-03T10:00:00Z");
+
+    private final SignedTokens tokens = tokens(KEY, NOW);
+
+    @Test
+    void issuedTokenIsVerified() {
+        String token = tokens.issue("иван.петров", List.of("ROLE_USER", "ROLE_ADMIN"));
+
+        SignedTokens.Claims claims = tokens.verify(token);
+
+        assertNotNull(claims);
+        assertEquals("иван.петров", claims.username());
+        assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), claims.roles());
+        assertEquals(NOW, claims.issuedAt());
+        assertEquals(NOW.plus(Duration.ofMinutes(30)), claims.expiresAt());
+        assertEquals(List.of(), tokens.verify(tokens.issue("гость", List.of())).roles());
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = tokens.issue("user", List.of("ROLE_USER"));
+
+        assertNull(tokens.verify(token.replace("ROLE_USER", "ROLE_ADMIN")));
+        String otherName = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("admin".getBytes(StandardCharsets.UTF_8));
+        String[] parts = token.split("\\.");
+        parts[1] = otherName;
+        assertNull(tokens.verify(String.join(".", parts)));
+        // Продление срока действия без новой подписи
+        parts = token.split("\\.");
+        parts[4] = String.valueOf(Long.parseLong(parts[4]) + 3600);
+        assertNull(tokens.verify(String.join(".", parts)));
+        // Изменённая подпись (последний символ Base64 содержит неиспользуемые биты, поэтому меняется предпоследний)
+        int position = token.length() - 2;
+        char changed = token.charAt(position) == 'A' ? 'B' : 'A';
+        assertNull(tokens.verify(token.substring(0, position) + changed + token.substring(position + 1)));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String token = tokens.issue("user", List.of("ROLE_USER"));
+
+        assertNotNull(tokens(KEY, NOW.plus(Duration.ofMinutes(30)).minusSeconds(1)).verify(token));
+        assertNull(tokens(KEY, NOW.plus(Duration.ofMinutes(30))).verify(token));
+    }
+
+    @Test
+    void tokenSignedWithOtherKeyIsRejected() {
+        byte[] otherKey = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.US_ASCII);
+        String token = tokens(otherKey, NOW).issue("user", List.of("ROLE_USER"));
+
+        assertNull(tokens.verify(token));
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertNull(tokens.verify(""));
+        assertNull(tokens.verify("без точек"));
+        assertNull(tokens.verify("v1.dXNlcg.ROLE_USER.1.2.@@@"));
+        assertNull(tokens.verify(tokens.issue("user", List.of()).replaceFirst("^v1", "v2")));
+    }
+
+    @Test
+    void shortKeyIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> tokens(new byte[31], NOW));
+    }
+
+    static SignedTokens tokens(byte[] key, Instant now) {
+        return new SignedTokens(key, Duration.ofMinutes(30), Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
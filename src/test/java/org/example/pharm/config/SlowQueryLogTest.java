@@ -0,0 +1,160 @@
+package org.example.pharm.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.KeyValuePair;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет журнал медленных запросов на H2: порог длительности, ограничение количества записей в секунду
+ * с учётом пропущенных, текст подготовленного запроса без параметров и метрику всех медленных запросов.
+ */
+class SlowQueryLogTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SlowQueryLog.LOGGER);
+    private final DataSource h2 = new DriverManagerDataSource("jdbc:h2:mem:slowquery;DB_CLOSE_DELAY=-1");
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void queriesFasterThanThresholdAreNotRecorded() throws SQLException {
+        DataSource dataSource = slowQueryLog(Duration.ofHours(1), 10).wrap(h2);
+
+        query(dataSource, 3);
+
+        assertTrue(appender.list.isEmpty());
+        assertNull(meterRegistry.find(SlowQueryLog.METRIC).timer());
+    }
+
+    @Test
+    void slowPreparedQueryIsLoggedWithoutParameters() throws SQLException {
+        DataSource dataSource = slowQueryLog(Duration.ZERO, 10).wrap(h2);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT ? AS secret")) {
+            assertSame(connection, statement.getConnection());
+            statement.setString(1, "пароль");
+            statement.executeQuery().close();
+        }
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertTrue(event.getFormattedMessage().endsWith(": SELECT ? AS secret"), event.getFormattedMessage());
+        assertFalse(event.getFormattedMessage().contains("пароль"));
+        assertEquals(false, keyValues(event).get("sql.batch"));
+        assertEquals(1, timer().count());
+    }
+
+    @Test
+    void logIsRateLimitedAndSuppressedQueriesAreCounted() throws Exception {
+        DataSource dataSource = slowQueryLog(Duration.ZERO, 2).wrap(h2);
+        // Пять запросов должны уложиться в одну секунду окна ограничения
+        while (System.currentTimeMillis() % 1000 > 500) {
+            Thread.sleep(10);
+        }
+
+        query(dataSource, 5);
+
+        assertEquals(2, appender.list.size());
+        assertEquals(5, timer().count());
+        Thread.sleep(1000 - System.currentTimeMillis() % 1000 + 10);
+
+        query(dataSource, 1);
+
+        assertEquals(3, appender.list.size());
+        assertEquals(3L, keyValues(appender.list.get(2)).get("sql.suppressed"));
+        assertEquals(0L, keyValues(appender.list.get(0)).get("sql.suppressed"));
+    }
+
+    @Test
+    void longStatementTextIsTruncated() throws SQLException {
+        DataSource dataSource = slowQueryLog(Duration.ZERO, 10).wrap(h2);
+        String sql = "SELECT 1" + " ".repeat(SlowQueryLog.MAX_SQL_LENGTH) + "AS one";
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.endsWith(sql.substring(0, SlowQueryLog.MAX_SQL_LENGTH) + "…"), message);
+    }
+
+    @Test
+    void batchOfPlainStatementsIsLoggedWithLastStatement() throws SQLException {
+        DataSource dataSource = slowQueryLog(Duration.ZERO, 10).wrap(h2);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS batch_test (id INT)");
+            statement.addBatch("INSERT INTO batch_test VALUES (1)");
+            statement.addBatch("INSERT INTO batch_test VALUES (2)");
+            statement.executeBatch();
+            statement.execute("DROP TABLE batch_test");
+        }
+
+        ILoggingEvent batch = appender.list.get(1);
+        assertTrue(batch.getFormattedMessage().endsWith(": INSERT INTO batch_test VALUES (2)"),
+                batch.getFormattedMessage());
+        assertEquals(true, keyValues(batch).get("sql.batch"));
+    }
+
+    private SlowQueryLog slowQueryLog(Duration threshold, int maxPerSecond) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        return new SlowQueryLog(threshold, maxPerSecond, beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    private static void query(DataSource dataSource, int times) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (int i = 0; i < times; i++) {
+                statement.executeQuery("SELECT 1").close();
+            }
+        }
+    }
+
+    private Timer timer() {
+        return meterRegistry.get(SlowQueryLog.METRIC).timer();
+    }
+
+    private static Map<String, Object> keyValues(ILoggingEvent event) {
+        List<KeyValuePair> pairs = event.getKeyValuePairs();
+        return pairs.stream().collect(Collectors.toMap(pair -> pair.key, pair -> pair.value));
+    }
+}
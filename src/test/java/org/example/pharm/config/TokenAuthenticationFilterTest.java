@@ -0,0 +1,150 @@
+package org.example.pharm.config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет аутентификацию по токену в cookie: вход по действующему токену, перевыпуск устаревшего токена
+ * с актуальными ролями, удаление недействительного токена и атрибуты выдаваемой cookie.
+ */
+@ExtendWith(MockitoExtension.class)
+class TokenAuthenticationFilterTest {
+
+    private static final Instant NOW = SignedTokensTest.NOW;
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validTokenAuthenticatesWithRolesFromToken() throws Exception {
+        MockHttpServletResponse response = filter(token(NOW.minusSeconds(60), "ROLE_ADMIN"));
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("user", authentication.getName());
+        assertEquals(List.of("ROLE_ADMIN"), roles(authentication));
+        assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void oldTokenIsReissuedWithCurrentRoles() throws Exception {
+        when(userDetailsService.loadUserByUsername("user"))
+                .thenReturn(User.withUsername("user").password("-").roles("USER").build());
+
+        MockHttpServletResponse response = filter(token(NOW.minus(Duration.ofMinutes(6)), "ROLE_ADMIN"));
+
+        assertEquals(List.of("ROLE_USER"), roles(SecurityContextHolder.getContext().getAuthentication()));
+        String cookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertTrue(cookie.startsWith(TokenAuthenticationFilter.COOKIE + "="), cookie);
+        assertTrue(cookie.contains("HttpOnly") && cookie.contains("SameSite=Strict"), cookie);
+        assertTrue(cookie.contains("Max-Age=1800"), cookie);
+        String reissued = cookie.substring(cookie.indexOf('=') + 1, cookie.indexOf(';'));
+        SignedTokens.Claims claims = SignedTokensTest.tokens(SignedTokensTest.KEY, NOW).verify(reissued);
+        assertEquals(List.of("ROLE_USER"), claims.roles());
+        assertEquals(NOW, claims.issuedAt());
+    }
+
+    @Test
+    void deletedUserLosesAccessOnRefresh() throws Exception {
+        when(userDetailsService.loadUserByUsername("user")).thenThrow(new UsernameNotFoundException("user"));
+
+        MockHttpServletResponse response = filter(token(NOW.minus(Duration.ofMinutes(6)), "ROLE_USER"));
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertClearedCookie(response);
+    }
+
+    @Test
+    void invalidTokenIsClearedAndRequestContinuesUnauthenticated() throws Exception {
+        String forged = token(NOW, "ROLE_USER").replace("ROLE_USER", "ROLE_ADMIN");
+        MockFilterChain chain = new MockFilterChain();
+
+        MockHttpServletResponse response = filter(forged, chain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(chain.getRequest(), "Запрос должен пройти дальше по цепочке");
+        assertClearedCookie(response);
+    }
+
+    @Test
+    void expiredTokenIsCleared() throws Exception {
+        MockHttpServletResponse response = filter(token(NOW.minus(Duration.ofMinutes(30)), "ROLE_USER"));
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertClearedCookie(response);
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void requestWithoutTokenIsLeftAlone() throws Exception {
+        MockHttpServletResponse response = filter(null);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+    }
+
+    private static String token(Instant issuedAt, String role) {
+        return SignedTokensTest.tokens(SignedTokensTest.KEY, issuedAt).issue("user", List.of(role));
+    }
+
+    private MockHttpServletResponse filter(String token) throws Exception {
+        return filter(token, new MockFilterChain());
+    }
+
+    private MockHttpServletResponse filter(String token, MockFilterChain chain) throws Exception {
+        TokenAuthenticationFilter filter = new TokenAuthenticationFilter(
+                SignedTokensTest.tokens(SignedTokensTest.KEY, NOW), userDetailsService, Duration.ofMinutes(5),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        if (token != null) {
+            request.setCookies(new Cookie(TokenAuthenticationFilter.COOKIE, token));
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static List<String> roles(Authentication authentication) {
+        return authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+    }
+
+    private static void assertClearedCookie(MockHttpServletResponse response) {
+        String cookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertNotNull(cookie);
+        assertTrue(cookie.startsWith(TokenAuthenticationFilter.COOKIE + "=;"), cookie);
+        assertTrue(cookie.contains("Max-Age=0"), cookie);
+    }
+}
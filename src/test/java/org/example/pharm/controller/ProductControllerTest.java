@@ -0,0 +1,159 @@
+package org.example.pharm.controller;
+
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.model.Product;
+import org.example.pharm.service.CategoryService;
+import org.example.pharm.service.ProductAsyncService;
+import org.example.pharm.service.ProductService;
+import org.example.pharm.service.StockLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверяет оптимистическую блокировку при обновлении продукта: устаревшая версия из запроса
+ * и изменение продукта во время сохранения дают 409. Асинхронные эндпоинты отвечают после завершения
+ * задачи исполнителя, а при заполненной очереди исполнителя — сразу 503.
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductControllerTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private ProductAsyncService productAsyncService;
+
+    @InjectMocks
+    private ProductController controller;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        Product existing = new Product();
+        existing.setId(7L);
+        existing.setName("Аспирин");
+        existing.setManufacturer("Bayer");
+        existing.setPrice(new BigDecimal("100.00"));
+        existing.setQuantity(10);
+        existing.setDeliveryDate(LocalDate.of(2024, 1, 3));
+        existing.setVersion(3L);
+        lenient().when(productService.getForUpdate(7L)).thenReturn(existing);
+        lenient().when(stockLedger.locked(eq(7L), any())).thenAnswer(
+                invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(stockLedger.overlay(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void staleVersionIsRejectedWithoutSaving() throws Exception {
+        mockMvc.perform(put("/api/products/7").contentType(MediaType.APPLICATION_JSON).content(body(2)))
+                .andExpect(status().isConflict());
+
+        verify(productService, never()).save(any());
+    }
+
+    @Test
+    void currentVersionIsSaved() throws Exception {
+        when(productService.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(put("/api/products/7").contentType(MediaType.APPLICATION_JSON).content(body(3)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Аспирин Кардио"))
+                .andExpect(jsonPath("$.quantity").value(5));
+    }
+
+    @Test
+    void concurrentChangeDuringSaveIsConflict() throws Exception {
+        when(productService.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 7L));
+
+        mockMvc.perform(put("/api/products/7").contentType(MediaType.APPLICATION_JSON).content(body(3)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void asyncListIsSentWhenExecutorCompletes() throws Exception {
+        ProductRow aspirin = new ProductRow(7L, "Аспирин", 1L, "Анальгетики", "Bayer",
+                new BigDecimal("100.00"), 10, LocalDate.of(2024, 1, 3));
+        CompletableFuture<List<ProductRow>> rows = new CompletableFuture<>();
+        when(productAsyncService.findProducts("асп")).thenReturn(rows);
+
+        MvcResult started = mockMvc.perform(get("/api/products/async").param("keyword", "асп"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        rows.complete(List.of(aspirin));
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Аспирин"));
+    }
+
+    @Test
+    void asyncMissingProductIsNotFound() throws Exception {
+        when(productAsyncService.getProduct(8L)).thenReturn(CompletableFuture.completedFuture(null));
+
+        MvcResult started = mockMvc.perform(get("/api/products/async/8"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void rejectedAsyncTaskIsServiceUnavailable() throws Exception {
+        when(productAsyncService.findProducts(null)).thenThrow(new TaskRejectedException("Очередь заполнена"));
+        when(productAsyncService.getProduct(7L)).thenThrow(new TaskRejectedException("Очередь заполнена"));
+
+        for (String path : List.of("/api/products/async", "/api/products/async/7")) {
+            MvcResult started = mockMvc.perform(get(path)).andReturn();
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        }
+    }
+
+    private static String body(long version) {
+        return """
+                {"name": "Аспирин Кардио", "manufacturer": "Bayer", "price": 120.00, "quantity": 5,
+                 "deliveryDate": "2024-01-03", "version": %d}
+                """.formatted(version);
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.pharm.controller;
+
+import org.example.pharm.dto.StockLevel;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.example.pharm.repository.CategoryRepository;
+import org.example.pharm.repository.ProductRepository;
+import org.example.pharm.service.ProductService;
+import org.example.pharm.service.StockLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверяет полное редактирование продукта в режиме журнала остатков на полном контексте с H2: изменение
+ * остатка после чтения продукта клиентом делает его версию устаревшей, поэтому редактирование не возвращает
+ * прочитанный остаток поверх списания, а после сброса журнала версия в базе совпадает с версией из журнала.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock-conflict;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "pharm.stock.mode=write-behind"
+})
+class ProductStockConflictTest {
+
+    @TempDir
+    static Path ledgerDirectory;
+
+    @DynamicPropertySource
+    static void ledgerDirectory(DynamicPropertyRegistry registry) {
+        registry.add("pharm.stock.ledger.dir", () -> ledgerDirectory.toString());
+    }
+
+    @Autowired
+    private ProductController controller;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long id;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Анальгетики " + System.nanoTime());
+        Product product = new Product();
+        product.setName("Аспирин");
+        product.setCategory(categoryRepository.save(category));
+        product.setManufacturer("Bayer");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setQuantity(5);
+        product.setDeliveryDate(LocalDate.of(2024, 1, 1));
+        id = productRepository.save(product).getId();
+    }
+
+    @Test
+    void updateWithVersionReadBeforeAdjustmentIsConflict() {
+        Product read = productService.get(id);
+        StockLevel adjusted = stockLedger.adjust(id, -2);
+
+        ResponseEntity<Product> response = controller.updateProduct(id, edit(read, "Аспирин Кардио"));
+
+        assertEquals(read.getVersion() + 1, adjusted.version());
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(3, productService.get(id).getQuantity());
+
+        Product current = productService.get(id);
+        assertEquals(adjusted.version(), current.getVersion());
+        response = controller.updateProduct(id, edit(current, "Аспирин Кардио"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Аспирин Кардио", response.getBody().getName());
+        assertEquals(3, response.getBody().getQuantity());
+    }
+
+    @Test
+    void concurrentAdjustmentsAreNotOverwrittenByUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicBoolean adjusting = new AtomicBoolean(true);
+        int updated = 0;
+        try {
+            Future<?> adjuster = executor.submit(() -> {
+                for (int i = 0; i < 300; i++) {
+                    stockLedger.adjust(id, 1);
+                }
+                adjusting.set(false);
+            });
+            // Клиент читает продукт и отправляет прочитанный остаток обратно с изменённым названием
+            while (adjusting.get()) {
+                Product read = productService.get(id);
+                if (controller.updateProduct(id, edit(read, "Аспирин " + updated)).getStatusCode() == HttpStatus.OK) {
+                    updated++;
+                }
+                stockLedger.flush();
+            }
+            adjuster.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(305, productService.get(id).getQuantity());
+        stockLedger.flush();
+        assertEquals(305, jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, id));
+        // Каждое изменение остатка и каждое сохранение (название каждый раз новое) увеличили версию на единицу
+        long version = productService.get(id).getVersion();
+        assertEquals(300 + updated, version);
+        assertEquals(version, jdbcTemplate.queryForObject("SELECT version FROM product WHERE id = ?", Long.class, id));
+    }
+
+    private static Product edit(Product read, String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setManufacturer(read.getManufacturer());
+        product.setPrice(read.getPrice());
+        product.setQuantity(read.getQuantity());
+        product.setDeliveryDate(read.getDeliveryDate());
+        product.setVersion(read.getVersion());
+        return product;
+    }
+}
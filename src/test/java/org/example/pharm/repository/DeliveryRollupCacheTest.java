@@ -0,0 +1,111 @@
+package org.example.pharm.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.pharm.model.Category;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет, что изменяющие запросы сводки поставок на SQL объявляют затронутую таблицу: без этого Hibernate
+ * очищает после них весь кэш второго уровня, и каждое сохранение продукта заново загружало бы категории из базы.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rollup-cache;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DeliveryRollupCacheTest {
+
+    @Autowired
+    private DeliveryRollupRepository rollupRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long categoryId;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Анальгетики");
+        categoryId = categoryRepository.save(category).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+        // Первое чтение помещает категорию в кэш второго уровня
+        load();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM delivery_rollup");
+        jdbcTemplate.update("DELETE FROM category");
+    }
+
+    @Test
+    void rollupWritesKeepCategoriesInSecondLevelCache() {
+        LocalDate day = LocalDate.of(2024, 1, 3);
+        inTransaction(() -> rollupRepository.addDelta(day, categoryId, 10, 1));
+        assertTrue(entityManagerFactory.getCache().contains(Category.class, categoryId));
+
+        inTransaction(rollupRepository::clear);
+        inTransaction(rollupRepository::backfill);
+        assertTrue(entityManagerFactory.getCache().contains(Category.class, categoryId));
+
+        for (int i = 0; i < 5; i++) {
+            inTransaction(() -> rollupRepository.addDelta(day, categoryId, 1, 0));
+            load();
+        }
+        assertEquals(5, statistics.getSecondLevelCacheHitCount());
+        assertEquals(0, statistics.getSecondLevelCacheMissCount());
+        assertEquals(1, rollupRepository.sumByDay(day, day).size());
+    }
+
+    private void load() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            assertEquals("Анальгетики", entityManager.find(Category.class, categoryId).getName());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private void inTransaction(Runnable action) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> action.run());
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.pharm.repository;
+
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Проверяет без Docker, что схема из миграций Flyway совпадает с сущностями: контекст поднимается только
+ * при успешной проверке ddl-auto=validate. H2 в режиме MySQL выполняет миграции до V4; V5 и V6 создают
+ * полнотекстовые индексы MySQL, которые не влияют на проверку сущностей и проверяются в
+ * {@link ProductIndexPlanTest} на MySQL в контейнере. Обновление существующей базы проверяется
+ * в {@link MigrationUpgradeTest}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrations;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.target=4"
+})
+class MigrationSchemaTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void migrationsAreAppliedUpToTarget() {
+        assertEquals("4", flyway.info().current().getVersion().getVersion());
+    }
+
+    @Test
+    void entitiesAreSavedIntoMigratedTables() {
+        Category category = new Category();
+        category.setName("Анальгетики");
+        category = categoryRepository.save(category);
+        Product product = new Product();
+        product.setName("Аспирин");
+        product.setCategory(category);
+        product.setManufacturer("Bayer");
+        product.setPrice(new BigDecimal("100.00"));
+        product.setQuantity(10);
+        product.setDeliveryDate(LocalDate.of(2024, 1, 3));
+
+        // Идентификаторы выделяются из таблиц-последовательностей миграции V2
+        Product saved = productRepository.saveAndFlush(product);
+
+        assertNotNull(saved.getId());
+        assertEquals(0L, saved.getVersion());
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.pharm.repository;
+
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.CoreMigrationType;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет обновление существующей базы, созданной до перехода на миграции через ddl-auto=update: база
+ * помечается версией 1, следующие миграции добавляют версию продукта, таблицы-последовательности
+ * и новые таблицы, после чего схема проходит проверку ddl-auto=validate, а новые идентификаторы
+ * не совпадают с существующими. Полнотекстовые индексы MySQL (V5, V6) на H2 не применяются.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=" + MigrationUpgradeTest.URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.target=4"
+})
+class MigrationUpgradeTest {
+
+    static final String URL =
+            "jdbc:h2:mem:upgrade;DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE";
+
+    /** Схема и данные в том виде, в каком их оставляло приложение с ddl-auto=update. */
+    private static final String OLD_SCHEMA = """
+            create table category (id bigint not null auto_increment, name varchar(255), primary key (id)) engine=InnoDB;
+            create table product (id bigint not null auto_increment, category_id bigint not null,
+                delivery_date date not null, manufacturer varchar(255) not null, name varchar(255) not null,
+                price decimal(38,2) not null, quantity integer not null, primary key (id)) engine=InnoDB;
+            create table role (id bigint not null auto_increment, name varchar(255) not null, primary key (id)) engine=InnoDB;
+            create table user (id bigint not null auto_increment, email varchar(255) not null,
+                name varchar(255) not null, password varchar(255) not null, username varchar(255) not null,
+                primary key (id)) engine=InnoDB;
+            create table user_roles (role_id bigint not null, user_id bigint not null,
+                primary key (role_id, user_id)) engine=InnoDB;
+            alter table user add constraint UKob8kqyqqgmefl0aco34akdtpe unique (email);
+            alter table user add constraint UKsb8bbouer5wak8vyiiy4pf2bx unique (username);
+            alter table product add constraint FK1mtsbur82frn64de7balymq9s foreign key (category_id) references category (id);
+            alter table user_roles add constraint FKrhfovtciq1l558cw6udg0h0d3 foreign key (role_id) references role (id);
+            alter table user_roles add constraint FK55itppkw3i07do3h7qoclqd4k foreign key (user_id) references user (id);
+            insert into category (id, name) values (1, 'Анальгетики'), (7, 'Витамины');
+            insert into product (id, category_id, delivery_date, manufacturer, name, price, quantity) values
+                (3, 1, '2024-01-03', 'Bayer', 'Аспирин', 100.00, 10),
+                (12, 7, '2024-01-04', 'Pharm', 'Витамин C', 12.50, 5);
+            """;
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void createOldSchema() throws SQLException {
+        // Контекст с Flyway поднимается после этого метода и обновляет уже заполненную базу
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            for (String sql : OLD_SCHEMA.split(";")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    @Test
+    void existingDatabaseIsBaselinedAndUpgraded() {
+        MigrationInfo[] applied = flyway.info().applied();
+        assertEquals(CoreMigrationType.BASELINE, applied[0].getType());
+        assertEquals("1", applied[0].getVersion().getVersion());
+        assertEquals("4", flyway.info().current().getVersion().getVersion());
+
+        Product aspirin = productRepository.findById(3L).orElseThrow();
+        assertEquals(0L, aspirin.getVersion());
+        assertEquals("Анальгетики", aspirin.getCategory().getName());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM delivery_rollup", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_ledger_checkpoint", Integer.class));
+    }
+
+    @Test
+    void newIdentifiersFollowExistingOnes() {
+        Category category = new Category();
+        category.setName("Спазмолитики");
+        category = categoryRepository.saveAndFlush(category);
+        Product product = new Product();
+        product.setName("Но-шпа");
+        product.setCategory(category);
+        product.setManufacturer("Sanofi");
+        product.setPrice(new BigDecimal("200.00"));
+        product.setQuantity(1);
+        product.setDeliveryDate(LocalDate.of(2024, 1, 5));
+
+        Product saved = productRepository.saveAndFlush(product);
+
+        assertTrue(category.getId() > 7, "id категории " + category.getId());
+        assertTrue(saved.getId() > 12, "id продукта " + saved.getId());
+        assertEquals(0L, saved.getVersion());
+    }
+}
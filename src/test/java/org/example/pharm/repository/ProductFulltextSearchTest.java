@@ -0,0 +1,120 @@
+package org.example.pharm.repository;
+
+import org.example.pharm.dto.ProductRow;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет полнотекстовый поиск {@link ProductRepository#searchFulltext} на MySQL в контейнере
+ * со схемой из миграций. Без Docker тест пропускается.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// Полнотекстовый индекс InnoDB видит строки только после фиксации транзакции
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductFulltextSearchTest {
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.4");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO category (id, name) VALUES (1, 'Анальгетики'), (2, 'Витамины'), " +
+                "(3, 'Пробиотики')");
+        List<Object[]> products = new ArrayList<>();
+        products.add(product(1, "Аспирин таблетки 500 мг", 1, "Bayer"));
+        products.add(product(2, "Аспирин Кардио 100 мг", 1, "Bayer"));
+        products.add(product(3, "Аспирин-С шипучие таблетки", 1, "Фармстандарт"));
+        products.add(product(4, "Витамин C 500 мг", 2, "Озон"));
+        products.add(product(5, "Витамин D3 капли", 3, "Озон"));
+        products.add(product(6, "Линекс капсулы", 3, "Sandoz"));
+        products.add(product(7, "Парацетамол таблетки", 1, "Фармстандарт"));
+        jdbcTemplate.batchUpdate("INSERT INTO product (id, name, category_id, manufacturer, price, quantity, " +
+                "delivery_date) VALUES (?, ?, ?, ?, ?, ?, ?)", products);
+    }
+
+    @Test
+    void wordPrefixFindsProducts() {
+        assertEquals(List.of(1L, 2L, 3L), sortedIds(productRepository.searchFulltext("аспир", 0, 100)));
+    }
+
+    @Test
+    void latinManufacturerIsFound() {
+        assertEquals(List.of(1L, 2L), sortedIds(productRepository.searchFulltext("bayer", 0, 100)));
+    }
+
+    @Test
+    void everyWordIsRequired() {
+        assertEquals(List.of(1L, 2L), sortedIds(productRepository.searchFulltext("аспирин bayer", 0, 100)));
+        assertEquals(List.of(3L), sortedIds(productRepository.searchFulltext("аспирин фармстандарт", 0, 100)));
+    }
+
+    @Test
+    void categoryNameFindsAllItsProducts() {
+        assertEquals(List.of(1L, 2L, 3L, 7L), sortedIds(productRepository.searchFulltext("анальгетики", 0, 100)));
+    }
+
+    @Test
+    void matchInProductAndCategoryRanksFirst() {
+        List<ProductRow> rows = productRepository.searchFulltext("витамин", 0, 100);
+        assertEquals(List.of(4L, 5L), rows.stream().map(ProductRow::id).toList());
+        assertEquals("Витамины", rows.get(0).categoryName());
+    }
+
+    @Test
+    void booleanOperatorsAreSearchedLiterally() {
+        assertEquals(sortedIds(productRepository.searchFulltext("аспирин bayer", 0, 100)),
+                sortedIds(productRepository.searchFulltext("+аспирин -bayer*", 0, 100)));
+        assertTrue(productRepository.searchFulltext("  +-*  ", 0, 100).isEmpty());
+        assertEquals(0, productRepository.countFulltext("()"));
+    }
+
+    @Test
+    void pagesFollowRelevanceOrderAndCountMatchesAllHits() {
+        List<ProductRow> all = productRepository.searchFulltext("таблетки", 0, 100);
+        assertEquals(3, all.size());
+        assertEquals(3, productRepository.countFulltext("таблетки"));
+
+        List<ProductRow> paged = new ArrayList<>(productRepository.searchFulltext("таблетки", 0, 2));
+        paged.addAll(productRepository.searchFulltext("таблетки", 2, 2));
+        assertEquals(all, paged);
+    }
+
+    private static Object[] product(long id, String name, long categoryId, String manufacturer) {
+        return new Object[]{id, name, categoryId, manufacturer, new BigDecimal("100.00"), 10,
+                Date.valueOf(LocalDate.of(2024, 1, 1))};
+    }
+
+    private static List<Long> sortedIds(List<ProductRow> rows) {
+        return rows.stream().map(ProductRow::id).sorted().toList();
+    }
+}
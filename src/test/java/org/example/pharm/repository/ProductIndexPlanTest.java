@@ -0,0 +1,161 @@
+package org.example.pharm.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет, что миграции Flyway создают схему, совпадающую с сущностями, и что MySQL выбирает индексы миграций
+ * для запросов списка, гистограммы и поиска. Планы проверяются через EXPLAIN на MySQL в контейнере;
+ * без Docker тест пропускается.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// ANALYZE TABLE завершает транзакцию неявно, поэтому данные пишутся и читаются вне тестовой транзакции
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductIndexPlanTest {
+
+    private static final int CATEGORIES = 20;
+    private static final int PRODUCTS = 2000;
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.4");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        List<Object[]> categories = new ArrayList<>();
+        for (long c = 1; c <= CATEGORIES; c++) {
+            categories.add(new Object[]{c, "Категория " + c});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO category (id, name) VALUES (?, ?)", categories);
+
+        List<Object[]> products = new ArrayList<>();
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        for (long id = 1; id <= PRODUCTS; id++) {
+            products.add(new Object[]{id, "Аспирин " + id, id % CATEGORIES + 1, "Производитель " + id % 50,
+                    BigDecimal.valueOf(id % 1000, 0), (int) (id % 100), Date.valueOf(firstDay.plusDays(id % 365))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO product (id, name, category_id, manufacturer, price, quantity, " +
+                "delivery_date) VALUES (?, ?, ?, ?, ?, ?, ?)", products);
+        jdbcTemplate.update("INSERT INTO delivery_rollup (delivery_date, category_id, quantity, product_count) " +
+                "SELECT delivery_date, category_id, SUM(quantity), COUNT(*) FROM product " +
+                "GROUP BY delivery_date, category_id");
+
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            users.add(new Object[]{"Пользователь " + i, "user" + i, "-", "user" + i + "@example.org"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `user` (name, username, password, email) VALUES (?, ?, ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO role (name) VALUES ('ROLE_USER'), ('ROLE_ADMIN')");
+
+        jdbcTemplate.execute("ANALYZE TABLE category, product, delivery_rollup, `user`, role");
+    }
+
+    @Test
+    void listingSortedByNameReadsIndexInOrder() {
+        Map<String, Object> plan = explain("SELECT * FROM product ORDER BY name, id LIMIT 20");
+        assertEquals("idx_product_name", plan.get("key"));
+        assertNoFilesort(plan);
+    }
+
+    @Test
+    void listingSortedByDeliveryDateDescendingReadsIndexBackwards() {
+        Map<String, Object> plan = explain("SELECT * FROM product ORDER BY delivery_date DESC, id DESC LIMIT 20");
+        assertEquals("idx_product_delivery_date", plan.get("key"));
+        assertNoFilesort(plan);
+    }
+
+    @Test
+    void rollupBackfillIsServedFromCoveringIndex() {
+        Map<String, Object> plan = explain("SELECT delivery_date, category_id, SUM(quantity), COUNT(*) FROM product " +
+                "GROUP BY delivery_date, category_id");
+        assertEquals("idx_product_delivery_rollup", plan.get("key"));
+        assertUsingIndex(plan);
+    }
+
+    @Test
+    void histogramOverAllCategoriesIsServedFromCoveringIndex() {
+        Map<String, Object> plan = explain("SELECT delivery_date, SUM(quantity) FROM delivery_rollup " +
+                "WHERE delivery_date BETWEEN '2024-03-01' AND '2024-03-31' GROUP BY delivery_date ORDER BY delivery_date");
+        assertEquals("idx_delivery_rollup_date", plan.get("key"));
+        assertUsingIndex(plan);
+    }
+
+    @Test
+    void histogramForOneCategoryUsesPrimaryKeyRange() {
+        Map<String, Object> plan = explain("SELECT delivery_date, SUM(quantity) FROM delivery_rollup " +
+                "WHERE delivery_date BETWEEN '2024-03-01' AND '2024-03-31' AND category_id = 3 " +
+                "GROUP BY delivery_date ORDER BY delivery_date");
+        assertEquals("PRIMARY", plan.get("key"));
+        assertEquals("range", plan.get("type"));
+    }
+
+    @Test
+    void userAndRoleLookupsUseUniqueIndexes() {
+        Map<String, Object> user = explain("SELECT * FROM `user` WHERE username = 'user42'");
+        assertEquals("uk_user_username", user.get("key"));
+        assertEquals("const", user.get("type"));
+
+        Map<String, Object> role = explain("SELECT * FROM role WHERE name = 'ROLE_ADMIN'");
+        assertEquals("uk_role_name", role.get("key"));
+        assertEquals("const", role.get("type"));
+    }
+
+    @Test
+    void keywordSearchUsesFulltextIndex() {
+        Map<String, Object> plan = explain("SELECT id FROM product " +
+                "WHERE MATCH (name, manufacturer) AGAINST ('аспирин' IN BOOLEAN MODE)");
+        assertEquals("ft_product_name_manufacturer", plan.get("key"));
+        assertEquals("fulltext", plan.get("type"));
+    }
+
+    /**
+     * План запроса к одной таблице: первая строка EXPLAIN.
+     */
+    private Map<String, Object> explain(String sql) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("EXPLAIN " + sql);
+        assertFalse(rows.isEmpty(), "EXPLAIN не вернул план");
+        return rows.get(0);
+    }
+
+    private static void assertNoFilesort(Map<String, Object> plan) {
+        String extra = String.valueOf(plan.get("Extra"));
+        assertFalse(extra.contains("Using filesort"), "Сортировка без индекса: " + extra);
+    }
+
+    private static void assertUsingIndex(Map<String, Object> plan) {
+        String extra = String.valueOf(plan.get("Extra"));
+        assertTrue(extra.contains("Using index"), "Запрос читает строки таблицы: " + extra);
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.pharm.repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.pharm.dto.ProductCursor;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет, что запросы списков продуктов выполняются одним SQL-запросом независимо от количества категорий.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:listing;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ProductListingQueriesTest {
+
+    private static final int CATEGORIES = 5;
+    private static final int PRODUCTS_PER_CATEGORY = 4;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private Long firstProductId;
+
+    @BeforeEach
+    void setUp() {
+        for (int c = 0; c < CATEGORIES; c++) {
+            Category category = new Category();
+            category.setName("Категория " + c);
+            entityManager.persist(category);
+            for (int p = 0; p < PRODUCTS_PER_CATEGORY; p++) {
+                Product product = new Product();
+                product.setName("Аспирин " + c + "-" + p);
+                product.setCategory(category);
+                product.setManufacturer("Bayer");
+                product.setPrice(new BigDecimal("10.00"));
+                product.setQuantity(p);
+                product.setDeliveryDate(LocalDate.of(2024, 1, 1 + p));
+                entityManager.persist(product);
+                if (firstProductId == null) {
+                    firstProductId = product.getId();
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void allRowsAreLoadedWithSingleStatement() {
+        List<ProductRow> rows = productRepository.findAllRows();
+
+        assertEquals(CATEGORIES * PRODUCTS_PER_CATEGORY, rows.size());
+        assertTrue(rows.stream().allMatch(row -> row.categoryName() != null));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void searchIsSingleStatement() {
+        List<ProductRow> rows = productRepository.search("Аспирин 1-");
+
+        assertEquals(PRODUCTS_PER_CATEGORY, rows.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void likeWildcardsInKeywordAreMatchedLiterally() {
+        // Без экранирования "_" совпал бы с "-" в "Аспирин 1-0", а "%" — с любой строкой
+        for (String keyword : List.of("Аспирин 1_0", "%")) {
+            assertTrue(productRepository.search(keyword).isEmpty(), keyword);
+            assertTrue(productRepository.findKeyset(keyword, null, ProductSortField.ID, true, null, 10).isEmpty(),
+                    keyword);
+            assertEquals(0, productRepository.countByKeyword(keyword), keyword);
+        }
+        assertEquals(1, productRepository.search("Аспирин 1-0").size());
+        assertEquals(1, productRepository.countByKeyword("Аспирин 1-0"));
+    }
+
+    @Test
+    void keysetPageIsSingleStatement() {
+        List<ProductRow> rows = productRepository.findKeyset(null, null, ProductSortField.CATEGORY, true, null, 10);
+
+        assertEquals(10, rows.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void categoryKeysetVisitsRowsWithoutCategoryNameExactlyOnce() {
+        Category unnamed = new Category();
+        entityManager.persist(unnamed);
+        for (int p = 0; p < 3; p++) {
+            Product product = new Product();
+            product.setName("Без категории " + p);
+            product.setCategory(unnamed);
+            product.setManufacturer("Bayer");
+            product.setPrice(new BigDecimal("10.00"));
+            product.setQuantity(p);
+            product.setDeliveryDate(LocalDate.of(2024, 1, 1));
+            entityManager.persist(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        for (boolean ascending : new boolean[]{true, false}) {
+            List<ProductRow> all = productRepository.findKeyset(null, null, ProductSortField.CATEGORY, ascending,
+                    null, 100);
+            // Страницы по 2 строки: граница страницы попадает и внутрь строк без названия категории
+            List<ProductRow> paged = new ArrayList<>();
+            ProductCursor cursor = null;
+            List<ProductRow> page;
+            do {
+                page = productRepository.findKeyset(null, null, ProductSortField.CATEGORY, ascending, cursor, 2);
+                paged.addAll(page);
+                if (!page.isEmpty()) {
+                    String token = ProductCursor.after(ProductSortField.CATEGORY, ascending,
+                            page.get(page.size() - 1)).encode();
+                    cursor = ProductCursor.decode(token);
+                }
+            } while (page.size() == 2);
+
+            assertEquals(CATEGORIES * PRODUCTS_PER_CATEGORY + 3, all.size());
+            assertEquals(all, paged, ascending ? "По возрастанию" : "По убыванию");
+            assertNull((ascending ? all.get(0) : all.get(all.size() - 1)).categoryName());
+        }
+    }
+
+    @Test
+    void entityIsLoadedWithCategoryInSingleStatement() {
+        Product product = productRepository.findById(firstProductId).orElseThrow();
+
+        assertTrue(Hibernate.isInitialized(product.getCategory()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void categoryIsNotLoadedForPlainEntityListing() {
+        List<Product> products = productRepository.findAll();
+
+        assertEquals(CATEGORIES * PRODUCTS_PER_CATEGORY, products.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.pharm.repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.pharm.dto.StockLevel;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет условное изменение остатка {@link ProductRepository#adjustQuantity} и чтение остатка под блокировкой
+ * {@link ProductRepository#lockQuantity}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false"
+})
+class ProductStockAdjustmentTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Анальгетики");
+        entityManager.persist(category);
+        Product product = new Product();
+        product.setName("Аспирин");
+        product.setCategory(category);
+        product.setManufacturer("Bayer");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setQuantity(5);
+        product.setDeliveryDate(LocalDate.of(2024, 1, 1));
+        entityManager.persist(product);
+        entityManager.flush();
+        entityManager.clear();
+        productId = product.getId();
+    }
+
+    @Test
+    void decrementWithinStockIsAppliedAndBumpsVersion() {
+        assertEquals(1, productRepository.adjustQuantity(productId, -3, 3));
+
+        StockLevel level = productRepository.findStockLevel(productId).orElseThrow();
+        assertEquals(2, level.quantity());
+        assertEquals(1L, level.version());
+    }
+
+    @Test
+    void decrementBeyondStockIsRejected() {
+        assertEquals(0, productRepository.adjustQuantity(productId, -6, 6));
+
+        StockLevel level = productRepository.findStockLevel(productId).orElseThrow();
+        assertEquals(5, level.quantity());
+        assertEquals(0L, level.version());
+    }
+
+    @Test
+    void lockedQuantityIsReadFromDatabaseNotFromChangedEntity() {
+        Product product = productRepository.findById(productId).orElseThrow();
+        product.setQuantity(99);
+
+        assertEquals(5, productRepository.lockQuantity(productId).orElseThrow());
+        assertEquals(99, product.getQuantity());
+        assertTrue(productRepository.lockQuantity(productId + 1000).isEmpty());
+    }
+}
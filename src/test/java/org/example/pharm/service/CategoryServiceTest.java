@@ -0,0 +1,75 @@
+package org.example.pharm.service;
+
+import org.example.pharm.model.Category;
+import org.example.pharm.repository.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет, что переименование категории перестраивает поисковый индекс и подсказки и сбрасывает список
+ * у подписчиков, а создание новой категории их не трогает: у новой категории ещё нет продуктов.
+ */
+@ExtendWith(MockitoExtension.class)
+class CategoryServiceTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private ProductEventBus eventBus;
+
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Mock
+    private ProductSuggestIndex suggestIndex;
+
+    @InjectMocks
+    private CategoryService categoryService;
+
+    @Test
+    void renameRebuildsIndexesAndResetsSubscribers() {
+        Category category = category(1L, "Обезболивающие");
+        when(categoryRepository.save(category)).thenReturn(category);
+
+        // Вне транзакции действие после фиксации выполняется сразу
+        assertSame(category, categoryService.save(category));
+
+        verify(catalogVersion).bump();
+        verify(searchIndex).rebuildAsync();
+        verify(suggestIndex).rebuildAsync();
+        verify(eventBus).publishReset();
+    }
+
+    @Test
+    void newCategoryDoesNotRebuildIndexes() {
+        Category category = category(null, "Витамины");
+        when(categoryRepository.save(any())).thenReturn(category(2L, "Витамины"));
+
+        categoryService.save(category);
+
+        verify(catalogVersion).bump();
+        verifyNoInteractions(searchIndex, suggestIndex);
+        verify(eventBus, never()).publishReset();
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.pharm.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.pharm.dto.HistogramBucket;
+import org.example.pharm.dto.HistogramGranularity;
+import org.example.pharm.dto.ProductRollupState;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверяет заполнение сводки поставок по таблице продуктов, перенос продукта между ячейками сводки
+ * и раскладку дней по столбцам гистограммы.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rollup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false"
+})
+@Import(DeliveryRollupService.class)
+class DeliveryRollupServiceTest {
+
+    @Autowired
+    private DeliveryRollupService rollupService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Category analgesics;
+    private Category vitamins;
+
+    @BeforeEach
+    void setUp() {
+        analgesics = category("Анальгетики");
+        vitamins = category("Витамины");
+        // Среда 3 января, воскресенье 7 января, понедельник 8 января, 31 января и 1 февраля 2024 года
+        product(analgesics, 10, LocalDate.of(2024, 1, 3));
+        product(vitamins, 5, LocalDate.of(2024, 1, 3));
+        product(analgesics, 7, LocalDate.of(2024, 1, 7));
+        product(vitamins, 1, LocalDate.of(2024, 1, 8));
+        product(analgesics, 20, LocalDate.of(2024, 1, 31));
+        product(analgesics, 100, LocalDate.of(2024, 2, 1));
+        entityManager.flush();
+        rollupService.rebuild();
+    }
+
+    @Test
+    void dailyBucketsIncludeEmptyDays() {
+        List<HistogramBucket> buckets = rollupService.histogram(
+                LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 4), HistogramGranularity.DAY, null);
+
+        assertEquals(List.of(
+                new HistogramBucket(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 2), 0),
+                new HistogramBucket(LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 3), 15),
+                new HistogramBucket(LocalDate.of(2024, 1, 4), LocalDate.of(2024, 1, 4), 0)), buckets);
+    }
+
+    @Test
+    void weeksStartOnMondayAndEdgeBucketsAreClippedToPeriod() {
+        List<HistogramBucket> buckets = rollupService.histogram(
+                LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 9), HistogramGranularity.WEEK, null);
+
+        assertEquals(List.of(
+                new HistogramBucket(LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 7), 22),
+                new HistogramBucket(LocalDate.of(2024, 1, 8), LocalDate.of(2024, 1, 9), 1)), buckets);
+    }
+
+    @Test
+    void monthlyBucketsCanBeFilteredByCategory() {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 2, 29);
+
+        assertEquals(List.of(
+                new HistogramBucket(from, LocalDate.of(2024, 1, 31), 43),
+                new HistogramBucket(LocalDate.of(2024, 2, 1), to, 100)),
+                rollupService.histogram(from, to, HistogramGranularity.MONTH, null));
+        assertEquals(List.of(
+                new HistogramBucket(from, LocalDate.of(2024, 1, 31), 6),
+                new HistogramBucket(LocalDate.of(2024, 2, 1), to, 0)),
+                rollupService.histogram(from, to, HistogramGranularity.MONTH, vitamins.getId()));
+    }
+
+    @Test
+    void movedProductLeavesOldCellAndEmptyCellIsRemoved() {
+        LocalDate day = LocalDate.of(2024, 1, 8);
+        rollupService.apply(new ProductRollupState(day, vitamins.getId(), 1),
+                new ProductRollupState(LocalDate.of(2024, 1, 3), analgesics.getId(), 4));
+
+        assertEquals(List.of(LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 7)),
+                List.copyOf(rollupService.dailyTotals(day.minusDays(5), day).keySet()));
+        assertEquals(19L, rollupService.dailyTotals(day.minusDays(5), day).get(LocalDate.of(2024, 1, 3)));
+        Number emptyCells = (Number) entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM delivery_rollup WHERE delivery_date = '2024-01-08'").getSingleResult();
+        assertEquals(0, emptyCells.intValue());
+    }
+
+    @Test
+    void batchSumsChangesPerCell() {
+        DeliveryRollupService.Batch batch = rollupService.batch();
+        LocalDate day = LocalDate.of(2024, 1, 7);
+        batch.add(null, new ProductRollupState(day, analgesics.getId(), 3));
+        batch.add(null, new ProductRollupState(day, analgesics.getId(), 2));
+        batch.add(new ProductRollupState(day, analgesics.getId(), 7),
+                new ProductRollupState(day, analgesics.getId(), 9));
+        batch.flush();
+
+        assertEquals(7L + 3 + 2 + 2, rollupService.dailyTotals(day, day).get(day));
+    }
+
+    @Test
+    void invalidPeriodsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> rollupService.histogram(
+                LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), HistogramGranularity.DAY, null));
+        assertThrows(IllegalArgumentException.class, () -> rollupService.histogram(
+                LocalDate.of(2020, 1, 1), LocalDate.of(2024, 1, 1), HistogramGranularity.DAY, null));
+    }
+
+    private Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        entityManager.persist(category);
+        return category;
+    }
+
+    private void product(Category category, int quantity, LocalDate deliveryDate) {
+        Product product = new Product();
+        product.setName("Продукт");
+        product.setCategory(category);
+        product.setManufacturer("Bayer");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setQuantity(quantity);
+        product.setDeliveryDate(deliveryDate);
+        entityManager.persist(product);
+    }
+}
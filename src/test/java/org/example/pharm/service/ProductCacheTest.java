@@ -0,0 +1,159 @@
+package org.example.pharm.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.pharm.config.CacheConfig;
+import org.example.pharm.dto.CountMode;
+import org.example.pharm.dto.ProductPage;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.example.pharm.repository.ProductRepository;
+import org.example.pharm.repository.ProductSortField;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет кэши продуктов через прокси Spring: запись удаляет продукт из кэша {@link CacheConfig#PRODUCTS},
+ * а страницы списка после изменения версии каталога запрашиваются из базы заново, а не по старому ключу.
+ */
+@SpringBootTest(classes = {CacheConfig.class, CatalogVersion.class, ProductService.class, SimpleMeterRegistry.class})
+class ProductCacheTest {
+
+    /** Нужна только для внедрения {@code @PersistenceContext}; кэшируемые методы к ней не обращаются. */
+    @MockitoBean
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ProductRepository repo;
+
+    @MockitoBean
+    private StockLedger stockLedger;
+
+    @MockitoBean
+    private DeliveryRollupService rollupService;
+
+    @MockitoBean
+    private ProductSearchIndex searchIndex;
+
+    @MockitoBean
+    private ProductSuggestIndex suggestIndex;
+
+    @MockitoBean
+    private ProductEventBus eventBus;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final ProductRow aspirin = new ProductRow(1L, "Аспирин", 1L, "Анальгетики", "Bayer",
+            new BigDecimal("100.00"), 10, LocalDate.of(2024, 1, 3));
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.PRODUCTS).clear();
+        cacheManager.getCache(CacheConfig.PRODUCT_PAGES).clear();
+        when(stockLedger.overlay(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(stockLedger.overlay(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void saveEvictsCachedProduct() {
+        Product stored = product(10);
+        when(repo.findById(1L)).thenReturn(Optional.of(stored));
+        assertSame(stored, productService.get(1L));
+        assertSame(stored, productService.get(1L));
+        verify(repo, times(1)).findById(1L);
+
+        Product changed = product(20);
+        when(repo.save(changed)).thenReturn(changed);
+        productService.save(changed);
+
+        assertNull(cacheManager.getCache(CacheConfig.PRODUCTS).get(1L));
+        when(repo.findById(1L)).thenReturn(Optional.of(changed));
+        assertEquals(20, productService.get(1L).getQuantity());
+        verify(repo, times(2)).findById(1L);
+    }
+
+    @Test
+    void deleteEvictsCachedProduct() {
+        when(repo.findById(1L)).thenReturn(Optional.of(product(10)));
+        productService.get(1L);
+        assertNotNull(cacheManager.getCache(CacheConfig.PRODUCTS).get(1L));
+
+        productService.delete(1L);
+
+        assertNull(cacheManager.getCache(CacheConfig.PRODUCTS).get(1L));
+    }
+
+    @Test
+    void pageIsCachedUntilCatalogVersionChanges() {
+        ProductRow updated = aspirin.withQuantity(5);
+        when(repo.findKeyset(null, null, ProductSortField.NAME, true, null, 21))
+                .thenReturn(List.of(aspirin))
+                .thenReturn(List.of(updated));
+
+        ProductPage first = productService.findPage(null, ProductSortField.NAME, true, null, 20, CountMode.NONE);
+        ProductPage cached = productService.findPage(null, ProductSortField.NAME, true, null, 20, CountMode.NONE);
+        assertSame(first, cached);
+        verify(repo, times(1)).findKeyset(null, null, ProductSortField.NAME, true, null, 21);
+
+        catalogVersion.bump();
+
+        ProductPage fresh = productService.findPage(null, ProductSortField.NAME, true, null, 20, CountMode.NONE);
+        assertEquals(List.of(updated), fresh.items());
+        verify(repo, times(2)).findKeyset(null, null, ProductSortField.NAME, true, null, 21);
+    }
+
+    @Test
+    void saveMakesCachedPagesStale() {
+        when(repo.findKeyset(null, null, ProductSortField.NAME, true, null, 21)).thenReturn(List.of(aspirin));
+        productService.findPage(null, ProductSortField.NAME, true, null, 20, CountMode.NONE);
+
+        Product changed = product(20);
+        when(repo.save(changed)).thenReturn(changed);
+        productService.save(changed);
+        productService.findPage(null, ProductSortField.NAME, true, null, 20, CountMode.NONE);
+
+        verify(repo, times(2)).findKeyset(null, null, ProductSortField.NAME, true, null, 21);
+    }
+
+    private Product product(int quantity) {
+        Category category = new Category();
+        category.setId(1L);
+        category.setName("Анальгетики");
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Аспирин");
+        product.setCategory(category);
+        product.setManufacturer("Bayer");
+        product.setPrice(new BigDecimal("100.00"));
+        product.setQuantity(quantity);
+        product.setDeliveryDate(LocalDate.of(2024, 1, 3));
+        return product;
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.pharm.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Проверяет возобновление потока событий по Last-Event-ID: переподключившийся клиент получает только
+ * пропущенные события, а если они уже вытеснены из кольцевого буфера или номер неизвестен — событие reset.
+ */
+class ProductEventBusTest {
+
+    private static final int HISTORY_SIZE = 4;
+
+    private final ProductEventBus eventBus = new ProductEventBus(HISTORY_SIZE, 16, new SimpleMeterRegistry());
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new EventsEndpoint(eventBus)).build();
+
+    @AfterEach
+    void tearDown() {
+        eventBus.shutdown();
+    }
+
+    @Test
+    void subscriberReceivesPublishedEvents() throws Exception {
+        MvcResult stream = subscribe(null);
+
+        eventBus.publishStock(1L, 5);
+        eventBus.publishDeleted(2L);
+
+        List<Event> events = awaitEvents(stream, 2);
+        assertEquals(List.of("stock", "deleted"), names(events));
+        assertEquals(events.get(0).id() + 1, events.get(1).id());
+        assertTrue(events.get(0).data().contains("\"quantity\":5"), events.get(0).data());
+    }
+
+    @Test
+    void resumedSubscriberReceivesOnlyMissedEvents() throws Exception {
+        MvcResult first = subscribe(null);
+        eventBus.publishStock(1L, 5);
+        eventBus.publishStock(1L, 4);
+        eventBus.publishDeleted(2L);
+        List<Event> published = awaitEvents(first, 3);
+
+        MvcResult resumed = subscribe(Long.toString(published.get(0).id()));
+        eventBus.publishStock(3L, 1);
+
+        List<Event> events = awaitEvents(resumed, 3);
+        assertEquals(List.of(published.get(1).id(), published.get(2).id(), published.get(2).id() + 1),
+                events.stream().map(Event::id).toList());
+        assertEquals(List.of("stock", "deleted", "stock"), names(events));
+    }
+
+    @Test
+    void subscriberUpToDateReceivesNothingMissed() throws Exception {
+        MvcResult first = subscribe(null);
+        eventBus.publishStock(1L, 5);
+        long lastId = awaitEvents(first, 1).get(0).id();
+
+        MvcResult resumed = subscribe(Long.toString(lastId));
+        eventBus.publishDeleted(1L);
+
+        List<Event> events = awaitEvents(resumed, 1);
+        assertEquals(List.of("deleted"), names(events));
+        assertEquals(lastId + 1, events.get(0).id());
+    }
+
+    @Test
+    void evictedHistoryGivesReset() throws Exception {
+        MvcResult first = subscribe(null);
+        for (int i = 0; i < HISTORY_SIZE + 2; i++) {
+            eventBus.publishStock(1L, i);
+        }
+        List<Event> published = awaitEvents(first, HISTORY_SIZE + 2);
+
+        MvcResult resumed = subscribe(Long.toString(published.get(0).id()));
+        // Номер сброса — последнее событие буфера, поэтому следующее переподключение не получит повторов
+        Event reset = awaitEvents(resumed, 1).get(0);
+        assertEquals("reset", reset.name());
+        assertEquals(published.get(published.size() - 1).id(), reset.id());
+        eventBus.publishDeleted(1L);
+
+        // Пока сброс не отправлен, следующие события поглощаются им, поэтому новое событие публикуется после
+        assertEquals(List.of("reset", "deleted"), names(awaitEvents(resumed, 2)));
+    }
+
+    @Test
+    void unknownLastEventIdGivesReset() throws Exception {
+        eventBus.publishStock(1L, 5);
+
+        assertEquals(List.of("reset"), names(awaitEvents(subscribe("не номер"), 1)));
+        // Номер из будущего: например, события прошлого запуска с более поздними часами
+        assertEquals(List.of("reset"), names(awaitEvents(subscribe(Long.toString(Long.MAX_VALUE)), 1)));
+    }
+
+    private MvcResult subscribe(String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/events").accept(MediaType.TEXT_EVENT_STREAM);
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    /**
+     * Ждёт, пока в поток будет отправлено {@code count} событий, и разбирает их.
+     */
+    private static List<Event> awaitEvents(MvcResult stream, int count) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        List<Event> events = parse(stream.getResponse().getContentAsString());
+        while (events.size() < count) {
+            assertTrue(System.nanoTime() < deadline, "Получено событий: " + events.size() + " из " + count);
+            Thread.sleep(5);
+            events = parse(stream.getResponse().getContentAsString());
+        }
+        Thread.sleep(50); // Лишние события, если они есть, успевают прийти и провалить проверку
+        return parse(stream.getResponse().getContentAsString());
+    }
+
+    private static List<Event> parse(String content) {
+        List<Event> events = new ArrayList<>();
+        for (String block : content.split("\n\n")) {
+            long id = -1;
+            String name = null;
+            String data = "";
+            for (String line : block.split("\n")) {
+                if (line.startsWith("id:")) {
+                    id = Long.parseLong(line.substring(3));
+                } else if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:")) {
+                    data = line.substring(5);
+                }
+            }
+            if (name != null) {
+                events.add(new Event(id, name, data));
+            }
+        }
+        return events;
+    }
+
+    private static List<String> names(List<Event> events) {
+        return events.stream().map(Event::name).toList();
+    }
+
+    private record Event(long id, String name, String data) {
+    }
+
+    @RestController
+    private static final class EventsEndpoint {
+
+        private final ProductEventBus eventBus;
+
+        private EventsEndpoint(ProductEventBus eventBus) {
+            this.eventBus = eventBus;
+        }
+
+        @GetMapping("/events")
+        SseEmitter events(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+            return eventBus.subscribe(lastEventId);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.pharm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.example.pharm.dto.ImportReport;
+import org.example.pharm.dto.ProductFileFormat;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.example.pharm.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет выгрузку каталога: экранирование полей CSV, наложение остатков из журнала и обратную загрузку
+ * выгрузки импортом без потери и дублирования полей.
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductExportServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private ProductExportService exportService;
+
+    @InjectMocks
+    private ProductImportService importService;
+
+    private Category analgesics;
+
+    @BeforeEach
+    void setUp() {
+        analgesics = new Category();
+        analgesics.setId(1L);
+        analgesics.setName("Анальгетики");
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(stockLedger.overlay(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void csvFieldsWithDelimitersQuotesAndLineBreaksAreQuoted() throws IOException {
+        Category quoted = new Category();
+        quoted.setId(2L);
+        quoted.setName("Витамины, минералы");
+        when(productRepository.streamAll()).thenReturn(Stream.of(
+                product(1L, "Аспирин", analgesics, "Bayer", "100.50", 10),
+                product(2L, "Витамин \"C\"", quoted, "Pharm\nInc.", "12", 3)));
+
+        String csv = export(ProductFileFormat.CSV);
+
+        assertEquals("""
+                name,category,manufacturer,price,quantity,deliveryDate
+                Аспирин,Анальгетики,Bayer,100.50,10,2024-01-03
+                "Витамин ""C\""","Витамины, минералы","Pharm
+                Inc.",12,3,2024-01-03
+                """, csv);
+    }
+
+    @Test
+    void quantitiesFromStockLedgerOverrideStoredOnes() throws IOException {
+        Product stored = product(1L, "Аспирин", analgesics, "Bayer", "100", 10);
+        Product current = product(1L, "Аспирин", analgesics, "Bayer", "100", 4);
+        when(stockLedger.overlay(stored)).thenReturn(current);
+        when(productRepository.streamAll()).thenAnswer(invocation -> Stream.of(stored));
+
+        assertEquals("Аспирин,Анальгетики,Bayer,100,4,2024-01-03",
+                export(ProductFileFormat.CSV).lines().skip(1).findFirst().orElseThrow());
+        assertEquals(4, objectMapper.readTree(export(ProductFileFormat.NDJSON)).get("quantity").asInt());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ProductFileFormat.class)
+    void exportIsImportedBackWithSameFields(ProductFileFormat format) throws IOException {
+        List<Product> catalogue = List.of(
+                product(1L, "Аспирин; Кардио", analgesics, "Bayer \"AG\"", "100.50", 10),
+                product(2L, "Но-шпа\nфорте", analgesics, "Sanofi, Inc.", "200", 0));
+        when(productRepository.streamAll()).thenReturn(catalogue.stream());
+        when(categoryService.getAllCategories()).thenReturn(List.of(analgesics));
+        List<Product> imported = new ArrayList<>();
+        when(productService.saveAll(any())).thenAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            imported.addAll(products);
+            return products.size();
+        });
+
+        String file = export(format);
+        ImportReport report = importService.importProducts(null, format, new StringReader(file));
+
+        assertEquals(ImportReport.State.COMPLETED, report.state());
+        assertEquals(0, report.failedRows());
+        assertEquals(catalogue.size(), imported.size());
+        for (int i = 0; i < catalogue.size(); i++) {
+            Product expected = catalogue.get(i);
+            Product actual = imported.get(i);
+            assertNull(actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getManufacturer(), actual.getManufacturer());
+            assertEquals(0, expected.getPrice().compareTo(actual.getPrice()));
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+            assertEquals(expected.getDeliveryDate(), actual.getDeliveryDate());
+        }
+    }
+
+    private String export(ProductFileFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Product product(Long id, String name, Category category, String manufacturer, String price,
+                                   int quantity) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory(category);
+        product.setManufacturer(manufacturer);
+        product.setPrice(new BigDecimal(price));
+        product.setQuantity(quantity);
+        product.setDeliveryDate(LocalDate.of(2024, 1, 3));
+        return product;
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.pharm.service;
+
+import org.example.pharm.dto.FacetValue;
+import org.example.pharm.dto.FacetedSearchResult;
+import org.example.pharm.dto.ProductFacetFilter;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.StockStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет подсчёт фасетов: количества значения считаются с учётом выбора в остальных фасетах, значения
+ * одного фасета объединяются через ИЛИ, выбранное значение без продуктов возвращается с нулевым количеством.
+ */
+class ProductFacetsTest {
+
+    private static final BigDecimal[] PRICE_EDGES = {new BigDecimal("100"), new BigDecimal("500")};
+
+    private final List<ProductRow> hits = List.of(
+            row(1, 1L, "Анальгетики", "Bayer", "50.00", 10),
+            row(2, 1L, "Анальгетики", "Pfizer", "150.00", 0),
+            row(3, 2L, "Витамины", "Bayer", "600.00", 3),
+            row(4, 2L, "Витамины", "Эвалар", "99.99", 7),
+            row(5, null, null, null, null, null));
+
+    @Test
+    void facetsWithoutSelectionCountAllHits() {
+        FacetedSearchResult result = ProductFacets.compute(hits, ProductFacetFilter.NONE, PRICE_EDGES, 10, true);
+
+        assertEquals(5, result.total());
+        assertEquals(hits, result.items());
+        assertEquals(List.of(
+                new FacetValue("1", "Анальгетики", 2, false),
+                new FacetValue("2", "Витамины", 2, false),
+                new FacetValue("", "Без категории", 1, false)), result.facets().get(ProductFacets.CATEGORY));
+        assertEquals(List.of(
+                new FacetValue("0", "до 100", 3, false),
+                new FacetValue("1", "100–500", 1, false),
+                new FacetValue("2", "от 500", 1, false)), result.facets().get(ProductFacets.PRICE));
+        assertEquals(List.of(
+                new FacetValue("in_stock", "В наличии", 3, false),
+                new FacetValue("out_of_stock", "Нет в наличии", 2, false)), result.facets().get(ProductFacets.STOCK));
+    }
+
+    @Test
+    void selectionNarrowsItemsButNotCountsOfItsOwnFacet() {
+        ProductFacetFilter filter = new ProductFacetFilter(null, Set.of("Bayer"), null, null);
+
+        FacetedSearchResult result = ProductFacets.compute(hits, filter, PRICE_EDGES, 10, true);
+
+        assertEquals(List.of(1L, 3L), ids(result));
+        // Соседние производители видны с количествами, как если бы выбора не было
+        assertEquals(List.of(
+                new FacetValue("Bayer", "Bayer", 2, true),
+                new FacetValue("", "", 1, false),
+                new FacetValue("Pfizer", "Pfizer", 1, false),
+                new FacetValue("Эвалар", "Эвалар", 1, false)), result.facets().get(ProductFacets.MANUFACTURER));
+        // Остальные фасеты считаются только по продуктам Bayer
+        assertEquals(List.of(
+                new FacetValue("1", "Анальгетики", 1, false),
+                new FacetValue("2", "Витамины", 1, false)), result.facets().get(ProductFacets.CATEGORY));
+    }
+
+    @Test
+    void valuesOfOneFacetAreOrAndFacetsAreAnd() {
+        ProductFacetFilter filter = new ProductFacetFilter(Set.of(1L, 2L), null, Set.of(0, 2),
+                Set.of(StockStatus.IN_STOCK));
+
+        FacetedSearchResult result = ProductFacets.compute(hits, filter, PRICE_EDGES, 10, true);
+
+        assertEquals(List.of(1L, 3L, 4L), ids(result));
+        assertEquals(List.of(
+                new FacetValue("in_stock", "В наличии", 3, true),
+                new FacetValue("out_of_stock", "Нет в наличии", 0, false)), result.facets().get(ProductFacets.STOCK));
+        assertEquals(List.of(
+                new FacetValue("0", "до 100", 2, true),
+                new FacetValue("1", "100–500", 0, false),
+                new FacetValue("2", "от 500", 1, true)), result.facets().get(ProductFacets.PRICE));
+    }
+
+    @Test
+    void selectedValueWithoutHitsIsReturnedWithZeroCount() {
+        ProductFacetFilter filter = new ProductFacetFilter(Set.of(99L), null, null, null);
+
+        FacetedSearchResult result = ProductFacets.compute(hits, filter, PRICE_EDGES, 10, true);
+
+        assertEquals(0, result.total());
+        assertEquals(new FacetValue("99", "99", 0, true), result.facets().get(ProductFacets.CATEGORY).get(0));
+    }
+
+    @Test
+    void limitCutsItemsButNotTotal() {
+        FacetedSearchResult result = ProductFacets.compute(hits, ProductFacetFilter.NONE, PRICE_EDGES, 2, false);
+
+        assertEquals(List.of(1L, 2L), ids(result));
+        assertEquals(5, result.total());
+        assertTrue(result.facets().isEmpty());
+    }
+
+    @Test
+    void manufacturerFacetIsCappedAndSortedByCount() {
+        List<ProductRow> many = new ArrayList<>();
+        for (int i = 0; i < ProductFacets.MAX_FACET_VALUES + 10; i++) {
+            many.add(row(i, 1L, "Анальгетики", String.format("Производитель %03d", i), "10.00", 1));
+        }
+        many.add(row(1000, 1L, "Анальгетики", "Производитель 059", "10.00", 1));
+
+        List<FacetValue> makers = ProductFacets.compute(many, ProductFacetFilter.NONE, PRICE_EDGES, 1, true)
+                .facets().get(ProductFacets.MANUFACTURER);
+
+        assertEquals(ProductFacets.MAX_FACET_VALUES, makers.size());
+        assertEquals(new FacetValue("Производитель 059", "Производитель 059", 2, false), makers.get(0));
+        assertEquals("Производитель 000", makers.get(1).value());
+    }
+
+    private static List<Long> ids(FacetedSearchResult result) {
+        return result.items().stream().map(ProductRow::id).toList();
+    }
+
+    private static ProductRow row(long id, Long categoryId, String categoryName, String manufacturer, String price,
+                                  Integer quantity) {
+        return new ProductRow(id, "Продукт " + id, categoryId, categoryName, manufacturer,
+                price != null ? new BigDecimal(price) : null, quantity, LocalDate.of(2024, 1, 3));
+    }
+}
@@ -0,0 +1,244 @@
+package org.example.pharm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.pharm.dto.ImportReport;
+import org.example.pharm.dto.ImportRowError;
+import org.example.pharm.dto.ProductFileFormat;
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет разбор CSV (кавычки, выбор разделителя), отчёт об ошибках по строкам, создание категорий
+ * в транзакции порции, защиту от повторного запуска импорта с тем же идентификатором и хранение состояния
+ * выполняющегося импорта независимо от числа завершённых.
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private ProductImportService importService;
+
+    private final List<Product> saved = new ArrayList<>();
+    private final AtomicLong categoryIds = new AtomicLong(100);
+    private Category analgesics;
+
+    @BeforeEach
+    void setUp() {
+        analgesics = new Category();
+        analgesics.setId(1L);
+        analgesics.setName("Анальгетики");
+        when(categoryService.getAllCategories()).thenReturn(List.of(analgesics));
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void semicolonCsvWithQuotedFieldsIsImported() {
+        recordSaves();
+        String csv = """
+                name;category;manufacturer;price;quantity;delivery_date
+                "Аспирин; Кардио";анальгетики;"Bayer ""AG\""";100,50;10;2024-01-03
+                "Но-шпа
+                форте";Спазмолитики;Sanofi;200;5;2024-01-04
+                """;
+
+        ImportReport report = importService.importProducts("csv", ProductFileFormat.CSV, new StringReader(csv));
+
+        assertEquals(ImportReport.State.COMPLETED, report.state());
+        assertEquals(2, report.importedRows());
+        assertEquals("Аспирин; Кардио", saved.get(0).getName());
+        assertSame(analgesics, saved.get(0).getCategory());
+        assertEquals("Bayer \"AG\"", saved.get(0).getManufacturer());
+        assertEquals(new BigDecimal("100.50"), saved.get(0).getPrice());
+        assertEquals(LocalDate.of(2024, 1, 3), saved.get(0).getDeliveryDate());
+        assertEquals("Но-шпа\nфорте", saved.get(1).getName());
+        assertEquals("Спазмолитики", saved.get(1).getCategory().getName());
+    }
+
+    @Test
+    void commaIsDelimiterWhenHeaderHasCommas() {
+        recordSaves();
+        String csv = """
+                quantity,name,category,manufacturer,price,deliveryDate,note
+                3,"Витамин C; 500 мг",Анальгетики,"Pharm, Inc.",12.5,2024-02-01,лишний столбец
+                """;
+
+        ImportReport report = importService.importProducts("comma", ProductFileFormat.CSV, new StringReader(csv));
+
+        assertEquals(1, report.importedRows());
+        assertEquals("Витамин C; 500 мг", saved.get(0).getName());
+        assertEquals("Pharm, Inc.", saved.get(0).getManufacturer());
+        assertEquals(3, saved.get(0).getQuantity());
+    }
+
+    @Test
+    void invalidRowsAreReportedByLineAndValidRowsImported() {
+        recordSaves();
+        String csv = """
+                name,category,manufacturer,price,quantity,deliveryDate
+                Аспирин,Анальгетики,Bayer,100,10,2024-01-03
+                ,Анальгетики,Bayer,100,10,2024-01-03
+                Анальгин,Анальгетики,Bayer,дорого,10,2024-01-03
+
+                Цитрамон,Анальгетики,Bayer,100,-1,2024-01-03
+                Ибупрофен,Новая категория,Bayer,100,1,03.01.2024
+                "Нурофен
+                экспресс",Анальгетики,Bayer,100,1
+                """;
+
+        ImportReport report = importService.importProducts("errors", ProductFileFormat.CSV, new StringReader(csv));
+
+        assertEquals(ImportReport.State.COMPLETED, report.state());
+        assertEquals(1, report.importedRows());
+        assertEquals(5, report.failedRows());
+        assertEquals(List.of(
+                new ImportRowError(3, "Не заполнено поле name"),
+                new ImportRowError(4, "Некорректная цена: дорого"),
+                new ImportRowError(6, "Количество не может быть отрицательным"),
+                new ImportRowError(7, "Некорректная дата поставки (ожидается YYYY-MM-DD): 03.01.2024"),
+                new ImportRowError(8, "Не заполнено поле deliveryDate")), report.errors());
+        // Категория строки с ошибкой не создаётся
+        verify(categoryService, never()).save(any());
+    }
+
+    @Test
+    void missingColumnFailsImport() {
+        ImportReport report = importService.importProducts("header", ProductFileFormat.CSV,
+                new StringReader("name,category,manufacturer,price,quantity\n"));
+
+        assertEquals(ImportReport.State.FAILED, report.state());
+        assertEquals("В заголовке CSV нет столбца deliveryDate", report.message());
+    }
+
+    @Test
+    void categoryOfRolledBackChunkIsCreatedAgain() {
+        List<Category> savedCategories = new ArrayList<>();
+        when(categoryService.save(any())).thenAnswer(invocation -> {
+            Category category = invocation.getArgument(0);
+            category.setId(categoryIds.incrementAndGet());
+            savedCategories.add(category);
+            return category;
+        });
+        when(productService.saveAll(any()))
+                .thenThrow(new IllegalStateException("Нарушено ограничение"))
+                .thenReturn(1);
+        StringBuilder csv = new StringBuilder("name,category,manufacturer,price,quantity,deliveryDate\n");
+        for (int i = 0; i <= ProductImportService.CHUNK_SIZE; i++) {
+            csv.append("Продукт ").append(i).append(",Новая категория,Bayer,100,1,2024-01-03\n");
+        }
+
+        ImportReport report = importService.importProducts("rollback", ProductFileFormat.CSV,
+                new StringReader(csv.toString()));
+
+        assertEquals(1, report.importedRows());
+        assertEquals(ProductImportService.CHUNK_SIZE, report.failedRows());
+        assertEquals(2, savedCategories.size());
+        assertEquals(List.of("Новая категория", "Новая категория"),
+                savedCategories.stream().map(Category::getName).toList());
+    }
+
+    @Test
+    void runningImportCannotBeStartedAgain() {
+        String csv = "name,category,manufacturer,price,quantity,deliveryDate\n"
+                + "Аспирин,Анальгетики,Bayer,100,10,2024-01-03\n";
+        when(productService.saveAll(any())).thenAnswer(invocation -> {
+            assertEquals(ImportReport.State.RUNNING, importService.status("same").state());
+            assertThrows(IllegalStateException.class, () -> importService.importProducts(
+                    "same", ProductFileFormat.CSV, new StringReader(csv)));
+            return 1;
+        });
+
+        assertEquals(1, importService.importProducts("same", ProductFileFormat.CSV, new StringReader(csv))
+                .importedRows());
+        // Завершённый импорт можно запустить повторно
+        assertEquals(ImportReport.State.COMPLETED, importService.importProducts(
+                "same", ProductFileFormat.CSV, new StringReader(csv)).state());
+    }
+
+    @Test
+    void runningImportIsNotEvictedByFinishedImports() {
+        String csv = "name,category,manufacturer,price,quantity,deliveryDate\n"
+                + "Аспирин,Анальгетики,Bayer,100,10,2024-01-03\n";
+        AtomicInteger calls = new AtomicInteger();
+        when(productService.saveAll(any())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                // Пока первый импорт сохраняет порцию, завершаются импорты сверх размера списка завершённых
+                for (int i = 0; i < 300; i++) {
+                    importService.importProducts("done-" + i, ProductFileFormat.CSV, new StringReader(csv));
+                }
+                assertEquals(ImportReport.State.RUNNING, importService.status("long").state());
+            }
+            return 1;
+        });
+
+        importService.importProducts("long", ProductFileFormat.CSV, new StringReader(csv));
+
+        assertEquals(ImportReport.State.COMPLETED, importService.status("long").state());
+    }
+
+    @Test
+    void ndjsonRowsAcceptCategoryObjects() {
+        recordSaves();
+        String ndjson = """
+                {"name":"Аспирин","category":{"name":"Анальгетики"},"manufacturer":"Bayer","price":100,"quantity":1,"deliveryDate":"2024-01-03"}
+                не JSON
+                [1, 2]
+                """;
+
+        ImportReport report = importService.importProducts("json", ProductFileFormat.NDJSON,
+                new StringReader(ndjson));
+
+        assertEquals(1, report.importedRows());
+        assertSame(analgesics, saved.get(0).getCategory());
+        assertEquals(List.of(2L, 3L), report.errors().stream().map(ImportRowError::line).toList());
+        assertEquals("Ожидался JSON-объект", report.errors().get(1).message());
+    }
+
+    /**
+     * Запоминает сохранённые продукты: порция очищается после сохранения.
+     */
+    private void recordSaves() {
+        when(productService.saveAll(any())).thenAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            saved.addAll(products);
+            return products.size();
+        });
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.pharm.service;
+
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет поиск по индексу триграмм, дельту copy-on-write и перенос записей, сделанных во время
+ * перестроения и слияния, в новый снимок.
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductSearchIndex index;
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    @Test
+    void searchBeforeFirstBuildReturnsNull() {
+        assertNull(index.search("аспирин"));
+    }
+
+    @Test
+    void resultsAreRankedByMatchPosition() {
+        when(productRepository.findAllRows()).thenReturn(List.of(
+                row(1, "Витамин C", "Витамины", "Аспирин-фарм"),
+                row(2, "Кардиоаспирин", "Анальгетики", "Bayer"),
+                row(3, "Аспирин Кардио", "Анальгетики", "Bayer"),
+                row(4, "Аспирин", "Анальгетики", "Bayer"),
+                row(5, "Парацетамол", "Анальгетики", "Фармстандарт")));
+        index.rebuild();
+
+        assertEquals(List.of(4L, 3L, 2L, 1L), index.search("АСПИРИН"));
+        assertEquals(List.of(5L), index.search("парацетамол"));
+        assertEquals(List.of(), index.search("ибупрофен"));
+    }
+
+    @Test
+    void keywordsShorterThanTrigramScanAllDocuments() {
+        when(productRepository.findAllRows()).thenReturn(List.of(
+                row(1, "Аспирин", "Анальгетики", "Bayer"),
+                row(2, "Но-шпа", "Спазмолитики", "Sanofi"),
+                row(3, "Линекс", "Пробиотики", "Sandoz")));
+        index.rebuild();
+        index.remove(3L);
+
+        assertEquals(List.of(1L), index.search("ас"));
+        assertEquals(List.of(2L), index.search("шп"));
+        assertEquals(List.of(1L, 2L), index.search(""));
+    }
+
+    @Test
+    void deltaReplacesAndDeletesBaseDocuments() {
+        when(productRepository.findAllRows()).thenReturn(List.of(
+                row(1, "Аспирин", "Анальгетики", "Bayer"),
+                row(2, "Анальгин", "Анальгетики", "Фармстандарт")));
+        index.rebuild();
+
+        index.upsert(row(1, "Ибупрофен", "Анальгетики", "Bayer"));
+        index.upsert(row(3, "Аспирин Кардио", "Анальгетики", "Bayer"));
+        index.remove(2L);
+
+        assertEquals(List.of(3L), index.search("аспирин"));
+        assertEquals(List.of(1L), index.search("ибупрофен"));
+        assertEquals(List.of(), index.search("анальгин"));
+        assertEquals(List.of(1L, 3L), index.search("анальгетики"));
+        assertEquals(2, index.size());
+
+        index.remove(3L);
+        assertEquals(List.of(), index.search("кардио"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void writesDuringRebuildAreKept() {
+        // База возвращает состояние до записей, сделанных, пока строки читались
+        when(productRepository.findAllRows()).thenAnswer(invocation -> {
+            index.upsert(row(1, "Ибупрофен", "Анальгетики", "Bayer"));
+            index.remove(2L);
+            return List.of(
+                    row(1, "Аспирин", "Анальгетики", "Bayer"),
+                    row(2, "Анальгин", "Анальгетики", "Фармстандарт"),
+                    row(3, "Линекс", "Пробиотики", "Sandoz"));
+        });
+        index.rebuild();
+
+        assertEquals(List.of(), index.search("аспирин"));
+        assertEquals(List.of(1L), index.search("ибупрофен"));
+        assertEquals(List.of(), index.search("анальгин"));
+        assertEquals(List.of(3L), index.search("линекс"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void writesBeforeRebuildAreReplacedByDatabaseState() {
+        when(productRepository.findAllRows()).thenReturn(List.of(row(1, "Аспирин", "Анальгетики", "Bayer")));
+        index.rebuild();
+        index.upsert(row(2, "Линекс", "Пробиотики", "Sandoz"));
+        index.rebuild();
+
+        // Запись сделана до начала перестроения, поэтому считается уже отражённой в базе
+        assertEquals(List.of(), index.search("линекс"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void mergeMovesDeltaIntoBaseWithoutLosingConcurrentWrites() throws InterruptedException {
+        when(productRepository.findAllRows()).thenReturn(List.of());
+        index.rebuild();
+
+        List<ProductRow> batch = new ArrayList<>();
+        for (int id = 1; id <= ProductSearchIndex.MERGE_THRESHOLD; id++) {
+            batch.add(row(id, "Продукт " + id, "Категория", "Bayer"));
+        }
+        index.upsertAll(batch); // Дельта достигла порога: слияние запускается в фоновом потоке
+        for (int id = 1; id <= 100; id++) {
+            index.upsert(row(id, "Обновлённый " + id, "Категория", "Bayer"));
+        }
+        index.remove(200L);
+        awaitMerge();
+
+        ProductSearchIndex.Snapshot snapshot =
+                (ProductSearchIndex.Snapshot) ReflectionTestUtils.getField(index, "snapshot");
+        assertTrue(snapshot.base.docs.length > 0, "Дельта не слита с базовым сегментом");
+        assertTrue(snapshot.delta.size() < ProductSearchIndex.MERGE_THRESHOLD);
+        assertEquals(100, index.search("обновлённый").size());
+        assertEquals(ProductSearchIndex.MERGE_THRESHOLD - 101, index.search("продукт").size());
+        assertEquals(List.of(), index.search("продукт 200"));
+        assertEquals(ProductSearchIndex.MERGE_THRESHOLD - 1, index.size());
+    }
+
+    private void awaitMerge() throws InterruptedException {
+        AtomicBoolean scheduled = (AtomicBoolean) ReflectionTestUtils.getField(index, "mergeScheduled");
+        for (int attempt = 0; attempt < 500 && scheduled.get(); attempt++) {
+            Thread.sleep(10);
+        }
+        assertFalse(scheduled.get(), "Слияние не завершилось");
+    }
+
+    private static ProductRow row(long id, String name, String category, String manufacturer) {
+        return new ProductRow(id, name, 1L, category, manufacturer, new BigDecimal("100.00"), 10,
+                LocalDate.of(2024, 1, 1));
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.pharm.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.pharm.config.CacheConfig;
+import org.example.pharm.dto.FacetedSearchResult;
+import org.example.pharm.dto.ProductFacetFilter;
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.model.Product;
+import org.example.pharm.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет сохранение продукта в режиме журнала остатков: в базе остаётся остаток, прочитанный под блокировкой
+ * строки, запрошенный остаток передаётся в журнал, а отсоединённый продукт из запроса не изменяется.
+ * Поиск с фасетами без ключевого слова берёт строки каталога из кэша до изменения каталога, а остатки
+ * из журнала накладываются при каждом вызове.
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductServiceTest {
+
+    @Mock
+    private ProductRepository repo;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private DeliveryRollupService rollupService;
+
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Mock
+    private ProductSuggestIndex suggestIndex;
+
+    @Mock
+    private ProductEventBus eventBus;
+
+    @Spy
+    private CatalogVersion catalogVersion;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.PRODUCT_ROWS);
+
+    @InjectMocks
+    private ProductService productService;
+
+    private final ProductRow aspirin = new ProductRow(1L, "Аспирин", 1L, "Анальгетики", "Bayer",
+            new BigDecimal("100.00"), 10, LocalDate.of(2024, 1, 3));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(productService, "priceBandEdges", new BigDecimal[]{new BigDecimal("500")});
+        ReflectionTestUtils.setField(productService, "singleFlightTimeout", Duration.ofSeconds(5));
+        productService.initSingleFlight();
+        lenient().when(repo.findAllRows()).thenReturn(List.of(aspirin));
+        lenient().when(stockLedger.overlay(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        // Сохранение отсоединённого продукта возвращает управляемую копию, как merge
+        lenient().when(repo.save(any(Product.class))).thenAnswer(invocation -> copy(invocation.getArgument(0)));
+    }
+
+    @Test
+    void ledgerModeKeepsLockedQuantityAndPassesRequestedOneToLedger() {
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(repo.lockQuantity(7L)).thenReturn(Optional.of(10));
+        Product detached = product(7L, 3);
+        // Версия управляемой копии увеличена, как после сброса изменённого продукта в базу
+        when(repo.save(detached)).thenAnswer(invocation -> {
+            Product managed = copy(detached);
+            managed.setVersion(2L);
+            return managed;
+        });
+
+        Product saved = productService.save(detached);
+
+        assertNotSame(detached, saved);
+        assertEquals(10, saved.getQuantity());
+        assertEquals(3, detached.getQuantity());
+        // Вне транзакции действие после фиксации выполняется сразу
+        verify(stockLedger).set(7L, 3, 1L);
+    }
+
+    @Test
+    void directModeSavesRequestedQuantityWithoutLocking() {
+        Product saved = productService.save(product(7L, 3));
+
+        assertEquals(3, saved.getQuantity());
+        verify(repo, never()).lockQuantity(anyLong());
+        verify(stockLedger, never()).set(anyLong(), anyInt(), anyLong());
+    }
+
+    @Test
+    void newProductIsNotPassedToLedger() {
+        lenient().when(stockLedger.isEnabled()).thenReturn(true);
+
+        Product saved = productService.save(product(null, 3));
+
+        assertEquals(3, saved.getQuantity());
+        verify(repo, never()).lockQuantity(anyLong());
+    }
+
+    @Test
+    void catalogRowsAreLoadedOncePerCatalogVersion() {
+        productService.facetedSearch(null, ProductFacetFilter.NONE, 10, true);
+        productService.facetedSearch(" ", ProductFacetFilter.NONE, 10, true);
+        verify(repo, times(1)).findAllRows();
+
+        catalogVersion.bump();
+        productService.facetedSearch(null, ProductFacetFilter.NONE, 10, true);
+        verify(repo, times(2)).findAllRows();
+    }
+
+    @Test
+    void ledgerStockIsAppliedToCachedRows() {
+        when(stockLedger.overlay(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenReturn(List.of(aspirin.withQuantity(0)));
+
+        productService.findAllRows();
+        FacetedSearchResult result = productService.facetedSearch(null, ProductFacetFilter.NONE, 10, false);
+
+        assertEquals(List.of(aspirin.withQuantity(0)), result.items());
+        verify(repo, times(1)).findAllRows();
+    }
+
+    private static Product product(Long id, int quantity) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Аспирин");
+        product.setManufacturer("Bayer");
+        product.setPrice(new BigDecimal("100.00"));
+        product.setQuantity(quantity);
+        product.setDeliveryDate(LocalDate.of(2024, 1, 3));
+        product.setVersion(1L);
+        return product;
+    }
+
+    private static Product copy(Product product) {
+        Product copy = product(product.getId() != null ? product.getId() : 8L, product.getQuantity());
+        copy.setVersion(product.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,198 @@
+package org.example.pharm.service;
+
+import org.example.pharm.dto.ProductRow;
+import org.example.pharm.dto.ProductSuggestion;
+import org.example.pharm.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет индекс подсказок: диапазон термов по префиксу, порядок по остатку через дерево отрезков
+ * после изменений остатков, удалений и новых термов вне словаря. Итоговая проверка сравнивает индекс
+ * после случайной последовательности записей с подсчётом подсказок перебором.
+ */
+@ExtendWith(MockitoExtension.class)
+class ProductSuggestIndexTest {
+
+    private static final String[] NAMES = {"Аспирин", "Аспаркам", "Анальгин", "Арбидол", "Нурофен", "Но-шпа"};
+    private static final String[] NEW_NAMES = {"Аспирин Кардио", "Амбробене", "Ношпалгин", "Ацикловир"};
+    private static final String[] MAKERS = {"Bayer", "Berlin-Chemie", "Sanofi", "Фармстандарт"};
+    private static final String[] CATEGORIES = {"Анальгетики", "Антибиотики", "Витамины"};
+    private static final String[] PREFIXES = {"а", "ас", "асп", "аспирин", "аспирин к", "н", "b", "be", "ф", "я", "Z"};
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductSuggestIndex index;
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    @Test
+    void prefixMatchesTermsOfAllFieldsByStock() {
+        build(row(1, "Аспирин", "Bayer", "Анальгетики", 10),
+                row(2, "Аспаркам", "Фармстандарт", "Витамины", 3),
+                row(3, "Анальгин", "Фармстандарт", "Анальгетики", 5),
+                row(4, "Нурофен", "Berlin-Chemie", "Анальгетики", 0));
+
+        assertEquals(List.of(
+                new ProductSuggestion("Анальгетики", ProductSuggestion.Type.CATEGORY, 15, 3),
+                new ProductSuggestion("Аспирин", ProductSuggestion.Type.NAME, 10, 1),
+                new ProductSuggestion("Анальгин", ProductSuggestion.Type.NAME, 5, 1),
+                new ProductSuggestion("Аспаркам", ProductSuggestion.Type.NAME, 3, 1)), index.suggest("  А ", 10));
+        assertEquals(List.of("Аспирин", "Аспаркам"), texts(index.suggest("асп", 10)));
+        assertEquals(List.of("Аспирин"), texts(index.suggest("аспирин", 10)));
+        assertEquals(List.of(), index.suggest("аспирина", 10));
+        assertEquals(List.of("Bayer", "Berlin-Chemie"), texts(index.suggest("b", 10)));
+        assertEquals(List.of("Анальгетики"), texts(index.suggest("а", 1)));
+        assertEquals(List.of(), index.suggest(" ", 10));
+    }
+
+    @Test
+    void stockChangesReorderSuggestions() {
+        build(row(1, "Аспирин", "Bayer", null, 10),
+                row(2, "Аспаркам", "Bayer", null, 3));
+
+        index.updateStock(2L, 20);
+
+        assertEquals(List.of(
+                new ProductSuggestion("Аспаркам", ProductSuggestion.Type.NAME, 20, 1),
+                new ProductSuggestion("Аспирин", ProductSuggestion.Type.NAME, 10, 1)), index.suggest("асп", 10));
+        assertEquals(List.of(new ProductSuggestion("Bayer", ProductSuggestion.Type.MANUFACTURER, 30, 2)),
+                index.suggest("bay", 10));
+    }
+
+    @Test
+    void removedAndRenamedProductsLeaveSuggestions() {
+        build(row(1, "Аспирин", "Bayer", "Анальгетики", 10),
+                row(2, "Аспаркам", "Bayer", "Витамины", 3));
+
+        index.remove(2L);
+        index.upsert(row(1, "Аспирин Кардио", "Bayer", "Анальгетики", 7));
+
+        // Новое название вне словаря подсказывается вместе с термами словаря
+        assertEquals(List.of(new ProductSuggestion("Аспирин Кардио", ProductSuggestion.Type.NAME, 7, 1)),
+                index.suggest("асп", 10));
+        assertEquals(List.of(), index.suggest("вит", 10));
+        assertEquals(List.of(new ProductSuggestion("Bayer", ProductSuggestion.Type.MANUFACTURER, 7, 1)),
+                index.suggest("bayer", 10));
+    }
+
+    @Test
+    void indexIsEmptyUntilBuilt() {
+        index.upsert(row(1, "Аспирин", "Bayer", "Анальгетики", 10));
+
+        assertEquals(List.of(), index.suggest("асп", 10));
+    }
+
+    @Test
+    void randomWritesMatchBruteForce() {
+        Random random = new Random(42);
+        Map<Long, ProductRow> products = new HashMap<>();
+        for (long id = 1; id <= 200; id++) {
+            products.put(id, randomRow(random, id, NAMES));
+        }
+        build(products.values().toArray(ProductRow[]::new));
+
+        for (int step = 0; step < 300; step++) {
+            long id = 1 + random.nextInt(220);
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    ProductRow row = randomRow(random, id, random.nextBoolean() ? NAMES : NEW_NAMES);
+                    products.put(id, row);
+                    index.upsert(row);
+                }
+                case 1 -> {
+                    products.remove(id);
+                    index.remove(id);
+                }
+                default -> {
+                    int quantity = random.nextInt(50);
+                    if (products.containsKey(id)) {
+                        products.put(id, products.get(id).withQuantity(quantity));
+                    }
+                    index.updateStock(id, quantity);
+                }
+            }
+            if (step % 25 == 0) {
+                assertMatchesBruteForce(products);
+            }
+        }
+        assertMatchesBruteForce(products);
+    }
+
+    private void assertMatchesBruteForce(Map<Long, ProductRow> products) {
+        for (String prefix : PREFIXES) {
+            for (int limit : new int[]{1, 3, 50}) {
+                assertEquals(bruteForce(products, prefix, limit), index.suggest(prefix, limit),
+                        "Префикс «" + prefix + "», не больше " + limit);
+            }
+        }
+    }
+
+    /**
+     * Подсказки перебором всех продуктов: термы полей с суммой остатков и количеством продуктов.
+     */
+    private static List<ProductSuggestion> bruteForce(Map<Long, ProductRow> products, String prefix, int limit) {
+        String normalized = prefix.strip().toLowerCase();
+        Map<String, ProductSuggestion> terms = new HashMap<>();
+        for (ProductRow row : products.values()) {
+            String[] values = {row.name(), row.manufacturer(), row.categoryName()};
+            ProductSuggestion.Type[] types = ProductSuggestion.Type.values();
+            for (int kind = 0; kind < values.length; kind++) {
+                if (values[kind] == null || !values[kind].toLowerCase().startsWith(normalized)) {
+                    continue;
+                }
+                String key = values[kind].toLowerCase() + '\u0000' + kind;
+                ProductSuggestion current = terms.getOrDefault(key,
+                        new ProductSuggestion(values[kind], types[kind], 0, 0));
+                terms.put(key, new ProductSuggestion(current.text(), current.type(),
+                        current.stock() + row.quantity(), current.products() + 1));
+            }
+        }
+        List<Map.Entry<String, ProductSuggestion>> entries = new ArrayList<>(terms.entrySet());
+        entries.sort(Comparator.comparing((Map.Entry<String, ProductSuggestion> entry) -> entry.getValue().stock())
+                .reversed()
+                .thenComparing(entry -> entry.getValue().products(), Comparator.reverseOrder())
+                .thenComparing(Map.Entry::getKey));
+        return entries.stream().limit(limit).map(Map.Entry::getValue).toList();
+    }
+
+    private void build(ProductRow... rows) {
+        when(productRepository.findAllRows()).thenReturn(List.of(rows));
+        index.rebuild();
+    }
+
+    private static ProductRow randomRow(Random random, long id, String[] names) {
+        return row(id, names[random.nextInt(names.length)], MAKERS[random.nextInt(MAKERS.length)],
+                random.nextInt(5) == 0 ? null : CATEGORIES[random.nextInt(CATEGORIES.length)], random.nextInt(50));
+    }
+
+    private static List<String> texts(List<ProductSuggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestion::text).toList();
+    }
+
+    private static ProductRow row(long id, String name, String manufacturer, String category, int quantity) {
+        return new ProductRow(id, name, category != null ? (long) category.hashCode() : null, category, manufacturer,
+                BigDecimal.TEN, quantity, LocalDate.of(2024, 1, 3));
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.pharm.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет объединение одновременных запросов: ожидающие получают результат или исключение ведущего,
+ * ни результат, ни исключение не кэшируются, а медленный ведущий не задерживает ожидающих дольше таймаута.
+ */
+class SingleFlightTest {
+
+    private static final Duration LONG_WAIT = Duration.ofSeconds(30);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", LONG_WAIT, meterRegistry);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Thread> threads = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    @Test
+    void concurrentCallsShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> leader = call(() -> {
+            loads.incrementAndGet();
+            await(release);
+            return "каталог";
+        });
+        awaitInFlight();
+        List<CompletableFuture<String>> waiters = waiters(4, () -> {
+            loads.incrementAndGet();
+            return "повторная загрузка";
+        });
+
+        release.countDown();
+
+        assertEquals("каталог", leader.get(10, TimeUnit.SECONDS));
+        for (CompletableFuture<String> waiter : waiters) {
+            assertEquals("каталог", waiter.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, count("leader"));
+        assertEquals(4, count("coalesced"));
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void failureReachesAllWaitersAndIsNotCached() throws Exception {
+        IllegalStateException failure = new IllegalStateException("база недоступна");
+        CompletableFuture<String> leader = call(() -> {
+            await(release);
+            throw failure;
+        });
+        awaitInFlight();
+        List<CompletableFuture<String>> waiters = waiters(3, () -> "повторная загрузка");
+
+        release.countDown();
+
+        assertSame(failure, assertThrows(ExecutionException.class, () -> leader.get(10, TimeUnit.SECONDS)).getCause());
+        for (CompletableFuture<String> waiter : waiters) {
+            assertSame(failure,
+                    assertThrows(ExecutionException.class, () -> waiter.get(10, TimeUnit.SECONDS)).getCause());
+        }
+        assertEquals(0, singleFlight.inFlight());
+        assertEquals("каталог", singleFlight.execute("key", () -> "каталог"));
+        assertEquals(2, count("leader"));
+    }
+
+    @Test
+    void completedLoadIsNotReused() {
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.execute("key", () -> "загрузка " + loads.incrementAndGet());
+
+        assertEquals("загрузка 2", singleFlight.execute("key", () -> "загрузка " + loads.incrementAndGet()));
+        assertEquals(2, count("leader"));
+        assertEquals(0, count("coalesced"));
+    }
+
+    @Test
+    void waiterLoadsItselfAfterTimeout() throws Exception {
+        CompletableFuture<String> leader = call(() -> {
+            await(release);
+            return "медленная загрузка";
+        });
+        awaitInFlight();
+
+        assertEquals("своя загрузка", singleFlight.execute("key", Duration.ofMillis(50), () -> "своя загрузка"));
+        assertEquals(1, count("timeout"));
+
+        release.countDown();
+        assertEquals("медленная загрузка", leader.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void differentKeysAreLoadedIndependently() throws Exception {
+        CompletableFuture<String> leader = call(() -> {
+            await(release);
+            return "первый";
+        });
+        awaitInFlight();
+
+        assertEquals("второй", singleFlight.execute("other", () -> "второй"));
+
+        release.countDown();
+        assertEquals("первый", leader.get(10, TimeUnit.SECONDS));
+        assertEquals(2, count("leader"));
+    }
+
+    /**
+     * Запускает {@code count} вызовов с тем же ключом и ждёт, пока все они начнут ждать ведущего.
+     */
+    private List<CompletableFuture<String>> waiters(int count, Supplier<String> loader) throws InterruptedException {
+        List<CompletableFuture<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            waiters.add(call(loader));
+        }
+        for (Thread thread : threads.subList(1, threads.size())) {
+            awaitCondition(() -> thread.getState() == Thread.State.TIMED_WAITING);
+        }
+        return waiters;
+    }
+
+    private CompletableFuture<String> call(Supplier<String> loader) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(singleFlight.execute("key", loader));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        threads.add(thread);
+        thread.start();
+        return result;
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        awaitCondition(() -> singleFlight.inFlight() == 1);
+    }
+
+    private static void awaitCondition(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.get()) {
+            assertTrue(System.nanoTime() < deadline, "Условие не выполнилось за 10 секунд");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter(SingleFlight.METRIC, "name", "test", "result", result).count();
+    }
+}
@@ -0,0 +1,262 @@
+package org.example.pharm.service;
+
+import org.example.pharm.model.Category;
+import org.example.pharm.model.Product;
+import org.example.pharm.repository.CategoryRepository;
+import org.example.pharm.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Проверяет журнал остатков с отложенной записью на H2: восстановление изменений после падения процесса,
+ * отбрасывание недописанного хвоста, пропуск сегментов до контрольной точки, изменения во время сброса
+ * и увеличение версии продукта в базе на число записанных изменений.
+ * Падение моделируется тем, что журнал бросается без {@code shutdown()} и по тому же каталогу запускается новый.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledger;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "pharm.stock.mode=write-behind",
+        "pharm.stock.ledger.dir=file:${java.io.tmpdir}",
+        "pharm.stock.ledger.flush-threshold=1000000"
+})
+@Import(DeliveryRollupService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockLedgerTest {
+
+    @MockitoBean
+    private ProductEventBus eventBus;
+
+    @MockitoBean
+    private ProductSuggestIndex suggestIndex;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @TempDir
+    private Path directory;
+
+    private Long aspirinId;
+    private Long ibuprofenId;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Анальгетики");
+        categoryRepository.save(category);
+        aspirinId = product("Аспирин", category);
+        ibuprofenId = product("Ибупрофен", category);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM stock_ledger_checkpoint");
+        jdbcTemplate.update("DELETE FROM delivery_rollup");
+        jdbcTemplate.update("DELETE FROM product");
+        jdbcTemplate.update("DELETE FROM category");
+    }
+
+    @Test
+    void unflushedChangesAreReplayedAfterCrash() throws IOException {
+        StockLedger ledger = start();
+        ledger.adjust(aspirinId, -3);
+        ledger.adjust(aspirinId, 10);
+        ledger.set(ibuprofenId, 1, 0);
+        assertEquals(5, storedQuantity(aspirinId));
+
+        start();
+
+        assertEquals(12, storedQuantity(aspirinId));
+        assertEquals(1, storedQuantity(ibuprofenId));
+        assertEquals(List.of(), nonEmptySegments());
+    }
+
+    @Test
+    void tornTailIsDroppedOnRecovery() throws IOException {
+        StockLedger ledger = start();
+        ledger.adjust(aspirinId, -1);
+        ledger.adjust(aspirinId, -1);
+        // Третья запись оборвалась на середине
+        Files.write(currentSegment(), ByteBuffer.allocate(12).putLong(aspirinId).putInt(-4).array(),
+                StandardOpenOption.APPEND);
+
+        start();
+
+        assertEquals(3, storedQuantity(aspirinId));
+    }
+
+    @Test
+    void segmentsUpToCheckpointAreNotAppliedAgain() throws IOException {
+        StockLedger ledger = start();
+        ledger.adjust(aspirinId, -2);
+        // Копия сегмента моделирует падение после фиксации сброса, но до удаления применённого сегмента
+        Path flushed = currentSegment();
+        byte[] flushedRecords = Files.readAllBytes(flushed);
+        ledger.flush();
+        assertEquals(3, storedQuantity(aspirinId));
+        Files.write(flushed, flushedRecords);
+        ledger.adjust(aspirinId, 4);
+
+        start();
+
+        assertEquals(7, storedQuantity(aspirinId));
+        assertFalse(Files.exists(flushed));
+    }
+
+    @Test
+    void adjustmentsDuringFlushAreNeitherLostNorAppliedTwice() throws Exception {
+        StockLedger ledger = start();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicBoolean adjusting = new AtomicBoolean(true);
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                while (adjusting.get()) {
+                    ledger.flush();
+                }
+            });
+            List<Future<?>> adjusters = new ArrayList<>();
+            for (Long id : List.of(aspirinId, ibuprofenId)) {
+                adjusters.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        ledger.adjust(id, i % 3 == 0 ? -1 : 1);
+                    }
+                }));
+            }
+            for (Future<?> adjuster : adjusters) {
+                adjuster.get();
+            }
+            adjusting.set(false);
+            flusher.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        // 500 изменений: 167 списаний и 333 прихода
+        assertEquals(171, ledger.quantity(aspirinId));
+        ledger.flush();
+        assertEquals(171, storedQuantity(aspirinId));
+        assertEquals(171, storedQuantity(ibuprofenId));
+
+        start();
+
+        assertEquals(171, storedQuantity(aspirinId));
+        assertEquals(171, storedQuantity(ibuprofenId));
+    }
+
+    @Test
+    void flushAndRecoveryIncreaseStoredVersionByNumberOfChanges() throws IOException {
+        StockLedger ledger = start();
+        long version = storedVersion(aspirinId);
+        assertEquals(version + 1, ledger.adjust(aspirinId, -1).version());
+        assertEquals(version + 2, ledger.adjust(aspirinId, 1).version());
+
+        // Изменения взаимно погасились, но версия в базе всё равно догоняет версию журнала
+        ledger.flush();
+        assertEquals(5, storedQuantity(aspirinId));
+        assertEquals(version + 2, storedVersion(aspirinId));
+
+        ledger.adjust(aspirinId, -1);
+        ledger.adjust(aspirinId, -1);
+        start();
+
+        assertEquals(version + 4, storedVersion(aspirinId));
+    }
+
+    @Test
+    void recoveryWithoutSegmentsLeavesStockUntouched() throws IOException {
+        start();
+
+        assertEquals(5, storedQuantity(aspirinId));
+        assertNull(start().quantity(aspirinId));
+    }
+
+    /**
+     * Запускает журнал по каталогу {@link #directory}, как при старте приложения.
+     */
+    private StockLedger start() throws IOException {
+        StockLedger ledger = new StockLedger();
+        beanFactory.autowireBean(ledger);
+        ReflectionTestUtils.setField(ledger, "directory", directory);
+        ledger.recover();
+        return ledger;
+    }
+
+    private Path currentSegment() throws IOException {
+        return StockWriteAheadLog.segments(directory).values().stream().reduce((first, second) -> second).orElseThrow();
+    }
+
+    private List<Path> nonEmptySegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        for (Map.Entry<Long, Path> segment : StockWriteAheadLog.segments(directory).entrySet()) {
+            if (Files.size(segment.getValue()) > 0) {
+                segments.add(segment.getValue());
+            }
+        }
+        return segments;
+    }
+
+    private int storedQuantity(Long id) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, id);
+    }
+
+    private long storedVersion(Long id) {
+        return jdbcTemplate.queryForObject("SELECT version FROM product WHERE id = ?", Long.class, id);
+    }
+
+    private Long product(String name, Category category) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setManufacturer("Bayer");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setQuantity(5);
+        product.setDeliveryDate(LocalDate.of(2024, 1, 1));
+        return productRepository.save(product).getId();
+    }
+}
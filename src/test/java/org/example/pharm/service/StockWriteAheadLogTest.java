@@ -0,0 +1,100 @@
+package org.example.pharm.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверяет чтение журнала остатков после сбоя: недописанный хвост и запись с неверной контрольной суммой
+ * отбрасываются, сегменты перечисляются в порядке номеров.
+ */
+class StockWriteAheadLogTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void appendedRecordsAreSummedPerProduct() throws IOException {
+        Path segment = write(1, log -> {
+            log.append(1, -3);
+            log.append(2, 10);
+            log.append(1, 5);
+        });
+
+        Map<Long, Long> deltas = new TreeMap<>();
+
+        assertEquals(3, StockWriteAheadLog.read(segment, deltas));
+        assertEquals(Map.of(1L, 2L, 2L, 10L), deltas);
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        Path segment = write(1, log -> {
+            log.append(1, 4);
+            log.append(2, 7);
+        });
+        // Процесс упал посреди записи: от третьей записи на диске только идентификатор и половина изменения
+        Files.write(segment, ByteBuffer.allocate(10).putLong(1).putShort((short) 9).array(), StandardOpenOption.APPEND);
+
+        Map<Long, Long> deltas = new TreeMap<>();
+
+        assertEquals(2, StockWriteAheadLog.read(segment, deltas));
+        assertEquals(Map.of(1L, 4L, 2L, 7L), deltas);
+    }
+
+    @Test
+    void readingStopsAtRecordWithBadChecksum() throws IOException {
+        Path segment = write(1, log -> {
+            log.append(1, 4);
+            log.append(2, 7);
+            log.append(3, 1);
+        });
+        // Повреждено изменение второй записи; третья запись после неё тоже не применяется
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[16 + 11] ^= 1;
+        Files.write(segment, bytes);
+
+        Map<Long, Long> deltas = new TreeMap<>();
+
+        assertEquals(1, StockWriteAheadLog.read(segment, deltas));
+        assertEquals(Map.of(1L, 4L), deltas);
+    }
+
+    @Test
+    void rotationStartsNextSegment() throws IOException {
+        try (StockWriteAheadLog log = StockWriteAheadLog.open(directory, 9, false)) {
+            log.append(1, 1);
+            assertEquals(9, log.rotate());
+            log.append(1, 2);
+            assertEquals(10, log.rotate());
+        }
+
+        SortedMap<Long, Path> segments = StockWriteAheadLog.segments(directory);
+
+        // Сегменты упорядочены по номеру
+        assertEquals(List.of(9L, 10L, 11L), List.copyOf(segments.keySet()));
+        Map<Long, Long> deltas = new TreeMap<>();
+        assertEquals(1, StockWriteAheadLog.read(segments.get(10L), deltas));
+        assertEquals(Map.of(1L, 2L), deltas);
+        assertEquals(0, Files.size(segments.get(11L)));
+    }
+
+    private Path write(long segment, Consumer<StockWriteAheadLog> appender) throws IOException {
+        try (StockWriteAheadLog log = StockWriteAheadLog.open(directory, segment, false)) {
+            appender.accept(log);
+        }
+        return StockWriteAheadLog.segments(directory).get(segment);
+    }
+}